@@ -0,0 +1,91 @@
+package com.poc.aws.sns.api.exceptions;
+
+import com.fasterxml.jackson.core.JsonParseException;
+import com.poc.aws.sns.api.exceptions.MessageError.ApiError;
+import com.poc.aws.sns.api.interfaces.Messages;
+import java.io.InputStream;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.support.ResourceBundleMessageSource;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+
+/*
+  Error responses built by MessageError and RestResponseEntityExceptionHandler. Lives in the
+  exceptions package to reach the protected handler methods.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ErrorHandlingBenchmark {
+
+  private MessageError messageError;
+  private RestResponseEntityExceptionHandler handler;
+  private UnprocessableEntityException unprocessableEntity;
+  private HttpMessageNotReadableException notReadable;
+
+  @Setup
+  public void setup() {
+    ResourceBundleMessageSource messageSource = new ResourceBundleMessageSource();
+    messageSource.setBasename("messages");
+    messageError = new MessageError(messageSource);
+    handler = new RestResponseEntityExceptionHandler(messageError, 10_000);
+
+    unprocessableEntity = new UnprocessableEntityException(
+        messageError.create(Messages.SNS_INTEGRATION_HAS_FAILED), "Connection refused");
+    notReadable = new HttpMessageNotReadableException("JSON parse error",
+        new JsonParseException(null, "Unexpected character ('}' (code 125))"),
+        new EmptyInputMessage());
+  }
+
+  @Benchmark
+  public ApiError createWithoutParameters() {
+    return messageError.create(Messages.CONTACT_SYSTEM_ADMIN);
+  }
+
+  @Benchmark
+  public ApiError createWithParameters() {
+    return messageError.create(Messages.INVALID_PARAM, "topic", "", "must not be blank");
+  }
+
+  @Benchmark
+  public ResponseEntity<List<ApiError>> handleUnprocessableEntity() {
+    return handler.handleUnprocessableEntityException(unprocessableEntity);
+  }
+
+  @Benchmark
+  public ResponseEntity<Object> handleHttpMessageNotReadable() {
+    return handler.handleHttpMessageNotReadable(notReadable, new HttpHeaders(),
+        HttpStatus.BAD_REQUEST, null);
+  }
+
+  private static class EmptyInputMessage implements HttpInputMessage {
+
+    @Override
+    public InputStream getBody() {
+      return InputStream.nullInputStream();
+    }
+
+    @Override
+    public HttpHeaders getHeaders() {
+      return new HttpHeaders();
+    }
+  }
+
+}
@@ -0,0 +1,47 @@
+package com.poc.aws.sns.benchmarks;
+
+import com.amazonaws.services.sns.AbstractAmazonSNS;
+import com.amazonaws.services.sns.model.ListTopicsResult;
+import com.amazonaws.services.sns.model.PublishBatchRequest;
+import com.amazonaws.services.sns.model.PublishBatchResult;
+import com.amazonaws.services.sns.model.PublishBatchResultEntry;
+import com.amazonaws.services.sns.model.PublishRequest;
+import com.amazonaws.services.sns.model.PublishResult;
+import com.amazonaws.services.sns.model.Topic;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/*
+  AmazonSNS answering from memory, so the benchmarks measure only our side of the publish.
+ */
+public class InMemoryAmazonSNS extends AbstractAmazonSNS {
+
+  private static final String MESSAGE_ID = "5a2e2a5c-7c52-4f0b-9a62-0d3ad2b7d5f1";
+
+  private final List<String> topicArns;
+
+  public InMemoryAmazonSNS(List<String> topicArns) {
+    this.topicArns = topicArns;
+  }
+
+  @Override
+  public PublishResult publish(PublishRequest request) {
+    return new PublishResult().withMessageId(MESSAGE_ID);
+  }
+
+  @Override
+  public PublishBatchResult publishBatch(PublishBatchRequest request) {
+    return new PublishBatchResult().withSuccessful(request.getPublishBatchRequestEntries()
+        .stream()
+        .map(entry -> new PublishBatchResultEntry().withId(entry.getId()).withMessageId(MESSAGE_ID))
+        .collect(Collectors.toList()));
+  }
+
+  @Override
+  public ListTopicsResult listTopics(String nextToken) {
+    return new ListTopicsResult().withTopics(topicArns.stream()
+        .map(topicArn -> new Topic().withTopicArn(topicArn))
+        .collect(Collectors.toList()));
+  }
+
+}
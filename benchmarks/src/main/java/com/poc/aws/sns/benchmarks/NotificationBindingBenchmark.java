@@ -0,0 +1,59 @@
+package com.poc.aws.sns.benchmarks;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.poc.aws.sns.api.interfaces.json.Notification;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/*
+  Jackson binding of the publish request body, from 1 KB up to the 256 KB SNS limit.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class NotificationBindingBenchmark {
+
+  @Param({"1024", "16384", "65536", "262144"})
+  public int payloadBytes;
+
+  private ObjectReader reader;
+  private ObjectWriter writer;
+  private Notification notification;
+  private byte[] json;
+
+  @Setup
+  public void setup() throws IOException {
+    ObjectMapper objectMapper = new ObjectMapper();
+    reader = objectMapper.readerFor(Notification.class);
+    writer = objectMapper.writerFor(Notification.class);
+    notification = Payloads.notification(payloadBytes);
+    json = writer.writeValueAsBytes(notification);
+  }
+
+  @Benchmark
+  public Notification read() throws IOException {
+    return reader.readValue(json);
+  }
+
+  @Benchmark
+  public byte[] write() throws IOException {
+    return writer.writeValueAsBytes(notification);
+  }
+
+}
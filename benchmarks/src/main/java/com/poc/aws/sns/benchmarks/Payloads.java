@@ -0,0 +1,18 @@
+package com.poc.aws.sns.benchmarks;
+
+import com.google.common.base.Strings;
+import com.poc.aws.sns.api.interfaces.json.Notification;
+
+public final class Payloads {
+
+  private Payloads() {
+  }
+
+  public static Notification notification(int bodyBytes) {
+    return Notification.builder()
+        .subject("benchmark")
+        .body(Strings.repeat("a", bodyBytes))
+        .build();
+  }
+
+}
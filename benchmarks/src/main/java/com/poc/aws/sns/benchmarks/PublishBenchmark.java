@@ -0,0 +1,84 @@
+package com.poc.aws.sns.benchmarks;
+
+import com.poc.aws.sns.api.exceptions.MessageError;
+import com.poc.aws.sns.api.interfaces.json.Notification;
+import com.poc.aws.sns.api.interfaces.json.response.PublishBatchResponse;
+import com.poc.aws.sns.api.service.fifo.MessageGroupLanes;
+import com.poc.aws.sns.api.service.impl.AmazonSNSIntegrationServiceImpl;
+import com.poc.aws.sns.api.service.registry.SubscriptionPageCache;
+import com.poc.aws.sns.api.service.registry.TopicRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.support.ResourceBundleMessageSource;
+
+/*
+  AmazonSNSIntegrationServiceImpl.publish against an in memory AmazonSNS: topic check, ARN
+  concatenation, request building and the two INFO logs of every publish.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PublishBenchmark {
+
+  private static final String SNS_ARN = "arn:aws:sns:us-east-2:000000000000";
+  private static final String TOPIC = "topic-subscriber";
+
+  @Param({"1024"})
+  public int payloadBytes;
+
+  private AmazonSNSIntegrationServiceImpl service;
+  private Notification notification;
+  private List<Notification> notifications;
+
+  @Setup
+  public void setup() {
+    InMemoryAmazonSNS amazonSNS = new InMemoryAmazonSNS(List.of(SNS_ARN + ":" + TOPIC));
+    ResourceBundleMessageSource messageSource = new ResourceBundleMessageSource();
+    messageSource.setBasename("messages");
+
+    MessageError messageError = new MessageError(messageSource);
+    TopicRegistry topicRegistry = new TopicRegistry(amazonSNS, messageError, 60_000, 5_000);
+    topicRegistry.refresh();
+
+    service = new AmazonSNSIntegrationServiceImpl(amazonSNS, Optional.empty(), messageError,
+        topicRegistry, new SubscriptionPageCache(amazonSNS, 30_000, 100_000), Runnable::run,
+        new MessageGroupLanes(messageError, new SimpleMeterRegistry(), 1, 1), Optional.empty(),
+        Optional.empty(), Optional.empty(), Optional.empty(), Optional.empty(), SNS_ARN,
+        "http://localhost/topic-subscriber", "http");
+
+    notification = Payloads.notification(payloadBytes);
+    notifications = IntStream.range(0, 100)
+        .mapToObj(i -> notification)
+        .collect(Collectors.toList());
+  }
+
+  @Benchmark
+  public void publish() {
+    service.publish(notification, TOPIC);
+  }
+
+  @Benchmark
+  @OutputTimeUnit(TimeUnit.SECONDS)
+  public PublishBatchResponse publishBatchOf100() {
+    return service.publishBatch(notifications, TOPIC);
+  }
+
+}
@@ -0,0 +1,176 @@
+package com.poc.aws.sns.benchmarks.load;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.poc.aws.sns.api.interfaces.json.Notification;
+import com.poc.aws.sns.benchmarks.Payloads;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpRequest.BodyPublishers;
+import java.net.http.HttpResponse.BodyHandlers;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+/*
+  Closed loop load against TopicController: every worker sends the next request as soon as the
+  previous one answered, so the concurrency stays fixed and the throughput is what the API
+  sustains. Throughput counts the 2xx answers only, while the latency percentiles cover every
+  request, rejected, failed and timed out ones included. Meant to run against the app backed by
+  the sns-stub module.
+
+    java -cp benchmarks/target/benchmarks.jar com.poc.aws.sns.benchmarks.load.LoadGenerator \
+      --url=http://localhost:9090/api-aws-integration/v1 --topic=topic-subscriber \
+      --concurrency=64 --duration-s=60 --warmup-s=10 --body-bytes=1024 --batch-size=1
+ */
+public class LoadGenerator {
+
+  private static final long MAX_LATENCY_NANOS = TimeUnit.MINUTES.toNanos(1);
+
+  private final URI uri;
+  private final byte[] payload;
+  private final int concurrency;
+  private final Duration warmup;
+  private final Duration duration;
+  private final HttpClient client;
+  private final Recorder recorder = new Recorder(MAX_LATENCY_NANOS, 3);
+  private final Map<Integer, LongAdder> statuses = new ConcurrentHashMap<>();
+  private final LongAdder succeeded = new LongAdder();
+  private final LongAdder failures = new LongAdder();
+  private volatile boolean measuring;
+  private volatile boolean running = true;
+
+  LoadGenerator(Map<String, String> options) throws Exception {
+    String url = options.getOrDefault("url", "http://localhost:9090/api-aws-integration/v1");
+    String topic = options.getOrDefault("topic", "topic-subscriber");
+    int bodyBytes = Integer.parseInt(options.getOrDefault("body-bytes", "1024"));
+    int batchSize = Integer.parseInt(options.getOrDefault("batch-size", "1"));
+    this.concurrency = Integer.parseInt(options.getOrDefault("concurrency", "64"));
+    this.warmup = Duration.ofSeconds(Long.parseLong(options.getOrDefault("warmup-s", "10")));
+    this.duration = Duration.ofSeconds(Long.parseLong(options.getOrDefault("duration-s", "60")));
+
+    ObjectMapper objectMapper = new ObjectMapper();
+    Notification notification = Payloads.notification(bodyBytes);
+    if (batchSize > 1) {
+      this.uri = URI.create(url + "/topics/" + topic + "/messages");
+      this.payload = objectMapper.writeValueAsBytes(Collections.nCopies(batchSize, notification));
+    } else {
+      this.uri = URI.create(url + "/topics/" + topic + "/message");
+      this.payload = objectMapper.writeValueAsBytes(notification);
+    }
+    this.client = HttpClient.newBuilder()
+        .executor(Executors.newFixedThreadPool(Math.max(2, concurrency / 4)))
+        .connectTimeout(Duration.ofSeconds(5))
+        .build();
+  }
+
+  public static void main(String[] args) throws Exception {
+    Map<String, String> options = Arrays.stream(args)
+        .filter(arg -> arg.startsWith("--") && arg.contains("="))
+        .map(arg -> arg.substring(2).split("=", 2))
+        .collect(Collectors.toMap(option -> option[0], option -> option[1], (a, b) -> b));
+    new LoadGenerator(options).run();
+    System.exit(0);
+  }
+
+  void run() throws InterruptedException {
+    ExecutorService workers = Executors.newFixedThreadPool(concurrency);
+    for (int i = 0; i < concurrency; i++) {
+      workers.execute(this::work);
+    }
+
+    System.out.printf("warming up %ss against %s with %d workers%n", warmup.toSeconds(), uri,
+        concurrency);
+    Thread.sleep(warmup.toMillis());
+    statuses.clear();
+    succeeded.reset();
+    failures.reset();
+    recorder.reset();
+    measuring = true;
+
+    long started = System.nanoTime();
+    Histogram total = new Histogram(MAX_LATENCY_NANOS, 3);
+    long succeededBefore = 0;
+    for (long second = 1; second <= duration.toSeconds(); second++) {
+      Thread.sleep(1000);
+      Histogram interval = recorder.getIntervalHistogram();
+      long succeededNow = succeeded.sum();
+      System.out.printf("%4ds %8d 2xx/s %8d req/s p99 %8.2f ms%n", second,
+          succeededNow - succeededBefore, interval.getTotalCount(),
+          millis(interval.getValueAtPercentile(99)));
+      succeededBefore = succeededNow;
+      total.add(interval);
+    }
+    measuring = false;
+    total.add(recorder.getIntervalHistogram());
+    double elapsedSeconds = (System.nanoTime() - started) / 1e9;
+    running = false;
+    workers.shutdown();
+    workers.awaitTermination(10, TimeUnit.SECONDS);
+
+    report(total, elapsedSeconds);
+  }
+
+  private void work() {
+    HttpRequest request = HttpRequest.newBuilder(uri)
+        .header("Content-Type", "application/json")
+        .timeout(Duration.ofSeconds(30))
+        .POST(BodyPublishers.ofByteArray(payload))
+        .build();
+
+    while (running) {
+      long started = System.nanoTime();
+      try {
+        int status = client.send(request, BodyHandlers.discarding()).statusCode();
+        if (measuring) {
+          record(started);
+          statuses.computeIfAbsent(status, code -> new LongAdder()).increment();
+          if (status / 100 == 2) {
+            succeeded.increment();
+          }
+        }
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        return;
+      } catch (Exception e) {
+        if (measuring) {
+          record(started);
+          failures.increment();
+        }
+      }
+    }
+  }
+
+  /* timed out requests are recorded too, capped at the highest trackable latency */
+  private void record(long started) {
+    recorder.recordValue(Math.min(System.nanoTime() - started, MAX_LATENCY_NANOS));
+  }
+
+  private void report(Histogram total, double elapsedSeconds) {
+    long ok = succeeded.sum();
+    System.out.println("---");
+    System.out.printf("requests     %d in %.1fs, %d 2xx%n", total.getTotalCount(), elapsedSeconds,
+        ok);
+    System.out.printf("throughput   %.1f 2xx/s%n", elapsedSeconds > 0 ? ok / elapsedSeconds : 0);
+    System.out.printf("latency p50  %.2f ms%n", millis(total.getValueAtPercentile(50)));
+    System.out.printf("latency p99  %.2f ms%n", millis(total.getValueAtPercentile(99)));
+    System.out.printf("latency p999 %.2f ms%n", millis(total.getValueAtPercentile(99.9)));
+    System.out.printf("latency max  %.2f ms%n", millis(total.getMaxValue()));
+    statuses.forEach((status, count) -> System.out.printf("status %d   %d%n", status, count.sum()));
+    System.out.printf("io errors    %d%n", failures.sum());
+  }
+
+  private static double millis(long nanos) {
+    return nanos / 1e6;
+  }
+
+}
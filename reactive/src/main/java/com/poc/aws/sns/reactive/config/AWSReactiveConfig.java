@@ -0,0 +1,117 @@
+package com.poc.aws.sns.reactive.config;
+
+import com.poc.aws.sns.api.config.AWSAppConfig;
+import com.poc.aws.sns.api.exceptions.MessageError;
+import java.net.URI;
+import java.time.Duration;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.MessageSource;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import software.amazon.awssdk.auth.credentials.DefaultCredentialsProvider;
+import software.amazon.awssdk.http.async.SdkAsyncHttpClient;
+import software.amazon.awssdk.http.nio.netty.NettyNioAsyncHttpClient;
+import software.amazon.awssdk.http.nio.netty.SdkEventLoopGroup;
+import software.amazon.awssdk.regions.Region;
+import software.amazon.awssdk.services.sns.SnsAsyncClient;
+import software.amazon.awssdk.services.sns.SnsAsyncClientBuilder;
+
+@Configuration
+public class AWSReactiveConfig {
+
+  @Value("${aws.env}")
+  public String env;
+
+  @Value("${aws.sns.region}")
+  public String snsRegion;
+
+  @Value("${aws.sns.arn}")
+  public String snsArn;
+
+  @Value("${aws.sns.notification.topic-default}")
+  public String topicDefault;
+
+  @Value("${aws.sns.notification.protocol}")
+  public String protocol;
+
+  @Value("${aws.sns.notification.endpoint}")
+  public String snsNotificationEndpoint;
+
+  @Value("${aws.sns.client.max-concurrency:500}")
+  public int maxConcurrency;
+
+  @Value("${aws.sns.client.event-loop-threads:0}")
+  public int eventLoopThreads;
+
+  @Value("${aws.sns.client.connection-timeout-ms:2000}")
+  public long connectionTimeoutMillis;
+
+  @Value("${aws.sns.client.read-timeout-ms:10000}")
+  public long readTimeoutMillis;
+
+  @Value("${aws.sns.publish.batch.concurrency:8}")
+  public int publishBatchConcurrency;
+
+  @Bean
+  public String snsArn() {
+    return this.snsArn;
+  }
+
+  @Bean
+  public String protocol() {
+    return this.protocol;
+  }
+
+  @Bean
+  public String topicDefault() {
+    return this.topicDefault;
+  }
+
+  @Bean
+  public String snsNotificationEndpoint() {
+    return this.snsNotificationEndpoint;
+  }
+
+  @Bean
+  public Integer publishBatchConcurrency() {
+    return this.publishBatchConcurrency;
+  }
+
+  @Bean
+  public MessageError messageError(MessageSource messageSource) {
+    return new MessageError(messageSource);
+  }
+
+  /*
+    A single Netty event loop group serves every in flight SNS call, 0 threads means the Netty
+    default of two per core.
+   */
+  @Bean(destroyMethod = "close")
+  public SdkAsyncHttpClient snsHttpClient() {
+    NettyNioAsyncHttpClient.Builder builder = NettyNioAsyncHttpClient.builder()
+        .maxConcurrency(maxConcurrency)
+        .connectionTimeout(Duration.ofMillis(connectionTimeoutMillis))
+        .readTimeout(Duration.ofMillis(readTimeoutMillis));
+
+    if (eventLoopThreads > 0) {
+      builder.eventLoopGroupBuilder(SdkEventLoopGroup.builder().numberOfThreads(eventLoopThreads));
+    }
+
+    return builder.build();
+  }
+
+  @Bean(destroyMethod = "close")
+  public SnsAsyncClient snsAsyncClient(SdkAsyncHttpClient snsHttpClient) {
+    SnsAsyncClientBuilder builder = SnsAsyncClient.builder()
+        .httpClient(snsHttpClient)
+        .credentialsProvider(DefaultCredentialsProvider.create())
+        .region(Region.of(snsRegion));
+
+    if (env.equalsIgnoreCase(AWSAppConfig.LOCAL_ENV)) {
+      builder.endpointOverride(URI.create(AWSAppConfig.LOCALSTASK_ENDPOINT));
+    }
+
+    return builder.build();
+  }
+
+}
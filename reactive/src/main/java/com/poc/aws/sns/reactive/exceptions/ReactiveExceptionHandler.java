@@ -0,0 +1,64 @@
+package com.poc.aws.sns.reactive.exceptions;
+
+import static com.google.common.collect.Lists.newArrayList;
+
+import com.poc.aws.sns.api.exceptions.MessageError;
+import com.poc.aws.sns.api.exceptions.MessageError.ApiError;
+import com.poc.aws.sns.api.exceptions.NotFoundException;
+import com.poc.aws.sns.api.exceptions.ServiceUnavailableException;
+import com.poc.aws.sns.api.exceptions.UnprocessableEntityException;
+import com.poc.aws.sns.api.interfaces.Messages;
+import java.util.List;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+import org.springframework.web.server.ServerWebInputException;
+
+@Slf4j
+@RestControllerAdvice
+public class ReactiveExceptionHandler {
+
+  private final MessageError messageError;
+
+  public ReactiveExceptionHandler(MessageError messageError) {
+    this.messageError = messageError;
+  }
+
+  @ExceptionHandler(value = UnprocessableEntityException.class)
+  protected ResponseEntity<List<ApiError>> handleUnprocessableEntityException(
+    UnprocessableEntityException ex) {
+    log.error(ex.getMessage(), ex);
+    return ResponseEntity.status(HttpStatus.UNPROCESSABLE_ENTITY).body(ex.getErrors());
+  }
+
+  @ExceptionHandler(value = NotFoundException.class)
+  protected ResponseEntity<List<ApiError>> handleNotFound(NotFoundException ex) {
+    log.error(ex.getMessage(), ex);
+    return ResponseEntity.status(HttpStatus.NOT_FOUND).body(newArrayList(ex.getError()));
+  }
+
+  @ExceptionHandler(value = ServiceUnavailableException.class)
+  protected ResponseEntity<List<ApiError>> handleServiceUnavailable(
+    ServiceUnavailableException ex) {
+    /* a rejection without a stack, see RestResponseEntityExceptionHandler */
+    log.warn(ex.getMessage());
+    return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(newArrayList(ex.getError()));
+  }
+
+  @ExceptionHandler(value = ServerWebInputException.class)
+  protected ResponseEntity<List<ApiError>> handleServerWebInput(ServerWebInputException ex) {
+    ApiError error = messageError.create(Messages.JSON_VALIDATION, ex.getReason());
+    log.error(ex.getMessage(), ex);
+    return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(newArrayList(error));
+  }
+
+  @ExceptionHandler(value = Exception.class)
+  public ResponseEntity<List<ApiError>> handleException(Exception ex) {
+    ApiError error = messageError.create(Messages.CONTACT_SYSTEM_ADMIN);
+    log.error(ex.getMessage(), ex);
+    return ResponseEntity.status(HttpStatus.UNPROCESSABLE_ENTITY).body(newArrayList(error));
+  }
+
+}
@@ -0,0 +1,80 @@
+package com.poc.aws.sns.reactive.interfaces.controller;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.poc.aws.sns.reactive.interfaces.json.response.SubscriptionResponse;
+import com.poc.aws.sns.reactive.service.ReactiveSNSService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.ResponseStatus;
+import org.springframework.web.bind.annotation.RestController;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/*
+  SNS HTTP deliveries are told apart by the x-amz-sns-message-type header, the same way the
+  spring-cloud-aws mappings of the servlet application do.
+ */
+@RestController
+@RequestMapping("/topic-subscriber")
+@Slf4j
+@RequiredArgsConstructor
+public class SubscriptionController {
+
+  private static final String MESSAGE_TYPE = "x-amz-sns-message-type";
+
+  private final ReactiveSNSService snsService;
+  private final ObjectMapper objectMapper;
+
+  @PostMapping("/subscribes/{topic}")
+  @ResponseStatus(HttpStatus.OK)
+  public Mono<ResponseEntity<Void>> subscribe(@PathVariable String topic) {
+    return snsService.subscribe(topic)
+        .map(requestId -> ResponseEntity
+            .ok()
+            .header("request-id", requestId)
+            .build());
+  }
+
+  @GetMapping(value = "/subscribes/{topic}",
+      produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE})
+  @ResponseStatus(HttpStatus.OK)
+  public Flux<SubscriptionResponse> getSubscribes(@PathVariable String topic) {
+    return snsService.getSubscribes(topic);
+  }
+
+  @PostMapping(headers = MESSAGE_TYPE + "=Notification")
+  public Mono<Void> message(@RequestBody String payload) {
+    return read(payload)
+        .doOnNext(notification -> log.info("Received message: {}, having subject: {}",
+            notification.path("Message").asText(), notification.path("Subject").asText(null)))
+        .then();
+  }
+
+  @PostMapping(headers = MESSAGE_TYPE + "=SubscriptionConfirmation")
+  public Mono<Void> confirmSubscription(@RequestBody String payload) {
+    return read(payload)
+        .flatMap(confirmation -> snsService.confirmSubscription(
+            confirmation.path("TopicArn").asText(), confirmation.path("Token").asText()));
+  }
+
+  @PostMapping(headers = MESSAGE_TYPE + "=UnsubscribeConfirmation")
+  public Mono<Void> confirmSubscriptionMessage(@RequestBody String payload) {
+    return read(payload)
+        .doOnNext(confirmation -> log.info("Unsubscribed from Topic."))
+        .then();
+  }
+
+  private Mono<JsonNode> read(String payload) {
+    return Mono.fromCallable(() -> objectMapper.readTree(payload));
+  }
+
+}
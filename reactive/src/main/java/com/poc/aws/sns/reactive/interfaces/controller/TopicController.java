@@ -0,0 +1,63 @@
+package com.poc.aws.sns.reactive.interfaces.controller;
+
+import com.poc.aws.sns.api.interfaces.json.Notification;
+import com.poc.aws.sns.api.interfaces.json.request.TopicRequest;
+import com.poc.aws.sns.api.interfaces.json.response.CreateTopicResponse;
+import com.poc.aws.sns.api.interfaces.json.response.GetTopicResponse;
+import com.poc.aws.sns.api.interfaces.json.response.PublishBatchResponse;
+import com.poc.aws.sns.reactive.service.ReactiveSNSService;
+import java.util.List;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.ResponseStatus;
+import org.springframework.web.bind.annotation.RestController;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+@RestController
+@RequestMapping("/topics")
+@RequiredArgsConstructor
+public class TopicController {
+
+  private final ReactiveSNSService snsService;
+
+  @PostMapping
+  @ResponseStatus(HttpStatus.OK)
+  public Mono<ResponseEntity<CreateTopicResponse>> createTopic(
+      @RequestBody TopicRequest topicRequest) {
+    return snsService.createTopic(topicRequest)
+        .map(createTopicResponse -> ResponseEntity
+            .status(createTopicResponse.getStatus())
+            .body(createTopicResponse));
+  }
+
+  @GetMapping
+  @ResponseStatus(HttpStatus.OK)
+  public Flux<GetTopicResponse> getTopics() {
+    return snsService.getTopics();
+  }
+
+  @PostMapping("/{topic-subscriber}/message")
+  @ResponseStatus(HttpStatus.ACCEPTED)
+  public Mono<ResponseEntity<Void>> publishNotification(@RequestBody Notification notification,
+      @PathVariable("topic-subscriber") String topic) {
+    return snsService.publish(notification, topic)
+        .map(messageId -> ResponseEntity.accepted().build());
+  }
+
+  @PostMapping("/{topic-subscriber}/messages")
+  @ResponseStatus(HttpStatus.OK)
+  public Mono<ResponseEntity<PublishBatchResponse>> publishNotifications(
+      @RequestBody List<Notification> notifications,
+      @PathVariable("topic-subscriber") String topic) {
+    return snsService.publishBatch(notifications, topic)
+        .map(ResponseEntity::ok);
+  }
+
+}
@@ -0,0 +1,23 @@
+package com.poc.aws.sns.reactive.interfaces.json.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/*
+  Same fields the servlet application serializes from the SDK v1 Subscription.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class SubscriptionResponse {
+
+  private String subscriptionArn;
+  private String owner;
+  private String protocol;
+  private String endpoint;
+  private String topicArn;
+
+}
@@ -0,0 +1,28 @@
+package com.poc.aws.sns.reactive.service;
+
+import com.poc.aws.sns.api.interfaces.json.Notification;
+import com.poc.aws.sns.api.interfaces.json.request.TopicRequest;
+import com.poc.aws.sns.api.interfaces.json.response.CreateTopicResponse;
+import com.poc.aws.sns.api.interfaces.json.response.GetTopicResponse;
+import com.poc.aws.sns.api.interfaces.json.response.PublishBatchResponse;
+import com.poc.aws.sns.reactive.interfaces.json.response.SubscriptionResponse;
+import java.util.List;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+public interface ReactiveSNSService {
+
+  Mono<String> subscribe(String topic);
+
+  Mono<Void> confirmSubscription(String topicArn, String token);
+
+  Flux<SubscriptionResponse> getSubscribes(String topic);
+
+  Mono<CreateTopicResponse> createTopic(TopicRequest topicRequest);
+
+  Flux<GetTopicResponse> getTopics();
+
+  Mono<String> publish(Notification notification, String topic);
+
+  Mono<PublishBatchResponse> publishBatch(List<Notification> notifications, String topic);
+}
@@ -0,0 +1,249 @@
+package com.poc.aws.sns.reactive.service.impl;
+
+import com.google.common.base.Strings;
+import com.google.common.base.Utf8;
+import com.poc.aws.sns.api.exceptions.MessageError;
+import com.poc.aws.sns.api.exceptions.MessageError.ApiError;
+import com.poc.aws.sns.api.exceptions.UnprocessableEntityException;
+import com.poc.aws.sns.api.interfaces.Messages;
+import com.poc.aws.sns.api.interfaces.json.MessageAttribute;
+import com.poc.aws.sns.api.interfaces.json.Notification;
+import com.poc.aws.sns.api.interfaces.json.request.TopicRequest;
+import com.poc.aws.sns.api.interfaces.json.response.CreateTopicResponse;
+import com.poc.aws.sns.api.interfaces.json.response.GetTopicResponse;
+import com.poc.aws.sns.api.interfaces.json.response.PublishBatchEntryResponse;
+import com.poc.aws.sns.api.interfaces.json.response.PublishBatchResponse;
+import com.poc.aws.sns.api.service.batch.PublishBatches;
+import com.poc.aws.sns.api.service.fifo.MessageGroupLanes;
+import com.poc.aws.sns.reactive.interfaces.json.response.SubscriptionResponse;
+import com.poc.aws.sns.reactive.service.ReactiveSNSService;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import software.amazon.awssdk.core.SdkBytes;
+import software.amazon.awssdk.services.sns.SnsAsyncClient;
+import software.amazon.awssdk.services.sns.model.MessageAttributeValue;
+import software.amazon.awssdk.services.sns.model.PublishBatchRequestEntry;
+import software.amazon.awssdk.services.sns.model.PublishResponse;
+
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class AmazonSNSReactiveServiceImpl implements ReactiveSNSService {
+
+  private final SnsAsyncClient snsAsyncClient;
+  private final MessageError messageError;
+
+  private final String snsArn;
+  private final String snsNotificationEndpoint;
+  private final String protocol;
+  private final String topicDefault;
+  private final Integer publishBatchConcurrency;
+
+  /*
+    Subscribes the default topic once the server is up without holding the startup.
+   */
+  @EventListener(ApplicationReadyEvent.class)
+  public void subscribeDefaultTopic() {
+    subscribe(topicDefault).subscribe(
+        requestId -> log.info("Subscribed default topic {}. RequestId: {}", topicDefault, requestId),
+        e -> log.error("Not possible to subscribe default topic {}", topicDefault, e));
+  }
+
+  @Override
+  public Mono<String> subscribe(String topic) {
+    return Mono.fromFuture(() -> snsAsyncClient.subscribe(request -> request
+            .protocol(protocol)
+            .endpoint(snsNotificationEndpoint)
+            .returnSubscriptionArn(true)
+            .topicArn(snsArn + ":" + topic)))
+        .map(result -> {
+          String requestId = result.responseMetadata().requestId();
+          log.info("Subscription ARN is {}. Status is {}. RequestId: {}",
+              result.subscriptionArn(), result.sdkHttpResponse().statusCode(), requestId);
+          return requestId;
+        })
+        .onErrorMap(e -> new UnprocessableEntityException(
+            messageError.create(Messages.SNS_INTEGRATION_HAS_FAILED), e.getMessage()));
+  }
+
+  @Override
+  public Mono<Void> confirmSubscription(String topicArn, String token) {
+    return Mono.fromFuture(() -> snsAsyncClient.confirmSubscription(request -> request
+            .topicArn(topicArn)
+            .token(token)))
+        .doOnNext(result -> log.info("Confirmation SNS Topic subscription."))
+        .then();
+  }
+
+  @Override
+  public Flux<SubscriptionResponse> getSubscribes(String topic) {
+    return Flux.from(snsAsyncClient
+            .listSubscriptionsByTopicPaginator(request -> request.topicArn(snsArn + ":" + topic))
+            .subscriptions())
+        .map(subscription -> SubscriptionResponse.builder()
+            .subscriptionArn(subscription.subscriptionArn())
+            .owner(subscription.owner())
+            .protocol(subscription.protocol())
+            .endpoint(subscription.endpoint())
+            .topicArn(subscription.topicArn())
+            .build())
+        .onErrorResume(e -> {
+          log.error("Error to get subscribes", e);
+          return Flux.empty();
+        });
+  }
+
+  @Override
+  public Mono<CreateTopicResponse> createTopic(TopicRequest topicRequest) {
+    Map<String, String> attributes = new LinkedHashMap<>();
+    if (MessageGroupLanes.isFifo(topicRequest.getName())) {
+      attributes.put("FifoTopic", "true");
+      if (topicRequest.isContentBasedDeduplication()) {
+        attributes.put("ContentBasedDeduplication", "true");
+      }
+    }
+    return Mono.fromFuture(() -> snsAsyncClient.createTopic(request -> request
+            .name(topicRequest.getName())
+            .attributes(attributes)))
+        .map(result -> CreateTopicResponse.builder()
+            .arn(result.topicArn())
+            .status(result.sdkHttpResponse().statusCode())
+            .build());
+  }
+
+  @Override
+  public Flux<GetTopicResponse> getTopics() {
+    return Flux.from(snsAsyncClient.listTopicsPaginator().topics())
+        .map(topic -> GetTopicResponse.builder()
+            .arn(topic.topicArn())
+            .build());
+  }
+
+  @Override
+  public Mono<String> publish(Notification notification, String topic) {
+    log.info("Sending message to sns topic: {}", topic);
+    return Mono.fromFuture(() -> snsAsyncClient.publish(request -> request
+            .topicArn(snsArn + ":" + topic)
+            .message(notification.getBody())
+            .subject(notification.getSubject())
+            .messageAttributes(attributes(notification))
+            .messageGroupId(notification.getMessageGroupId())
+            .messageDeduplicationId(notification.getMessageDeduplicationId())))
+        .map(PublishResponse::messageId)
+        .doOnNext(messageId -> log.info("MessageId: {}", messageId))
+        .onErrorMap(e -> {
+          log.error("Not possible to publish notification.", e);
+          return new UnprocessableEntityException(
+              messageError.create(Messages.SNS_INTEGRATION_HAS_FAILED, e.getMessage()));
+        });
+  }
+
+  @Override
+  public Mono<PublishBatchResponse> publishBatch(List<Notification> notifications, String topic) {
+    String topicArn = snsArn + ":" + topic;
+    List<PublishBatchRequestEntry> entries = new ArrayList<>(notifications.size());
+    for (int i = 0; i < notifications.size(); i++) {
+      Notification notification = notifications.get(i);
+      entries.add(PublishBatchRequestEntry.builder()
+          .id(String.valueOf(i))
+          .message(notification.getBody())
+          .subject(notification.getSubject())
+          .messageAttributes(attributes(notification))
+          .messageGroupId(notification.getMessageGroupId())
+          .messageDeduplicationId(notification.getMessageDeduplicationId())
+          .build());
+    }
+
+    List<List<PublishBatchRequestEntry>> batches = PublishBatches
+        .partitionByBytes(entries, AmazonSNSReactiveServiceImpl::payloadBytes);
+    log.info("Sending {} messages to sns topic: {} in {} batches", notifications.size(), topic,
+        batches.size());
+
+    ApiError integrationError = messageError.create(Messages.SNS_INTEGRATION_HAS_FAILED);
+    /* batches to a FIFO topic are sent one after the other to keep the group order */
+    int concurrency = MessageGroupLanes.isFifo(topic) ? 1 : publishBatchConcurrency;
+    return Flux.fromIterable(batches)
+        .flatMap(batch -> Mono.fromFuture(() -> snsAsyncClient.publishBatch(request -> request
+                .topicArn(topicArn)
+                .publishBatchRequestEntries(batch)))
+            .map(this::toResponse)
+            .onErrorResume(e -> Mono.just(failedBatch(batch, integrationError, e))),
+            concurrency)
+        .reduce(new PublishBatchResponse(), (response, batch) -> {
+          response.getSuccessful().addAll(batch.getSuccessful());
+          response.getFailed().addAll(batch.getFailed());
+          return response;
+        });
+  }
+
+  private PublishBatchResponse toResponse(
+      software.amazon.awssdk.services.sns.model.PublishBatchResponse result) {
+    PublishBatchResponse response = new PublishBatchResponse();
+    result.successful().forEach(entry -> response.getSuccessful().add(
+        PublishBatchEntryResponse.builder()
+            .id(entry.id())
+            .messageId(entry.messageId())
+            .build()));
+    result.failed().forEach(entry -> response.getFailed().add(
+        PublishBatchEntryResponse.builder()
+            .id(entry.id())
+            .code(entry.code())
+            .description(entry.message())
+            .build()));
+    return response;
+  }
+
+  private PublishBatchResponse failedBatch(List<PublishBatchRequestEntry> entries, ApiError error,
+      Throwable e) {
+    log.error("Not possible to publish notification batch.", e);
+    PublishBatchResponse response = new PublishBatchResponse();
+    entries.forEach(entry -> response.getFailed().add(
+        PublishBatchEntryResponse.builder()
+            .id(entry.id())
+            .code(error.getCode())
+            .description(error.getDescription())
+            .build()));
+    return response;
+  }
+
+  private static Map<String, MessageAttributeValue> attributes(Notification notification) {
+    Map<String, MessageAttributeValue> values = new LinkedHashMap<>();
+    if (notification.getAttributes() != null) {
+      for (Map.Entry<String, MessageAttribute> attribute : notification.getAttributes()
+          .entrySet()) {
+        String type = attribute.getValue().getType();
+        String value = attribute.getValue().getValue();
+        values.put(attribute.getKey(), type.startsWith("Binary")
+            ? MessageAttributeValue.builder().dataType(type)
+                .binaryValue(SdkBytes.fromByteArray(Base64.getDecoder().decode(value))).build()
+            : MessageAttributeValue.builder().dataType(type).stringValue(value).build());
+      }
+    }
+    return values;
+  }
+
+  /* SNS counts attribute names, types and values in the message size */
+  private static int payloadBytes(PublishBatchRequestEntry entry) {
+    int bytes = Utf8.encodedLength(Strings.nullToEmpty(entry.message()));
+    for (Map.Entry<String, MessageAttributeValue> attribute : entry.messageAttributes()
+        .entrySet()) {
+      MessageAttributeValue value = attribute.getValue();
+      bytes += Utf8.encodedLength(attribute.getKey()) + Utf8.encodedLength(value.dataType())
+          + (value.binaryValue() != null
+              ? value.binaryValue().asByteArray().length
+              : Utf8.encodedLength(Strings.nullToEmpty(value.stringValue())));
+    }
+    return bytes;
+  }
+
+}
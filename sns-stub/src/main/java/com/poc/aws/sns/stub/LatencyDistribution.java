@@ -0,0 +1,74 @@
+package com.poc.aws.sns.stub;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/*
+  Simulated SNS service time, in milliseconds.
+ */
+abstract class LatencyDistribution {
+
+  abstract long nextMillis();
+
+  static LatencyDistribution parse(String spec) {
+    String[] parts = spec.split(":", 2);
+    String value = parts.length > 1 ? parts[1] : "";
+    switch (parts[0]) {
+      case "fixed":
+        return fixed(Long.parseLong(value));
+      case "uniform":
+        String[] range = value.split("-");
+        return uniform(Long.parseLong(range[0]), Long.parseLong(range[1]));
+      case "lognormal":
+        String[] shape = value.split(",");
+        return logNormal(Double.parseDouble(shape[0]), Double.parseDouble(shape[1]));
+      default:
+        throw new IllegalArgumentException("Unsupported latency: " + spec);
+    }
+  }
+
+  private static LatencyDistribution fixed(long millis) {
+    return new LatencyDistribution() {
+      @Override
+      long nextMillis() {
+        return millis;
+      }
+
+      @Override
+      public String toString() {
+        return "fixed:" + millis;
+      }
+    };
+  }
+
+  private static LatencyDistribution uniform(long min, long max) {
+    return new LatencyDistribution() {
+      @Override
+      long nextMillis() {
+        return ThreadLocalRandom.current().nextLong(min, max + 1);
+      }
+
+      @Override
+      public String toString() {
+        return "uniform:" + min + "-" + max;
+      }
+    };
+  }
+
+  /*
+    Long tailed service time around the median, the usual shape of remote call latency.
+   */
+  private static LatencyDistribution logNormal(double median, double sigma) {
+    return new LatencyDistribution() {
+      @Override
+      long nextMillis() {
+        return Math.round(median * Math.exp(sigma * ThreadLocalRandom.current().nextGaussian()));
+      }
+
+      @Override
+      public String toString() {
+        return "lognormal:" + median + "," + sigma;
+      }
+    };
+  }
+
+}
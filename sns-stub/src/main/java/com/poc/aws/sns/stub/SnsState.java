@@ -0,0 +1,92 @@
+package com.poc.aws.sns.stub;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+
+/*
+  Topics and subscriptions of the stub. Pages are addressed by the offset used as NextToken.
+ */
+class SnsState {
+
+  private final StubConfig config;
+  private final Map<String, List<Subscription>> topics = new ConcurrentSkipListMap<>();
+  private final Map<String, AtomicLong> sequenceNumbers = new ConcurrentHashMap<>();
+
+  SnsState(StubConfig config) {
+    this.config = config;
+    config.topics.forEach(this::createTopic);
+  }
+
+  String createTopic(String name) {
+    String topicArn = config.topicArn(name);
+    topics.computeIfAbsent(topicArn, arn -> new CopyOnWriteArrayList<>());
+    return topicArn;
+  }
+
+  boolean hasTopic(String topicArn) {
+    return topicArn != null && topics.containsKey(topicArn);
+  }
+
+  /* FIFO topics number their messages in the order they were accepted */
+  long nextSequenceNumber(String topicArn) {
+    return sequenceNumbers.computeIfAbsent(topicArn, arn -> new AtomicLong()).incrementAndGet();
+  }
+
+  String subscribe(String topicArn, String protocol, String endpoint) {
+    List<Subscription> subscriptions = topics.get(topicArn);
+    for (Subscription subscription : subscriptions) {
+      if (subscription.protocol.equals(protocol) && subscription.endpoint.equals(endpoint)) {
+        return subscription.arn;
+      }
+    }
+    Subscription subscription = new Subscription(topicArn + ":" + UUID.randomUUID(), protocol,
+        endpoint);
+    subscriptions.add(subscription);
+    return subscription.arn;
+  }
+
+  Page<String> topics(String nextToken) {
+    return page(new ArrayList<>(topics.keySet()), nextToken);
+  }
+
+  Page<Subscription> subscriptions(String topicArn, String nextToken) {
+    return page(topics.get(topicArn), nextToken);
+  }
+
+  private <T> Page<T> page(List<T> items, String nextToken) {
+    int from = nextToken == null ? 0 : Integer.parseInt(nextToken);
+    int to = Math.min(items.size(), from + config.pageSize);
+    return new Page<>(items.subList(from, to), to < items.size() ? String.valueOf(to) : null);
+  }
+
+  static class Page<T> {
+
+    final List<T> items;
+    final String nextToken;
+
+    Page(List<T> items, String nextToken) {
+      this.items = items;
+      this.nextToken = nextToken;
+    }
+  }
+
+  static class Subscription {
+
+    final String arn;
+    final String protocol;
+    final String endpoint;
+
+    Subscription(String arn, String protocol, String endpoint) {
+      this.arn = arn;
+      this.protocol = protocol;
+      this.endpoint = endpoint;
+    }
+  }
+
+}
@@ -0,0 +1,341 @@
+package com.poc.aws.sns.stub;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import com.sun.net.httpserver.HttpsConfigurator;
+import com.sun.net.httpserver.HttpsServer;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.security.GeneralSecurityException;
+import java.security.KeyStore;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.net.ssl.KeyManagerFactory;
+import javax.net.ssl.SSLContext;
+
+/*
+  In process stand-in for the SNS query API: Publish, PublishBatch, Subscribe, CreateTopic,
+  ListTopics and ListSubscriptionsByTopic. Responses are delayed by the configured latency
+  distribution on a scheduler, so slow answers do not hold server threads, and a share of the
+  calls can be answered with throttling or 5xx errors.
+
+    java -jar sns-stub/target/sns-stub.jar --latency=lognormal:20,0.5 --throttle-rate=0.01
+
+  With --tls-keystore it serves HTTPS, e.g. to exercise DNS, TCP and TLS setup of the clients.
+  Topics whose name ends with .fifo need the FifoTopic attribute and a MessageGroupId on every
+  publish, as in SNS.
+ */
+public class SnsStubServer {
+
+  private static final Logger LOG = Logger.getLogger(SnsStubServer.class.getName());
+  private static final String XMLNS = "http://sns.amazonaws.com/doc/2010-03-31/";
+  private static final String FIFO_SUFFIX = ".fifo";
+
+  private final StubConfig config;
+  private final SnsState state;
+  private final HttpServer server;
+  private final ScheduledExecutorService responder;
+
+  public SnsStubServer(StubConfig config) throws IOException {
+    this.config = config;
+    this.state = new SnsState(config);
+    this.server = config.tlsKeystore == null
+        ? HttpServer.create(new InetSocketAddress(config.port), 1024)
+        : httpsServer(config);
+    this.responder = Executors.newScheduledThreadPool(
+        Math.max(2, Runtime.getRuntime().availableProcessors()));
+    this.server.createContext("/", this::handle);
+    this.server.setExecutor(Executors.newFixedThreadPool(
+        Math.max(4, Runtime.getRuntime().availableProcessors() * 2)));
+  }
+
+  public static void main(String[] args) throws IOException {
+    StubConfig config = StubConfig.parse(args);
+    new SnsStubServer(config).start();
+    LOG.info(() -> "SNS stub listening with " + config);
+  }
+
+  public void start() {
+    server.start();
+  }
+
+  private static HttpsServer httpsServer(StubConfig config) throws IOException {
+    HttpsServer server = HttpsServer.create(new InetSocketAddress(config.port), 1024);
+    try (InputStream in = Files.newInputStream(Paths.get(config.tlsKeystore))) {
+      char[] password = config.tlsPassword.toCharArray();
+      KeyStore keyStore = KeyStore.getInstance("PKCS12");
+      keyStore.load(in, password);
+      KeyManagerFactory keyManagers = KeyManagerFactory.getInstance(
+          KeyManagerFactory.getDefaultAlgorithm());
+      keyManagers.init(keyStore, password);
+      SSLContext context = SSLContext.getInstance("TLS");
+      context.init(keyManagers.getKeyManagers(), null, null);
+      server.setHttpsConfigurator(new HttpsConfigurator(context));
+    } catch (GeneralSecurityException e) {
+      throw new IOException("Not possible to load " + config.tlsKeystore, e);
+    }
+    return server;
+  }
+
+  public void stop() {
+    server.stop(0);
+    responder.shutdownNow();
+  }
+
+  private void handle(HttpExchange exchange) {
+    try {
+      Map<String, String> params = readParams(exchange);
+      Response response = dispatch(params);
+      long delay = Math.max(0, config.latency.nextMillis());
+      if (delay == 0) {
+        send(exchange, response);
+      } else {
+        responder.schedule(() -> send(exchange, response), delay, TimeUnit.MILLISECONDS);
+      }
+    } catch (Exception e) {
+      LOG.log(Level.WARNING, "Not possible to handle request", e);
+      send(exchange, error(500, "Receiver", "InternalError", e.getMessage()));
+    }
+  }
+
+  private Response dispatch(Map<String, String> params) {
+    double roll = ThreadLocalRandom.current().nextDouble();
+    if (roll < config.throttleRate) {
+      return error(400, "Sender", "Throttling", "Rate exceeded");
+    }
+    if (roll < config.throttleRate + config.errorRate) {
+      return error(500, "Receiver", "InternalError", "Injected failure");
+    }
+
+    String action = params.getOrDefault("Action", "");
+    switch (action) {
+      case "Publish":
+        return publish(params);
+      case "PublishBatch":
+        return publishBatch(params);
+      case "Subscribe":
+        return subscribe(params);
+      case "CreateTopic":
+        return createTopic(params);
+      case "ListTopics":
+        return listTopics(params);
+      case "ListSubscriptionsByTopic":
+        return listSubscriptionsByTopic(params);
+      default:
+        return error(400, "Sender", "InvalidAction", "Unsupported action " + action);
+    }
+  }
+
+  private Response publish(Map<String, String> params) {
+    String topicArn = params.get("TopicArn");
+    if (!state.hasTopic(topicArn)) {
+      return topicNotFound();
+    }
+    String invalidGroup = invalidMessageGroup(topicArn, params.get("MessageGroupId"));
+    if (invalidGroup != null) {
+      return error(400, "Sender", "InvalidParameter", invalidGroup);
+    }
+    return ok("Publish", "<MessageId>" + UUID.randomUUID() + "</MessageId>"
+        + sequenceNumber(topicArn));
+  }
+
+  private Response publishBatch(Map<String, String> params) {
+    String topicArn = params.get("TopicArn");
+    if (!state.hasTopic(topicArn)) {
+      return topicNotFound();
+    }
+
+    StringBuilder successful = new StringBuilder("<Successful>");
+    StringBuilder failed = new StringBuilder("<Failed>");
+    for (int i = 1; params.containsKey("PublishBatchRequestEntries.member." + i + ".Id"); i++) {
+      String member = "PublishBatchRequestEntries.member." + i + ".";
+      String id = escape(params.get(member + "Id"));
+      String invalidGroup = invalidMessageGroup(topicArn, params.get(member + "MessageGroupId"));
+      if (invalidGroup != null) {
+        failed.append("<member><Id>").append(id)
+            .append("</Id><Code>InvalidParameter</Code><Message>").append(escape(invalidGroup))
+            .append("</Message><SenderFault>true</SenderFault></member>");
+        continue;
+      }
+      successful.append("<member><Id>")
+          .append(id)
+          .append("</Id><MessageId>")
+          .append(UUID.randomUUID())
+          .append("</MessageId>")
+          .append(sequenceNumber(topicArn))
+          .append("</member>");
+    }
+    successful.append("</Successful>");
+    failed.append("</Failed>");
+    return ok("PublishBatch", successful.append(failed).toString());
+  }
+
+  private static String invalidMessageGroup(String topicArn, String messageGroupId) {
+    boolean hasGroup = messageGroupId != null && !messageGroupId.isEmpty();
+    if (topicArn.endsWith(FIFO_SUFFIX) && !hasGroup) {
+      return "Invalid parameter: The MessageGroupId parameter is required for FIFO topics";
+    }
+    if (!topicArn.endsWith(FIFO_SUFFIX) && hasGroup) {
+      return "Invalid parameter: MessageGroupId is only valid for FIFO topics";
+    }
+    return null;
+  }
+
+  private String sequenceNumber(String topicArn) {
+    return topicArn.endsWith(FIFO_SUFFIX)
+        ? "<SequenceNumber>" + state.nextSequenceNumber(topicArn) + "</SequenceNumber>"
+        : "";
+  }
+
+  private Response subscribe(Map<String, String> params) {
+    String topicArn = params.get("TopicArn");
+    if (!state.hasTopic(topicArn)) {
+      return topicNotFound();
+    }
+    String subscriptionArn = state.subscribe(topicArn, params.get("Protocol"),
+        params.get("Endpoint"));
+    return ok("Subscribe",
+        "<SubscriptionArn>" + escape(subscriptionArn) + "</SubscriptionArn>");
+  }
+
+  private Response createTopic(Map<String, String> params) {
+    String name = params.getOrDefault("Name", "");
+    boolean fifoTopic = false;
+    for (int i = 1; params.containsKey("Attributes.entry." + i + ".key"); i++) {
+      if ("FifoTopic".equals(params.get("Attributes.entry." + i + ".key"))) {
+        fifoTopic = "true".equalsIgnoreCase(params.get("Attributes.entry." + i + ".value"));
+      }
+    }
+    if (name.endsWith(FIFO_SUFFIX) != fifoTopic) {
+      return error(400, "Sender", "InvalidParameter",
+          "Invalid parameter: Fifo Topic names must end with .fifo and must be made with the"
+              + " FifoTopic attribute");
+    }
+    String topicArn = state.createTopic(name);
+    return ok("CreateTopic", "<TopicArn>" + escape(topicArn) + "</TopicArn>");
+  }
+
+  private Response listTopics(Map<String, String> params) {
+    SnsState.Page<String> page = state.topics(params.get("NextToken"));
+    StringBuilder body = new StringBuilder("<Topics>");
+    page.items.forEach(topicArn ->
+        body.append("<member><TopicArn>").append(escape(topicArn)).append("</TopicArn></member>"));
+    body.append("</Topics>");
+    appendNextToken(body, page.nextToken);
+    return ok("ListTopics", body.toString());
+  }
+
+  private Response listSubscriptionsByTopic(Map<String, String> params) {
+    String topicArn = params.get("TopicArn");
+    if (!state.hasTopic(topicArn)) {
+      return topicNotFound();
+    }
+
+    SnsState.Page<SnsState.Subscription> page = state.subscriptions(topicArn,
+        params.get("NextToken"));
+    StringBuilder body = new StringBuilder("<Subscriptions>");
+    page.items.forEach(subscription -> body.append("<member>")
+        .append("<TopicArn>").append(escape(topicArn)).append("</TopicArn>")
+        .append("<Protocol>").append(escape(subscription.protocol)).append("</Protocol>")
+        .append("<SubscriptionArn>").append(escape(subscription.arn)).append("</SubscriptionArn>")
+        .append("<Owner>").append(config.account).append("</Owner>")
+        .append("<Endpoint>").append(escape(subscription.endpoint)).append("</Endpoint>")
+        .append("</member>"));
+    body.append("</Subscriptions>");
+    appendNextToken(body, page.nextToken);
+    return ok("ListSubscriptionsByTopic", body.toString());
+  }
+
+  private static void appendNextToken(StringBuilder body, String nextToken) {
+    if (nextToken != null) {
+      body.append("<NextToken>").append(nextToken).append("</NextToken>");
+    }
+  }
+
+  private static Response ok(String action, String result) {
+    return new Response(200, "<" + action + "Response xmlns=\"" + XMLNS + "\">"
+        + "<" + action + "Result>" + result + "</" + action + "Result>"
+        + "<ResponseMetadata><RequestId>" + UUID.randomUUID() + "</RequestId></ResponseMetadata>"
+        + "</" + action + "Response>");
+  }
+
+  private static Response topicNotFound() {
+    return error(404, "Sender", "NotFound", "Topic does not exist");
+  }
+
+  private static Response error(int status, String type, String code, String message) {
+    return new Response(status, "<ErrorResponse xmlns=\"" + XMLNS + "\"><Error>"
+        + "<Type>" + type + "</Type><Code>" + code + "</Code>"
+        + "<Message>" + escape(message) + "</Message></Error>"
+        + "<RequestId>" + UUID.randomUUID() + "</RequestId></ErrorResponse>");
+  }
+
+  private static void send(HttpExchange exchange, Response response) {
+    byte[] body = response.body.getBytes(StandardCharsets.UTF_8);
+    try (exchange; OutputStream out = exchange.getResponseBody()) {
+      exchange.getResponseHeaders().set("Content-Type", "text/xml");
+      exchange.sendResponseHeaders(response.status, body.length);
+      out.write(body);
+    } catch (IOException e) {
+      LOG.log(Level.FINE, "Client went away", e);
+    }
+  }
+
+  private static Map<String, String> readParams(HttpExchange exchange) throws IOException {
+    String form;
+    try (InputStream in = exchange.getRequestBody()) {
+      form = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+    }
+    if (exchange.getRequestURI().getRawQuery() != null) {
+      form = form.isEmpty()
+          ? exchange.getRequestURI().getRawQuery()
+          : form + "&" + exchange.getRequestURI().getRawQuery();
+    }
+
+    Map<String, String> params = new HashMap<>();
+    for (String pair : form.split("&")) {
+      if (pair.isEmpty()) {
+        continue;
+      }
+      int separator = pair.indexOf('=');
+      String name = separator < 0 ? pair : pair.substring(0, separator);
+      String value = separator < 0 ? "" : pair.substring(separator + 1);
+      params.put(URLDecoder.decode(name, StandardCharsets.UTF_8),
+          URLDecoder.decode(value, StandardCharsets.UTF_8));
+    }
+    return params;
+  }
+
+  private static String escape(String value) {
+    if (value == null) {
+      return "";
+    }
+    return value.replace("&", "&amp;").replace("<", "&lt;").replace(">", "&gt;")
+        .replace("\"", "&quot;");
+  }
+
+  private static class Response {
+
+    private final int status;
+    private final String body;
+
+    private Response(int status, String body) {
+      this.status = status;
+      this.body = body;
+    }
+  }
+
+}
@@ -0,0 +1,74 @@
+package com.poc.aws.sns.stub;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/*
+  Command line options, given as --name=value:
+
+    --port=4575
+    --region=us-east-2
+    --account=000000000000
+    --topics=topic-subscriber        topics created at startup, comma separated
+    --latency=fixed:0                fixed:<ms> | uniform:<min>-<max> | lognormal:<median>,<sigma>
+    --throttle-rate=0                share of calls answered with 400 Throttling
+    --error-rate=0                   share of calls answered with 500 InternalError
+    --page-size=100                  ListTopics and ListSubscriptionsByTopic page size
+    --tls-keystore=                  PKCS12 keystore, serves HTTPS instead of HTTP when set
+    --tls-password=changeit          keystore password
+ */
+final class StubConfig {
+
+  final int port;
+  final String region;
+  final String account;
+  final List<String> topics;
+  final LatencyDistribution latency;
+  final double throttleRate;
+  final double errorRate;
+  final int pageSize;
+  final String tlsKeystore;
+  final String tlsPassword;
+
+  private StubConfig(Map<String, String> options) {
+    this.port = Integer.parseInt(options.getOrDefault("port", "4575"));
+    this.region = options.getOrDefault("region", "us-east-2");
+    this.account = options.getOrDefault("account", "000000000000");
+    this.topics = Arrays.stream(options.getOrDefault("topics", "topic-subscriber").split(","))
+        .map(String::trim)
+        .filter(topic -> !topic.isEmpty())
+        .collect(Collectors.toList());
+    this.latency = LatencyDistribution.parse(options.getOrDefault("latency", "fixed:0"));
+    this.throttleRate = Double.parseDouble(options.getOrDefault("throttle-rate", "0"));
+    this.errorRate = Double.parseDouble(options.getOrDefault("error-rate", "0"));
+    this.pageSize = Integer.parseInt(options.getOrDefault("page-size", "100"));
+    this.tlsKeystore = options.get("tls-keystore");
+    this.tlsPassword = options.getOrDefault("tls-password", "changeit");
+  }
+
+  static StubConfig parse(String[] args) {
+    Map<String, String> options = Arrays.stream(args)
+        .filter(arg -> arg.startsWith("--") && arg.contains("="))
+        .map(arg -> arg.substring(2).split("=", 2))
+        .collect(Collectors.toMap(option -> option[0], option -> option[1], (a, b) -> b));
+    return new StubConfig(options);
+  }
+
+  String topicArn(String topic) {
+    return "arn:aws:sns:" + region + ":" + account + ":" + topic;
+  }
+
+  @Override
+  public String toString() {
+    Map<String, Object> values = Map.of("port", port, "region", region, "account", account,
+        "topics", topics, "latency", latency, "throttleRate", throttleRate,
+        "errorRate", errorRate, "pageSize", pageSize, "tls", tlsKeystore != null);
+    return values.entrySet().stream()
+        .map(entry -> entry.getKey() + "=" + entry.getValue())
+        .sorted()
+        .collect(Collectors.joining(", ", "{", "}"));
+  }
+
+}
@@ -1,13 +1,34 @@
 package com.poc.aws.sns.api.config;
 
+import com.amazonaws.ClientConfiguration;
+import com.amazonaws.SystemDefaultDnsResolver;
 import com.amazonaws.auth.DefaultAWSCredentialsProviderChain;
+import com.amazonaws.client.builder.AwsClientBuilder;
 import com.amazonaws.client.builder.AwsClientBuilder.EndpointConfiguration;
+import com.amazonaws.retry.PredefinedRetryPolicies;
+import com.amazonaws.retry.RetryPolicy;
 import com.amazonaws.services.sns.AmazonSNS;
+import com.amazonaws.services.sns.AmazonSNSAsync;
+import com.amazonaws.services.sns.AmazonSNSAsyncClientBuilder;
 import com.amazonaws.services.sns.AmazonSNSClientBuilder;
+import com.google.common.base.Splitter;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.poc.aws.sns.api.service.ratelimit.DecorrelatedJitterBackoffStrategy;
+import com.poc.aws.sns.api.service.routing.RegionHealth;
+import com.poc.aws.sns.api.service.routing.RegionRoutingAmazonSNS;
+import com.poc.aws.sns.api.service.routing.SnsShard;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadPoolExecutor;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.cloud.aws.messaging.core.NotificationMessagingTemplate;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 
 @Configuration
 public class AWSAppConfig {
@@ -21,6 +42,9 @@ public class AWSAppConfig {
   @Value("${aws.sns.region}")
   public String snsRegion;
 
+  @Value("${aws.sns.endpoint:" + LOCALSTASK_ENDPOINT + "}")
+  public String snsEndpoint;
+
   @Value("${aws.sns.arn}")
   public String snsArn;
 
@@ -33,6 +57,87 @@ public class AWSAppConfig {
   @Value("${aws.sns.notification.endpoint}")
   public String snsNotificationEndpoint;
 
+  @Value("${aws.sns.client.max-connections:50}")
+  public int clientMaxConnections;
+
+  @Value("${aws.sns.client.connection-ttl-ms:-1}")
+  public long clientConnectionTtlMillis;
+
+  @Value("${aws.sns.client.connection-max-idle-ms:60000}")
+  public long clientConnectionMaxIdleMillis;
+
+  @Value("${aws.sns.client.connection-timeout-ms:10000}")
+  public int clientConnectionTimeoutMillis;
+
+  @Value("${aws.sns.client.socket-timeout-ms:50000}")
+  public int clientSocketTimeoutMillis;
+
+  @Value("${aws.sns.client.request-timeout-ms:0}")
+  public int clientRequestTimeoutMillis;
+
+  @Value("${aws.sns.client.client-execution-timeout-ms:0}")
+  public int clientExecutionTimeoutMillis;
+
+  @Value("${aws.sns.client.tcp-keep-alive:false}")
+  public boolean clientTcpKeepAlive;
+
+  @Value("${aws.sns.client.validate-after-inactivity-ms:5000}")
+  public int clientValidateAfterInactivityMillis;
+
+  @Value("${aws.sns.client.retry.max-error-retry:3}")
+  public int clientMaxErrorRetry;
+
+  @Value("${aws.sns.client.retry.base-delay-ms:100}")
+  public long clientRetryBaseDelayMillis;
+
+  @Value("${aws.sns.client.retry.throttled-base-delay-ms:500}")
+  public long clientRetryThrottledBaseDelayMillis;
+
+  @Value("${aws.sns.client.retry.max-backoff-ms:20000}")
+  public long clientRetryMaxBackoffMillis;
+
+  @Value("${aws.sns.client.dns-cache.ttl-ms:30000}")
+  public long clientDnsCacheTtlMillis;
+
+  @Value("${aws.sns.client.dns-cache.max-hosts:16}")
+  public long clientDnsCacheMaxHosts;
+
+  @Value("${aws.sns.async.threads:50}")
+  public int asyncThreads;
+
+  @Value("${aws.sns.publish.batch.concurrency:8}")
+  public int publishBatchConcurrency;
+
+  @Value("${aws.sns.publish.batch.queue-capacity:1000}")
+  public int publishBatchQueueCapacity;
+
+  @Value("${aws.sns.routing.enabled:false}")
+  public boolean routingEnabled;
+
+  @Value("${aws.sns.routing.secondaries:}")
+  public String routingSecondaries;
+
+  @Value("${aws.sns.routing.max-attempts:2}")
+  public int routingMaxAttempts;
+
+  @Value("${aws.sns.routing.topics-refresh-interval-ms:60000}")
+  public long routingTopicsRefreshIntervalMillis;
+
+  @Value("${aws.sns.routing.health.decay:0.1}")
+  public double routingHealthDecay;
+
+  @Value("${aws.sns.routing.health.minimum-calls:20}")
+  public int routingHealthMinimumCalls;
+
+  @Value("${aws.sns.routing.health.latency-threshold-ms:500}")
+  public long routingHealthLatencyThresholdMillis;
+
+  @Value("${aws.sns.routing.health.error-rate-threshold:0.2}")
+  public double routingHealthErrorRateThreshold;
+
+  @Value("${aws.sns.routing.health.cooldown-ms:10000}")
+  public long routingHealthCooldownMillis;
+
   @Bean
   public String snsArn() {
     return this.snsArn;
@@ -53,21 +158,124 @@ public class AWSAppConfig {
     return this.snsNotificationEndpoint;
   }
 
+  /*
+    The SNS client of every region, for the beans that manage connections rather than calls.
+    The client of aws.sns.region is the first shard; with routing enabled every entry of
+    aws.sns.routing.secondaries, region:account or region:account@endpoint in the local env,
+    adds a client of its own.
+   */
+  @Bean
+  public List<SnsShard> snsShards() {
+    List<SnsShard> shards = new ArrayList<>();
+    shards.add(shard(snsRegion, Splitter.on(':').splitToList(snsArn).get(4),
+        configure(AmazonSNSClientBuilder.standard(), snsRegion, snsEndpoint).build()));
+    if (!routingEnabled) {
+      return shards;
+    }
+
+    for (String secondary : Splitter.on(',').trimResults().omitEmptyStrings()
+        .split(routingSecondaries)) {
+      List<String> endpoint = Splitter.on('@').limit(2).splitToList(secondary);
+      List<String> regionAccount = Splitter.on(':').splitToList(endpoint.get(0));
+      if (regionAccount.size() != 2) {
+        throw new IllegalStateException(
+            "aws.sns.routing.secondaries entry is not region:account[@endpoint]: " + secondary);
+      }
+      String region = regionAccount.get(0);
+      shards.add(shard(region, regionAccount.get(1),
+          configure(AmazonSNSClientBuilder.standard(), region,
+              endpoint.size() > 1 ? endpoint.get(1) : snsEndpoint).build()));
+    }
+    return shards;
+  }
+
   @Bean
-  public AmazonSNS amazonSNS() {
+  @Primary
+  public AmazonSNS amazonSNS(List<SnsShard> snsShards, MeterRegistry meterRegistry) {
+    return routingEnabled
+        ? new RegionRoutingAmazonSNS(snsShards, routingMaxAttempts,
+            routingTopicsRefreshIntervalMillis, meterRegistry)
+        : snsShards.get(0).getClient();
+  }
 
-    AmazonSNSClientBuilder amazonSNSClientBuilder = AmazonSNSClientBuilder
-        .standard()
-        .withCredentials(new DefaultAWSCredentialsProviderChain());
+  private SnsShard shard(String region, String account, AmazonSNS client) {
+    return new SnsShard(region, account, client, new RegionHealth(routingHealthDecay,
+        routingHealthMinimumCalls, routingHealthLatencyThresholdMillis,
+        routingHealthErrorRateThreshold, routingHealthCooldownMillis));
+  }
+
+  /*
+    The async client runs the SNS round trip on its own pool, so request threads are released
+    while a publish is in flight. It talks to one region only and cannot be combined with
+    region routing.
+   */
+  @Bean
+  @ConditionalOnProperty(value = "aws.sns.async.enabled", havingValue = "true")
+  public AmazonSNSAsync amazonSNSAsync() {
+    if (routingEnabled) {
+      throw new IllegalStateException(
+          "aws.sns.async.enabled and aws.sns.routing.enabled cannot both be true");
+    }
+    return configure(AmazonSNSAsyncClientBuilder.standard(), snsRegion, snsEndpoint)
+        .withExecutorFactory(() -> Executors.newFixedThreadPool(asyncThreads,
+            new ThreadFactoryBuilder().setNameFormat("sns-async-%d").setDaemon(true).build()))
+        .build();
+  }
+
+  private <B extends AwsClientBuilder<B, ?>> B configure(B builder, String region,
+      String endpoint) {
+    builder
+        .withCredentials(new DefaultAWSCredentialsProviderChain())
+        .withClientConfiguration(clientConfiguration());
 
     if (env.equalsIgnoreCase(LOCAL_ENV)) {
-      amazonSNSClientBuilder
-          .withEndpointConfiguration(new EndpointConfiguration(LOCALSTASK_ENDPOINT, snsRegion));
+      builder.withEndpointConfiguration(new EndpointConfiguration(endpoint, region));
     } else {
-      amazonSNSClientBuilder.withRegion(snsRegion);
+      builder.withRegion(region);
     }
 
-    return amazonSNSClientBuilder.build();
+    return builder;
+  }
+
+  /*
+    Runs the PublishBatch chunks of a bulk publish concurrently. When the queue is full the
+    caller thread runs the chunk itself, which throttles the producer instead of dropping work.
+   */
+  @Bean
+  public ThreadPoolTaskExecutor snsPublishExecutor() {
+    ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+    executor.setCorePoolSize(publishBatchConcurrency);
+    executor.setMaxPoolSize(publishBatchConcurrency);
+    executor.setQueueCapacity(publishBatchQueueCapacity);
+    executor.setThreadNamePrefix("sns-publish-");
+    executor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+    return executor;
+  }
+
+  /*
+    HTTP transport of the SNS clients. Pool usage is exposed by SnsConnectionPoolMetrics.
+    Throttled and failed calls are retried with decorrelated jitter.
+   */
+  private ClientConfiguration clientConfiguration() {
+    ClientConfiguration configuration = new ClientConfiguration()
+        .withMaxConnections(clientMaxConnections)
+        .withConnectionTTL(clientConnectionTtlMillis)
+        .withConnectionMaxIdleMillis(clientConnectionMaxIdleMillis)
+        .withConnectionTimeout(clientConnectionTimeoutMillis)
+        .withSocketTimeout(clientSocketTimeoutMillis)
+        .withRequestTimeout(clientRequestTimeoutMillis)
+        .withClientExecutionTimeout(clientExecutionTimeoutMillis)
+        .withTcpKeepAlive(clientTcpKeepAlive)
+        .withValidateAfterInactivityMillis(clientValidateAfterInactivityMillis)
+        .withRetryPolicy(new RetryPolicy(PredefinedRetryPolicies.DEFAULT_RETRY_CONDITION,
+            new DecorrelatedJitterBackoffStrategy(clientRetryBaseDelayMillis,
+                clientRetryThrottledBaseDelayMillis, clientRetryMaxBackoffMillis),
+            clientMaxErrorRetry, true));
+    if (clientDnsCacheTtlMillis > 0) {
+      configuration.setDnsResolver(new CachingDnsResolver(new SystemDefaultDnsResolver(),
+          clientDnsCacheTtlMillis, clientDnsCacheMaxHosts));
+    }
+    return configuration;
   }
 
   @Bean
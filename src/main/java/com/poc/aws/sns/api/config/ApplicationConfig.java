@@ -1,13 +1,24 @@
 package com.poc.aws.sns.api.config;
 
+import com.poc.aws.sns.api.interfaces.interceptor.SnsSignatureInterceptor;
+import com.poc.aws.sns.api.interfaces.resolver.NotificationMessageAttributesArgumentResolver;
+import java.util.List;
 import java.util.Locale;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.web.method.support.HandlerMethodArgumentResolver;
 import org.springframework.web.servlet.LocaleResolver;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
 import org.springframework.web.servlet.i18n.SessionLocaleResolver;
 
 @Configuration
-public class ApplicationConfig {
+@RequiredArgsConstructor
+public class ApplicationConfig implements WebMvcConfigurer {
+
+  private final ObjectProvider<SnsSignatureInterceptor> snsSignatureInterceptor;
 
   @Bean
   public LocaleResolver localeResolver() {
@@ -15,4 +26,16 @@ public class ApplicationConfig {
     slr.setDefaultLocale(Locale.US);
     return slr;
   }
+
+  @Override
+  public void addInterceptors(InterceptorRegistry registry) {
+    snsSignatureInterceptor.ifAvailable(interceptor ->
+        registry.addInterceptor(interceptor).addPathPatterns("/topic-subscriber"));
+  }
+
+  @Override
+  public void addArgumentResolvers(List<HandlerMethodArgumentResolver> resolvers) {
+    resolvers.add(new NotificationMessageAttributesArgumentResolver());
+  }
+
 }
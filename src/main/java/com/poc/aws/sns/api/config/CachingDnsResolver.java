@@ -0,0 +1,47 @@
+package com.poc.aws.sns.api.config;
+
+import com.amazonaws.DnsResolver;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/*
+  Resolves the SNS endpoint once per TTL instead of on every new pooled connection. Failed
+  lookups are not cached, and concurrent misses for a host wait on a single lookup.
+ */
+public class CachingDnsResolver implements DnsResolver {
+
+  private final LoadingCache<String, InetAddress[]> addresses;
+
+  public CachingDnsResolver(DnsResolver delegate, long ttlMillis, long maxHosts) {
+    this.addresses = CacheBuilder.newBuilder()
+        .expireAfterWrite(ttlMillis, TimeUnit.MILLISECONDS)
+        .maximumSize(maxHosts)
+        .build(new CacheLoader<>() {
+          @Override
+          public InetAddress[] load(String host) throws UnknownHostException {
+            return delegate.resolve(host);
+          }
+        });
+  }
+
+  @Override
+  public InetAddress[] resolve(String host) throws UnknownHostException {
+    try {
+      return addresses.get(host).clone();
+    } catch (ExecutionException | UncheckedExecutionException e) {
+      if (e.getCause() instanceof UnknownHostException) {
+        throw (UnknownHostException) e.getCause();
+      }
+      UnknownHostException unknownHost = new UnknownHostException(host);
+      unknownHost.initCause(e.getCause());
+      throw unknownHost;
+    }
+  }
+
+}
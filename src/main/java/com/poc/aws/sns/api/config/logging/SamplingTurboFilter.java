@@ -0,0 +1,59 @@
+package com.poc.aws.sns.api.config.logging;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.turbo.TurboFilter;
+import ch.qos.logback.core.spi.FilterReply;
+import java.util.concurrent.atomic.AtomicLong;
+import org.slf4j.Marker;
+
+/*
+  Keeps one in every N events below WARN from the loggers under the configured name, before
+  logback builds the event. WARN and ERROR always pass. Level checks such as isInfoEnabled()
+  are not counted, so guarded log statements are sampled like unguarded ones.
+
+  <turboFilter class="com.poc.aws.sns.api.config.logging.SamplingTurboFilter">
+    <logger>com.poc.aws.sns.api.service.impl</logger>
+    <every>100</every>
+  </turboFilter>
+ */
+public class SamplingTurboFilter extends TurboFilter {
+
+  private final AtomicLong events = new AtomicLong();
+
+  private String logger;
+  private long every = 1;
+
+  public void setLogger(String logger) {
+    this.logger = logger;
+  }
+
+  public void setEvery(long every) {
+    this.every = every;
+  }
+
+  @Override
+  public void start() {
+    if (logger == null || every < 1) {
+      addError("SamplingTurboFilter needs a logger and every >= 1");
+      return;
+    }
+    super.start();
+  }
+
+  @Override
+  public FilterReply decide(Marker marker, Logger logger, Level level, String format,
+      Object[] params, Throwable t) {
+    if (!isStarted() || format == null || every == 1 || level.isGreaterOrEqual(Level.WARN)
+        || !matches(logger.getName())) {
+      return FilterReply.NEUTRAL;
+    }
+    return events.getAndIncrement() % every == 0 ? FilterReply.NEUTRAL : FilterReply.DENY;
+  }
+
+  private boolean matches(String name) {
+    return name.startsWith(logger)
+        && (name.length() == logger.length() || name.charAt(logger.length()) == '.');
+  }
+
+}
@@ -0,0 +1,27 @@
+package com.poc.aws.sns.api.exceptions;
+
+import com.poc.aws.sns.api.exceptions.MessageError.ApiError;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.ToString;
+
+@Getter
+@EqualsAndHashCode(callSuper = false)
+@ToString
+public class ForbiddenException extends RuntimeException {
+
+  private static final long serialVersionUID = 4829613057714183921L;
+
+  private final ApiError error;
+
+  public ForbiddenException(ApiError error) {
+    super(error.toString(), null, false, false);
+    this.error = error;
+  }
+
+  public ForbiddenException(ApiError error, String detail) {
+    super(error + " - Detail: " + detail, null, false, false);
+    this.error = error;
+  }
+
+}
@@ -1,6 +1,12 @@
 package com.poc.aws.sns.api.exceptions;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import java.io.Serializable;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
 import lombok.EqualsAndHashCode;
 import lombok.Getter;
 import lombok.ToString;
@@ -8,18 +14,64 @@ import org.springframework.context.MessageSource;
 import org.springframework.context.i18n.LocaleContextHolder;
 import org.springframework.stereotype.Component;
 
+/*
+  Message patterns are resolved from the MessageSource once per code and locale and kept
+  compiled, and errors without replacements are shared ApiError instances, so a flood of bad
+  requests costs a map lookup per error. Locales come from Accept-Language, hence the bound.
+ */
 @Component
 public class MessageError {
 
-  private MessageSource messageSource;
+  private static final int MAX_LOCALES = 32;
+
+  private final MessageSource messageSource;
+  private final Cache<Locale, ConcurrentMap<String, CompiledMessage>> messages = CacheBuilder
+      .newBuilder()
+      .maximumSize(MAX_LOCALES)
+      .build();
 
   public MessageError(MessageSource messageSource) {
     this.messageSource = messageSource;
   }
 
   public ApiError create(String code, String... replacements) {
-    return new ApiError(code, messageSource.getMessage(code, replacements,
-      LocaleContextHolder.getLocale()));
+    CompiledMessage message = compiled(code, LocaleContextHolder.getLocale());
+    if (replacements.length == 0) {
+      return message.error;
+    }
+    return new ApiError(code, message.template.format(replacements));
+  }
+
+  private CompiledMessage compiled(String code, Locale locale) {
+    ConcurrentMap<String, CompiledMessage> codes;
+    try {
+      codes = messages.get(locale, ConcurrentHashMap::new);
+    } catch (ExecutionException e) {
+      throw new IllegalStateException(e.getCause());
+    }
+    CompiledMessage message = codes.get(code);
+    if (message == null) {
+      message = codes.computeIfAbsent(code, c -> compile(c, locale));
+    }
+    return message;
+  }
+
+  private CompiledMessage compile(String code, Locale locale) {
+    /* without arguments the MessageSource returns the pattern as is, quotes included */
+    String pattern = messageSource.getMessage(code, null, locale);
+    return new CompiledMessage(new ApiError(code, pattern),
+        MessageTemplate.compile(pattern, locale));
+  }
+
+  private static class CompiledMessage {
+
+    private final ApiError error;
+    private final MessageTemplate template;
+
+    private CompiledMessage(ApiError error, MessageTemplate template) {
+      this.error = error;
+      this.template = template;
+    }
   }
 
   @Getter
@@ -0,0 +1,104 @@
+package com.poc.aws.sns.api.exceptions;
+
+import java.text.MessageFormat;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/*
+  A messages.properties pattern compiled once into literal and argument segments, so
+  formatting is a single StringBuilder pass instead of parsing a new MessageFormat per error.
+  Only plain {n} arguments and '' quoting are compiled; patterns with format types such as
+  {0,number} fall back to MessageFormat.
+ */
+final class MessageTemplate {
+
+  private final String pattern;
+  private final Locale locale;
+  private final String[] literals;
+  private final int[] arguments;
+  private final int length;
+
+  private MessageTemplate(String pattern, Locale locale, String[] literals, int[] arguments) {
+    this.pattern = pattern;
+    this.locale = locale;
+    this.literals = literals;
+    this.arguments = arguments;
+    int length = 0;
+    if (literals != null) {
+      for (String literal : literals) {
+        length += literal.length();
+      }
+    }
+    this.length = length;
+  }
+
+  static MessageTemplate compile(String pattern, Locale locale) {
+    List<String> literals = new ArrayList<>();
+    List<Integer> arguments = new ArrayList<>();
+    StringBuilder literal = new StringBuilder(pattern.length());
+    boolean quoted = false;
+
+    for (int i = 0; i < pattern.length(); i++) {
+      char c = pattern.charAt(i);
+      if (c == '\'') {
+        if (i + 1 < pattern.length() && pattern.charAt(i + 1) == '\'') {
+          literal.append('\'');
+          i++;
+        } else {
+          quoted = !quoted;
+        }
+      } else if (c == '{' && !quoted) {
+        int end = pattern.indexOf('}', i);
+        int index = end < 0 ? -1 : argumentIndex(pattern, i + 1, end);
+        if (index < 0) {
+          return new MessageTemplate(pattern, locale, null, null);
+        }
+        literals.add(literal.toString());
+        literal.setLength(0);
+        arguments.add(index);
+        i = end;
+      } else {
+        literal.append(c);
+      }
+    }
+    literals.add(literal.toString());
+
+    return new MessageTemplate(pattern, locale, literals.toArray(new String[0]),
+        arguments.stream().mapToInt(Integer::intValue).toArray());
+  }
+
+  String format(Object[] args) {
+    if (literals == null) {
+      return new MessageFormat(pattern, locale).format(args);
+    }
+
+    StringBuilder message = new StringBuilder(length + 16 * arguments.length);
+    for (int i = 0; i < arguments.length; i++) {
+      message.append(literals[i]);
+      int index = arguments[i];
+      if (index < args.length) {
+        message.append(args[index]);
+      } else {
+        message.append('{').append(index).append('}');
+      }
+    }
+    return message.append(literals[arguments.length]).toString();
+  }
+
+  private static int argumentIndex(String pattern, int start, int end) {
+    if (start == end || end - start > 3) {
+      return -1;
+    }
+    int index = 0;
+    for (int i = start; i < end; i++) {
+      char c = pattern.charAt(i);
+      if (c < '0' || c > '9') {
+        return -1;
+      }
+      index = index * 10 + (c - '0');
+    }
+    return index;
+  }
+
+}
@@ -20,7 +20,7 @@ public class NotFoundException extends RuntimeException {
   }
 
   public NotFoundException(ApiError error, String detail) {
-    super(String.format("%s - Detail: %s", error.toString(), detail));
+    super(error + " - Detail: " + detail);
     this.error = error;
   }
 
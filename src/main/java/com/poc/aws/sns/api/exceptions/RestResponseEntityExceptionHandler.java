@@ -1,7 +1,6 @@
 package com.poc.aws.sns.api.exceptions;
 
 import static com.google.common.collect.Lists.newArrayList;
-import static java.lang.String.format;
 import static java.util.stream.Collectors.joining;
 import static java.util.stream.Collectors.toList;
 
@@ -11,6 +10,7 @@ import com.fasterxml.jackson.databind.exc.InvalidFormatException;
 import com.fasterxml.jackson.databind.exc.MismatchedInputException;
 import com.poc.aws.sns.api.exceptions.MessageError.ApiError;
 import com.poc.aws.sns.api.interfaces.Messages;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Objects;
 import java.util.Optional;
@@ -22,6 +22,7 @@ import org.hibernate.validator.internal.engine.path.PathImpl;
 import org.hibernate.validator.internal.metadata.descriptor.ConstraintDescriptorImpl;
 import org.hibernate.validator.internal.metadata.location.ConstraintLocation.ConstraintLocationKind;
 import org.springframework.beans.TypeMismatchException;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
@@ -37,17 +38,26 @@ import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.method.annotation.MethodArgumentTypeMismatchException;
 import org.springframework.web.servlet.mvc.method.annotation.ResponseEntityExceptionHandler;
 
+/*
+  Forbidden, PayloadTooLarge, TooManyRequests and ServiceUnavailable exceptions are rejections
+  the service decides on, each thrown from a known place with the reason in its message. They
+  are logged as one warning line without a trace and do not capture their stack, so a flood of
+  rejections stays cheap; every other exception keeps its stack for the sampled traces.
+ */
 @Slf4j
 @RestControllerAdvice
 public class RestResponseEntityExceptionHandler extends ResponseEntityExceptionHandler {
 
-  private static final String DETAIL = "%s - Detail: %s";
-  private static final String INVALID_TYPE_FOR_FIELD_S_TYPE_S_EXPECTED = "Invalid type for field '%s' - Type '%s' expected.";
+  private static final String DETAIL = "{} - Detail: {}";
+  private static final String SAMPLED = " - {} stack traces of this type suppressed since the last one";
 
   private final MessageError messageError;
+  private final StackTraceSampler stackTraces;
 
-  public RestResponseEntityExceptionHandler(MessageError messageError) {
+  public RestResponseEntityExceptionHandler(MessageError messageError,
+    @Value("${api.errors.stack-trace-interval-ms:10000}") long stackTraceIntervalMillis) {
     this.messageError = messageError;
+    this.stackTraces = new StackTraceSampler(stackTraceIntervalMillis);
   }
 
   @ExceptionHandler(ConstraintViolationException.class)
@@ -70,37 +80,67 @@ public class RestResponseEntityExceptionHandler extends ResponseEntityExceptionH
           .add(messageError.create(Messages.INVALID_FIELD, propertyPath.toString(), value, msg));
       }
     });
-    log.error(format(DETAIL, errors.toString(), ex.getMessage()), ex);
+    warn(ex, DETAIL, errors, ex.getMessage());
     return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(errors);
   }
 
   @ExceptionHandler(value = UnprocessableEntityException.class)
   protected ResponseEntity<List<ApiError>> handleUnprocessableEntityException(
     UnprocessableEntityException ex) {
-    log.error(ex.getMessage(), ex);
+    error(ex, "{}", ex.getMessage());
     return ResponseEntity.status(HttpStatus.UNPROCESSABLE_ENTITY).body(ex.getErrors());
   }
 
+  @ExceptionHandler(value = ForbiddenException.class)
+  protected ResponseEntity<List<ApiError>> handleForbidden(ForbiddenException ex) {
+    log.warn(ex.getMessage());
+    return ResponseEntity.status(HttpStatus.FORBIDDEN).body(newArrayList(ex.getError()));
+  }
+
   @ExceptionHandler(value = NotFoundException.class)
   protected ResponseEntity<List<ApiError>> handleNotFound(NotFoundException ex) {
-    log.error(ex.getMessage(), ex);
+    warn(ex, "{}", ex.getMessage());
     return ResponseEntity.status(HttpStatus.NOT_FOUND).body(newArrayList(ex.getError()));
   }
 
+  @ExceptionHandler(value = PayloadTooLargeException.class)
+  protected ResponseEntity<List<ApiError>> handlePayloadTooLarge(PayloadTooLargeException ex) {
+    log.warn(ex.getMessage());
+    return ResponseEntity.status(HttpStatus.PAYLOAD_TOO_LARGE).body(newArrayList(ex.getError()));
+  }
+
+  @ExceptionHandler(value = TooManyRequestsException.class)
+  protected ResponseEntity<List<ApiError>> handleTooManyRequests(TooManyRequestsException ex) {
+    log.warn(ex.getMessage());
+    ResponseEntity.BodyBuilder response = ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS);
+    if (ex.getRetryAfter() != null) {
+      long seconds = (ex.getRetryAfter().toMillis() + 999) / 1000;
+      response.header(HttpHeaders.RETRY_AFTER, String.valueOf(Math.max(1, seconds)));
+    }
+    return response.body(newArrayList(ex.getError()));
+  }
+
+  @ExceptionHandler(value = ServiceUnavailableException.class)
+  protected ResponseEntity<List<ApiError>> handleServiceUnavailable(
+    ServiceUnavailableException ex) {
+    log.warn(ex.getMessage());
+    return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(newArrayList(ex.getError()));
+  }
+
   @Override
   protected ResponseEntity<Object> handleMethodArgumentNotValid(MethodArgumentNotValidException ex,
     HttpHeaders headers, HttpStatus status, WebRequest request) {
     List<ApiError> errors = newArrayList();
     ex.getBindingResult().getFieldErrors().forEach(fe -> {
       errors.add(messageError.create(Messages.FIELD_VALIDATION,
-        format("Field '%s' %s", fe.getField(), fe.getDefaultMessage())));
+        "Field '" + fe.getField() + "' " + fe.getDefaultMessage()));
     });
 
     if (errors.isEmpty()) {
       errors.add(messageError.create(Messages.CONTACT_SYSTEM_ADMIN));
     }
 
-    log.error(format(DETAIL, errors.toString(), ex.getMessage()), ex);
+    warn(ex, DETAIL, errors, ex.getMessage());
 
     return ResponseEntity.status(status).body(errors);
   }
@@ -122,7 +162,7 @@ public class RestResponseEntityExceptionHandler extends ResponseEntityExceptionH
       errors.add(messageError.create(Messages.CONTACT_SYSTEM_ADMIN));
     }
 
-    log.error(format(DETAIL, errors.toString(), ex.getMessage()), ex);
+    warn(ex, DETAIL, errors, ex.getMessage());
     return ResponseEntity.status(status).body(errors);
   }
 
@@ -131,7 +171,7 @@ public class RestResponseEntityExceptionHandler extends ResponseEntityExceptionH
     MismatchedInputException mtme = (MismatchedInputException) ex.getCause();
 
     errors.add(messageError.create(Messages.FIELD_VALIDATION,
-      format(INVALID_TYPE_FOR_FIELD_S_TYPE_S_EXPECTED,
+      invalidType(
         mtme.getPath().stream().map(
           p -> Objects.nonNull(p.getFieldName()) ? p.getFieldName() : "[" + p.getIndex() + "]")
           .collect(joining(".")),
@@ -155,10 +195,9 @@ public class RestResponseEntityExceptionHandler extends ResponseEntityExceptionH
       List<String> availableValues = getEnumValues(ife.getTargetType());
 
       errors.add(messageError.create(Messages.FIELD_VALIDATION,
-        format("Invalid type for field '%s' - Available values '%s'.",
-          ife.getPath().stream().map(
+        "Invalid type for field '" + ife.getPath().stream().map(
             p -> Objects.nonNull(p.getFieldName()) ? p.getFieldName() : "[" + p.getIndex() + "]")
-            .collect(joining(".")), availableValues)));
+            .collect(joining(".")) + "' - Available values '" + availableValues + "'."));
     } else if (Objects.nonNull(ife.getTargetType())) {
       String type;
       if (ife.getTargetType().getSuperclass().equals(Object.class)) {
@@ -169,7 +208,7 @@ public class RestResponseEntityExceptionHandler extends ResponseEntityExceptionH
           : ife.getTargetType().getSimpleName();
       }
       errors.add(messageError.create(Messages.FIELD_VALIDATION,
-        format(INVALID_TYPE_FOR_FIELD_S_TYPE_S_EXPECTED, ife.getPath().stream().map(
+        invalidType(ife.getPath().stream().map(
           p -> Objects.nonNull(p.getFieldName()) ? p.getFieldName() : "[" + p.getIndex() + "]")
           .collect(joining(".")), type)));
     } else {
@@ -194,18 +233,16 @@ public class RestResponseEntityExceptionHandler extends ResponseEntityExceptionH
           List<String> availableValues = getEnumValues(mtme.getRequiredType());
 
           errors.add(messageError.create(Messages.FIELD_VALIDATION,
-            format("%s is not a valid '%s' - Available values '%s'.",
-              mtme.getValue(),
-              mtme.getName(),
-              availableValues)));
+            mtme.getValue() + " is not a valid '" + mtme.getName()
+              + "' - Available values '" + availableValues + "'."));
         }, () -> errors.add(messageError.create(Messages.FIELD_VALIDATION,
-          format(INVALID_TYPE_FOR_FIELD_S_TYPE_S_EXPECTED,
+          invalidType(
             mtme.getName(),
             mtme.getRequiredType().getSimpleName()))));
     } else {
       errors.add(messageError.create(Messages.CONTACT_SYSTEM_ADMIN));
     }
-    log.error(format(DETAIL, errors.toString(), ex.getMessage()), ex);
+    warn(ex, DETAIL, errors, ex.getMessage());
     return ResponseEntity.status(status).body(errors);
   }
 
@@ -216,7 +253,7 @@ public class RestResponseEntityExceptionHandler extends ResponseEntityExceptionH
     List<ApiError> errors = newArrayList();
     errors.add(
       messageError.create(Messages.REQUIRED_PARAM, ex.getParameterName(), ex.getParameterType()));
-    log.error(format(DETAIL, errors.toString(), ex.getMessage()), ex);
+    warn(ex, DETAIL, errors, ex.getMessage());
     return ResponseEntity.status(status).body(errors);
   }
 
@@ -233,7 +270,7 @@ public class RestResponseEntityExceptionHandler extends ResponseEntityExceptionH
     } else {
       errors.add(messageError.create(Messages.CONTACT_SYSTEM_ADMIN));
     }
-    log.error(format(DETAIL, errors.toString(), ex.getMessage()), ex);
+    warn(ex, DETAIL, errors, ex.getMessage());
     return ResponseEntity.status(status).body(errors);
   }
 
@@ -241,17 +278,47 @@ public class RestResponseEntityExceptionHandler extends ResponseEntityExceptionH
   protected ResponseEntity<List<ApiError>> handleHttpServerErrorException(
     HttpServerErrorException ex) {
     ApiError error = messageError.create(Messages.CONTACT_SYSTEM_ADMIN);
-    log.error(format(DETAIL, error.toString(), ex.getMessage()), ex);
+    error(ex, DETAIL, error, ex.getMessage());
     return ResponseEntity.status(HttpStatus.UNPROCESSABLE_ENTITY).body(newArrayList(error));
   }
 
   @ExceptionHandler(value = Exception.class)
   public ResponseEntity<Object> handleException(Exception ex) {
     ApiError error = messageError.create(Messages.CONTACT_SYSTEM_ADMIN);
-    log.error(format(DETAIL, error.toString(), ex.getMessage()), ex);
+    error(ex, DETAIL, error, ex.getMessage());
     return ResponseEntity.status(HttpStatus.UNPROCESSABLE_ENTITY).body(newArrayList(error));
   }
 
+  private static String invalidType(String field, String type) {
+    return "Invalid type for field '" + field + "' - Type '" + type + "' expected.";
+  }
+
+  /* stack traces are sampled per exception type, so a flood of bad requests logs one line each */
+  private void warn(Exception ex, String message, Object... args) {
+    long suppressed = stackTraces.sample(ex);
+    if (suppressed < 0) {
+      log.warn(message, args);
+    } else {
+      log.warn(message + SAMPLED, withTrace(args, suppressed, ex));
+    }
+  }
+
+  private void error(Exception ex, String message, Object... args) {
+    long suppressed = stackTraces.sample(ex);
+    if (suppressed < 0) {
+      log.error(message, args);
+    } else {
+      log.error(message + SAMPLED, withTrace(args, suppressed, ex));
+    }
+  }
+
+  private static Object[] withTrace(Object[] args, long suppressed, Exception ex) {
+    Object[] withTrace = Arrays.copyOf(args, args.length + 2);
+    withTrace[args.length] = suppressed;
+    withTrace[args.length + 1] = ex;
+    return withTrace;
+  }
+
   private List<String> getEnumValues(Class<?> enumClass) {
 
     List<String> enumConstants = Stream.of(enumClass.getEnumConstants()).map(Object::toString).collect(toList());
@@ -0,0 +1,27 @@
+package com.poc.aws.sns.api.exceptions;
+
+import com.poc.aws.sns.api.exceptions.MessageError.ApiError;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.ToString;
+
+@Getter
+@EqualsAndHashCode(callSuper = false)
+@ToString
+public class ServiceUnavailableException extends RuntimeException {
+
+  private static final long serialVersionUID = 3370287263414640542L;
+
+  private final ApiError error;
+
+  public ServiceUnavailableException(ApiError error) {
+    super(error.toString(), null, false, false);
+    this.error = error;
+  }
+
+  public ServiceUnavailableException(ApiError error, String detail) {
+    super(error + " - Detail: " + detail, null, false, false);
+    this.error = error;
+  }
+
+}
@@ -0,0 +1,46 @@
+package com.poc.aws.sns.api.exceptions;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/*
+  Lets at most one stack trace per exception type through per interval. The rest of the
+  occurrences are logged as a single line by the caller, and the next sampled trace reports
+  how many were suppressed in between.
+ */
+final class StackTraceSampler {
+
+  private final long intervalNanos;
+  private final ClassValue<Window> windows = new ClassValue<>() {
+    @Override
+    protected Window computeValue(Class<?> type) {
+      return new Window();
+    }
+  };
+
+  StackTraceSampler(long intervalMillis) {
+    this.intervalNanos = TimeUnit.MILLISECONDS.toNanos(intervalMillis);
+  }
+
+  /* returns -1 when the trace should be omitted, otherwise the number suppressed since the last one */
+  long sample(Throwable ex) {
+    if (intervalNanos <= 0) {
+      return 0;
+    }
+    Window window = windows.get(ex.getClass());
+    long now = System.nanoTime();
+    long next = window.next.get();
+    if (now - next >= 0 && window.next.compareAndSet(next, now + intervalNanos)) {
+      return window.suppressed.getAndSet(0);
+    }
+    window.suppressed.incrementAndGet();
+    return -1;
+  }
+
+  private static class Window {
+
+    private final AtomicLong next = new AtomicLong(System.nanoTime());
+    private final AtomicLong suppressed = new AtomicLong();
+  }
+
+}
@@ -0,0 +1,35 @@
+package com.poc.aws.sns.api.exceptions;
+
+import com.poc.aws.sns.api.exceptions.MessageError.ApiError;
+import java.time.Duration;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.ToString;
+
+@Getter
+@EqualsAndHashCode(callSuper = false)
+@ToString
+public class TooManyRequestsException extends RuntimeException {
+
+  private static final long serialVersionUID = -2193847712530498106L;
+
+  private final ApiError error;
+  private final Duration retryAfter;
+
+  public TooManyRequestsException(ApiError error) {
+    this(error, (Duration) null);
+  }
+
+  public TooManyRequestsException(ApiError error, Duration retryAfter) {
+    super(error.toString(), null, false, false);
+    this.error = error;
+    this.retryAfter = retryAfter;
+  }
+
+  public TooManyRequestsException(ApiError error, String detail) {
+    super(error + " - Detail: " + detail, null, false, false);
+    this.error = error;
+    this.retryAfter = null;
+  }
+
+}
@@ -26,7 +26,12 @@ public class UnprocessableEntityException extends RuntimeException {
   }
 
   public UnprocessableEntityException(ApiError error, String detail) {
-    super(String.format("%s - Detail: %s", error.toString(), detail));
+    super(error + " - Detail: " + detail);
+    this.errors = Lists.newArrayList(error);
+  }
+
+  public UnprocessableEntityException(ApiError error, Throwable cause) {
+    super(error + " - Detail: " + cause.getMessage(), cause);
     this.errors = Lists.newArrayList(error);
   }
 
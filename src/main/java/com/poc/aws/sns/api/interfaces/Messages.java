@@ -11,7 +11,32 @@ public final class Messages {
   public static final String INVALID_FIELD = "400.006";
   public static final String REQUIRED_HEADER = "400.007";
 
+  // 403
+  public static final String INVALID_SIGNATURE = "403.001";
+
+  // 404
+  public static final String TOPIC_NOT_FOUND = "404.001";
+
+  // 413
+  public static final String PAYLOAD_TOO_LARGE = "413.001";
+
   // 422
   public static final String CONTACT_SYSTEM_ADMIN = "422.001";
   public static final String SNS_INTEGRATION_HAS_FAILED = "422.002";
+  public static final String OUTBOX_WRITE_FAILED = "422.003";
+  public static final String CLAIM_CHECK_FAILED = "422.004";
+  public static final String INVALID_FILTER_POLICY = "422.005";
+  public static final String INVALID_MESSAGE_ATTRIBUTE = "422.006";
+  public static final String INVALID_FIFO_PUBLISH = "422.007";
+
+  // 429
+  public static final String SNS_CONCURRENCY_LIMIT = "429.001";
+  public static final String PUBLISH_RATE_EXCEEDED = "429.002";
+
+  // 503
+  public static final String PUBLISH_QUEUE_FULL = "503.001";
+  public static final String INBOUND_QUEUE_FULL = "503.002";
+  public static final String SIGNING_CERTIFICATE_UNAVAILABLE = "503.003";
+  public static final String SNS_CIRCUIT_OPEN = "503.004";
+  public static final String TOPICS_UNAVAILABLE = "503.005";
 }
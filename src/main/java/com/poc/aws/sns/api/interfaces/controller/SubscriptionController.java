@@ -1,8 +1,20 @@
 package com.poc.aws.sns.api.interfaces.controller;
 
 import com.amazonaws.services.sns.model.Subscription;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.poc.aws.sns.api.interfaces.json.MessageAttribute;
+import com.poc.aws.sns.api.interfaces.resolver.NotificationMessageAttributes;
 import com.poc.aws.sns.api.service.SNSService;
-import java.util.List;
+import com.poc.aws.sns.api.service.inbound.InboundNotification;
+import com.poc.aws.sns.api.service.inbound.InboundNotificationDispatcher;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.stream.Stream;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.cloud.aws.messaging.config.annotation.NotificationMessage;
@@ -12,13 +24,17 @@ import org.springframework.cloud.aws.messaging.endpoint.annotation.NotificationM
 import org.springframework.cloud.aws.messaging.endpoint.annotation.NotificationSubscriptionMapping;
 import org.springframework.cloud.aws.messaging.endpoint.annotation.NotificationUnsubscribeConfirmationMapping;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 @RestController
 @RequestMapping("/topic-subscriber")
@@ -26,28 +42,89 @@ import org.springframework.web.bind.annotation.RestController;
 @RequiredArgsConstructor
 public class SubscriptionController {
 
+  private static final String SNS_TOPIC_ARN_HEADER = "x-amz-sns-topic-arn";
+  private static final String SNS_MESSAGE_ID_HEADER = "x-amz-sns-message-id";
+
   private final SNSService snsService;
+  private final ObjectMapper objectMapper;
+  private final InboundNotificationDispatcher inboundNotificationDispatcher;
 
+  /*
+    The optional body is an SNS filter policy on message attributes, e.g.
+    {"customer": ["42"], "amount": [{"numeric": [">", 100]}]}
+   */
   @PostMapping("/subscribes/{topic}")
   @ResponseStatus(HttpStatus.OK)
-  public ResponseEntity<Void> subscribe(@PathVariable String topic) {
-    String requestId = snsService.subscribe(topic);
+  public ResponseEntity<Void> subscribe(@PathVariable String topic,
+      @RequestBody(required = false) String filterPolicy) {
+    String requestId = snsService.subscribe(topic, filterPolicy);
     return ResponseEntity
         .ok()
         .header("request-id", requestId)
         .build();
   }
 
-  @GetMapping("/subscribes/{topic}")
+  /*
+    Subscriptions are written page by page while they are read from SNS, as a JSON array or
+    as newline delimited JSON when the client accepts application/x-ndjson.
+   */
+  @GetMapping(value = "/subscribes/{topic}", produces = MediaType.APPLICATION_JSON_VALUE)
+  @ResponseStatus(HttpStatus.OK)
+  public ResponseEntity<StreamingResponseBody> getSubscribes(@PathVariable String topic) {
+    Stream<Subscription> subscribes = snsService.getSubscribes(topic);
+    return ResponseEntity
+        .ok()
+        .contentType(MediaType.APPLICATION_JSON)
+        .body(out -> writeSubscribes(subscribes, out, false));
+  }
+
+  @GetMapping(value = "/subscribes/{topic}", produces = MediaType.APPLICATION_NDJSON_VALUE)
   @ResponseStatus(HttpStatus.OK)
-  public ResponseEntity<List<Subscription>> getSubscribes(@PathVariable String topic) {
-    List<Subscription> subscribes = snsService.getSubscribes(topic);
-    return ResponseEntity.ok(subscribes);
+  public ResponseEntity<StreamingResponseBody> getSubscribesNdjson(@PathVariable String topic) {
+    Stream<Subscription> subscribes = snsService.getSubscribes(topic);
+    return ResponseEntity
+        .ok()
+        .contentType(MediaType.APPLICATION_NDJSON)
+        .body(out -> writeSubscribes(subscribes, out, true));
+  }
+
+  private void writeSubscribes(Stream<Subscription> subscribes, OutputStream out, boolean ndjson)
+      throws IOException {
+    ObjectWriter writer = objectMapper.writerFor(Subscription.class)
+        .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+
+    try (subscribes; JsonGenerator generator = objectMapper.getFactory().createGenerator(out)) {
+      if (!ndjson) {
+        generator.writeStartArray();
+      }
+      for (Iterator<Subscription> iterator = subscribes.iterator(); iterator.hasNext(); ) {
+        writer.writeValue(generator, iterator.next());
+        if (ndjson) {
+          generator.writeRaw('\n');
+        }
+      }
+      if (!ndjson) {
+        generator.writeEndArray();
+      }
+    }
   }
 
+  /*
+    The delivery is acknowledged as soon as the message is queued; a full queue answers 503 so
+    SNS backs off and retries.
+   */
   @NotificationMessageMapping
-  public void message(@NotificationMessage String message, @NotificationSubject String subject) {
-    log.info("Received message: {}, having subject: {}", message, subject);
+  public void message(@NotificationMessage String message, @NotificationSubject String subject,
+      @NotificationMessageAttributes Map<String, MessageAttribute> attributes,
+      @RequestHeader(value = SNS_TOPIC_ARN_HEADER, required = false) String topicArn,
+      @RequestHeader(value = SNS_MESSAGE_ID_HEADER, required = false) String messageId) {
+    inboundNotificationDispatcher.dispatch(InboundNotification.builder()
+        .topicArn(topicArn)
+        .messageId(messageId)
+        .subject(subject)
+        .message(message)
+        .attributes(attributes)
+        .build());
   }
 
   @NotificationSubscriptionMapping
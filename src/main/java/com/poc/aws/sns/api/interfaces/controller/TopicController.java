@@ -1,18 +1,29 @@
 package com.poc.aws.sns.api.interfaces.controller;
 
+import com.poc.aws.sns.api.interfaces.io.PooledBodyReader;
+import com.poc.aws.sns.api.interfaces.json.MessageAttribute;
 import com.poc.aws.sns.api.interfaces.json.Notification;
 import com.poc.aws.sns.api.interfaces.json.request.TopicRequest;
 import com.poc.aws.sns.api.interfaces.json.response.CreateTopicResponse;
 import com.poc.aws.sns.api.interfaces.json.response.GetTopicResponse;
+import com.poc.aws.sns.api.interfaces.json.response.PublishBatchResponse;
 import com.poc.aws.sns.api.service.SNSService;
+import java.io.IOException;
+import java.util.Enumeration;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import javax.servlet.http.HttpServletRequest;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestController;
@@ -22,7 +33,13 @@ import org.springframework.web.bind.annotation.RestController;
 @RequiredArgsConstructor
 public class TopicController {
 
+  private static final String SUBJECT_HEADER = "x-sns-subject";
+  private static final String ATTRIBUTE_HEADER_PREFIX = "x-sns-attribute-";
+  private static final String MESSAGE_GROUP_HEADER = "x-sns-message-group-id";
+  private static final String DEDUPLICATION_HEADER = "x-sns-deduplication-id";
+
   private final SNSService SNSService;
+  private final PooledBodyReader pooledBodyReader;
 
   @PostMapping
   @ResponseStatus(HttpStatus.OK)
@@ -42,19 +59,62 @@ public class TopicController {
 
   @PostMapping("/{topic-subscriber}/message")
   @ResponseStatus(HttpStatus.ACCEPTED)
-  public void publishNotification(@RequestBody Notification notification,
+  public CompletableFuture<ResponseEntity<Void>> publishNotification(
+      @RequestBody Notification notification,
       @PathVariable("topic-subscriber") String topic) {
-    SNSService.publish(notification, topic);
+    return SNSService.publishAsync(notification, topic)
+        .thenApply(messageId -> ResponseEntity.accepted().build());
   }
 
-}
-
-
-
-
-
-
-
+  /*
+    Publishes the request body as it is, without binding it to a Notification; the subject
+    comes from the x-sns-subject header and every x-sns-attribute-<name> header becomes a
+    String message attribute. FIFO topics take x-sns-message-group-id and
+    x-sns-deduplication-id.
+   */
+  @PostMapping(value = "/{topic-subscriber}/message/raw", consumes = MediaType.ALL_VALUE)
+  @ResponseStatus(HttpStatus.ACCEPTED)
+  public CompletableFuture<ResponseEntity<Void>> publishRawNotification(
+      HttpServletRequest request,
+      @RequestHeader(value = SUBJECT_HEADER, required = false) String subject,
+      @RequestHeader(value = MESSAGE_GROUP_HEADER, required = false) String messageGroupId,
+      @RequestHeader(value = DEDUPLICATION_HEADER, required = false) String deduplicationId,
+      @PathVariable("topic-subscriber") String topic) throws IOException {
+    Notification notification = Notification.builder()
+        .subject(subject)
+        .body(pooledBodyReader.read(request.getInputStream(), request.getContentLengthLong()))
+        .attributes(attributeHeaders(request))
+        .messageGroupId(messageGroupId)
+        .messageDeduplicationId(deduplicationId)
+        .build();
+    return SNSService.publishAsync(notification, topic)
+        .thenApply(messageId -> ResponseEntity.accepted().build());
+  }
 
+  @PostMapping("/{topic-subscriber}/messages")
+  @ResponseStatus(HttpStatus.OK)
+  public CompletableFuture<ResponseEntity<PublishBatchResponse>> publishNotifications(
+      @RequestBody List<Notification> notifications,
+      @PathVariable("topic-subscriber") String topic) {
+    return SNSService.publishBatchAsync(notifications, topic)
+        .thenApply(ResponseEntity::ok);
+  }
 
+  private static Map<String, MessageAttribute> attributeHeaders(HttpServletRequest request) {
+    Map<String, MessageAttribute> attributes = null;
+    for (Enumeration<String> names = request.getHeaderNames(); names.hasMoreElements(); ) {
+      String name = names.nextElement();
+      if (name.length() > ATTRIBUTE_HEADER_PREFIX.length()
+          && name.regionMatches(true, 0, ATTRIBUTE_HEADER_PREFIX, 0,
+          ATTRIBUTE_HEADER_PREFIX.length())) {
+        if (attributes == null) {
+          attributes = new LinkedHashMap<>();
+        }
+        attributes.put(name.substring(ATTRIBUTE_HEADER_PREFIX.length()),
+            new MessageAttribute("String", request.getHeader(name)));
+      }
+    }
+    return attributes;
+  }
 
+}
@@ -0,0 +1,44 @@
+package com.poc.aws.sns.api.interfaces.interceptor;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.poc.aws.sns.api.service.signature.SnsSignatureVerifier;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.HandlerInterceptor;
+
+/*
+  Rejects SNS deliveries whose signature does not verify before they reach the
+  @NotificationMessageMapping handlers. The parsed body is stored under the request attribute
+  the Spring Cloud AWS argument resolvers read, so the body is parsed only once.
+ */
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(value = "aws.sns.signature.enabled", havingValue = "true",
+    matchIfMissing = true)
+public class SnsSignatureInterceptor implements HandlerInterceptor {
+
+  public static final String SNS_MESSAGE_TYPE_HEADER = "x-amz-sns-message-type";
+  private static final String NOTIFICATION_REQUEST_ATTRIBUTE = "NOTIFICATION_REQUEST";
+
+  private final SnsSignatureVerifier snsSignatureVerifier;
+  private final ObjectMapper objectMapper;
+
+  @Override
+  public boolean preHandle(HttpServletRequest request, HttpServletResponse response,
+      Object handler) throws Exception {
+    if (!"POST".equals(request.getMethod())
+        || request.getHeader(SNS_MESSAGE_TYPE_HEADER) == null) {
+      return true;
+    }
+
+    JsonNode message = objectMapper.readTree(request.getInputStream());
+    snsSignatureVerifier.verify(message);
+    request.setAttribute(NOTIFICATION_REQUEST_ATTRIBUTE, message);
+    return true;
+  }
+
+}
@@ -0,0 +1,66 @@
+package com.poc.aws.sns.api.interfaces.io;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import com.poc.aws.sns.api.exceptions.MessageError;
+import com.poc.aws.sns.api.exceptions.PayloadTooLargeException;
+import com.poc.aws.sns.api.interfaces.Messages;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/*
+  Reads a request body into one of a fixed set of reusable buffers of max-bytes and decodes it
+  straight into the String the SNS request needs, so the body is copied once. The limit is
+  checked against Content-Length first and again while reading, so an oversized stream is
+  never buffered whole. When every pooled buffer is in use a temporary one is allocated
+  instead of waiting.
+ */
+@Component
+public class PooledBodyReader {
+
+  private final MessageError messageError;
+  private final int maxBytes;
+  private final BlockingQueue<byte[]> buffers;
+
+  public PooledBodyReader(MessageError messageError,
+      @Value("${aws.sns.publish.raw.max-bytes:262144}") int maxBytes,
+      @Value("${aws.sns.publish.raw.pooled-buffers:64}") int pooledBuffers) {
+    this.messageError = messageError;
+    this.maxBytes = maxBytes;
+    this.buffers = new ArrayBlockingQueue<>(Math.max(1, pooledBuffers));
+  }
+
+  public String read(InputStream in, long contentLength) throws IOException {
+    if (contentLength > maxBytes) {
+      throw tooLarge();
+    }
+
+    byte[] buffer = buffers.poll();
+    if (buffer == null) {
+      buffer = new byte[maxBytes];
+    }
+    try {
+      int length = 0;
+      int read;
+      while (length < maxBytes && (read = in.read(buffer, length, maxBytes - length)) != -1) {
+        length += read;
+      }
+      if (length == maxBytes && in.read() != -1) {
+        throw tooLarge();
+      }
+      return new String(buffer, 0, length, UTF_8);
+    } finally {
+      buffers.offer(buffer);
+    }
+  }
+
+  private PayloadTooLargeException tooLarge() {
+    return new PayloadTooLargeException(
+        messageError.create(Messages.PAYLOAD_TOO_LARGE, String.valueOf(maxBytes)));
+  }
+
+}
@@ -0,0 +1,22 @@
+package com.poc.aws.sns.api.interfaces.json;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/*
+  SNS message attribute: type is String, String.Array, Number or Binary, optionally with a
+  custom suffix such as Number.float. String.Array values are JSON arrays and Binary values are
+  base64, the same shape SNS uses in the MessageAttributes of an HTTP delivery.
+ */
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class MessageAttribute {
+
+  private String type;
+  private String value;
+
+}
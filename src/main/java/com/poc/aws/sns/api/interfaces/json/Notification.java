@@ -1,5 +1,6 @@
 package com.poc.aws.sns.api.interfaces.json;
 
+import java.util.Map;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
@@ -13,5 +14,8 @@ public class Notification {
 
     private String subject;
     private String body;
+    private Map<String, MessageAttribute> attributes;
+    private String messageGroupId;
+    private String messageDeduplicationId;
 
 }
@@ -12,5 +12,6 @@ import lombok.NoArgsConstructor;
 public class TopicRequest {
 
   private String name;
+  private boolean contentBasedDeduplication;
 
 }
@@ -0,0 +1,25 @@
+package com.poc.aws.sns.api.interfaces.json.response;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonInclude.Include;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/*
+  The id is the position of the notification in the request array.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(Include.NON_NULL)
+public class PublishBatchEntryResponse {
+
+  private String id;
+  private String messageId;
+  private String code;
+  private String description;
+
+}
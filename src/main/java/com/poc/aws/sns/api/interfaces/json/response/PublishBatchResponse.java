@@ -0,0 +1,22 @@
+package com.poc.aws.sns.api.interfaces.json.response;
+
+import java.util.ArrayList;
+import java.util.List;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class PublishBatchResponse {
+
+  @Builder.Default
+  private List<PublishBatchEntryResponse> successful = new ArrayList<>();
+
+  @Builder.Default
+  private List<PublishBatchEntryResponse> failed = new ArrayList<>();
+
+}
@@ -0,0 +1,18 @@
+package com.poc.aws.sns.api.interfaces.resolver;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/*
+  Binds the MessageAttributes of an SNS HTTP delivery to a Map<String, MessageAttribute>
+  parameter of a @NotificationMessageMapping method, next to @NotificationMessage.
+ */
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.PARAMETER)
+public @interface NotificationMessageAttributes {
+
+}
@@ -0,0 +1,29 @@
+package com.poc.aws.sns.api.interfaces.resolver;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.poc.aws.sns.api.service.attributes.MessageAttributes;
+import java.util.Map;
+import org.springframework.cloud.aws.messaging.endpoint.AbstractNotificationMessageHandlerMethodArgumentResolver;
+import org.springframework.core.MethodParameter;
+import org.springframework.http.HttpInputMessage;
+
+/*
+  Reads the attributes from the delivery body the Spring Cloud AWS resolvers already parsed
+  and stored in the request, so the body is still parsed only once.
+ */
+public class NotificationMessageAttributesArgumentResolver
+    extends AbstractNotificationMessageHandlerMethodArgumentResolver {
+
+  @Override
+  public boolean supportsParameter(MethodParameter parameter) {
+    return parameter.hasParameterAnnotation(NotificationMessageAttributes.class)
+        && Map.class.isAssignableFrom(parameter.getParameterType());
+  }
+
+  @Override
+  protected Object doResolveArgumentFromNotificationMessage(JsonNode content,
+      HttpInputMessage request, Class<?> parameterType) {
+    return MessageAttributes.fromDelivery(content.get("MessageAttributes"));
+  }
+
+}
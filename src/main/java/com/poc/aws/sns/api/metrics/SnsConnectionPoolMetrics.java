@@ -0,0 +1,170 @@
+package com.poc.aws.sns.api.metrics;
+
+import com.amazonaws.AmazonWebServiceClient;
+import com.amazonaws.http.AmazonHttpClient;
+import com.amazonaws.http.apache.client.impl.ConnectionManagerAwareHttpClient;
+import com.amazonaws.metrics.AwsSdkMetrics;
+import com.amazonaws.metrics.ByteThroughputProvider;
+import com.amazonaws.metrics.MetricCollector;
+import com.amazonaws.metrics.RequestMetricCollector;
+import com.amazonaws.metrics.ServiceLatencyProvider;
+import com.amazonaws.metrics.ServiceMetricCollector;
+import com.amazonaws.services.sns.AmazonSNS;
+import com.amazonaws.services.sns.AmazonSNSAsync;
+import com.amazonaws.util.AWSServiceMetrics;
+import com.google.common.base.Supplier;
+import com.google.common.base.Suppliers;
+import com.poc.aws.sns.api.service.routing.SnsShard;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.ToIntFunction;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.http.conn.HttpClientConnectionManager;
+import org.apache.http.pool.ConnPoolControl;
+import org.apache.http.pool.PoolStats;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.stereotype.Component;
+import org.springframework.util.ReflectionUtils;
+
+/*
+  Connection pool usage of the SNS clients, every region shard and the async client included.
+  The SDK does not expose the connection manager of a client, so it is read from the client's
+  AmazonHttpClient; a client it cannot be read from is left out of the pool gauges. The time
+  spent waiting for a pooled connection comes from the SDK service metric collector, which is
+  JVM wide: it is only installed when no other collector is registered. The pools are read on
+  the first gauge read.
+ */
+@Slf4j
+@Component
+public class SnsConnectionPoolMetrics implements MeterBinder {
+
+  private final List<SnsShard> snsShards;
+  private final ObjectProvider<AmazonSNSAsync> amazonSNSAsync;
+  private final Supplier<List<ConnPoolControl<?>>> pools = Suppliers.memoize(this::readPools);
+
+  public SnsConnectionPoolMetrics(List<SnsShard> snsShards,
+      ObjectProvider<AmazonSNSAsync> amazonSNSAsync) {
+    this.snsShards = snsShards;
+    this.amazonSNSAsync = amazonSNSAsync;
+  }
+
+  @Override
+  public void bindTo(MeterRegistry registry) {
+    Gauge.builder("sns.client.pool.leased", () -> poolStats(PoolStats::getLeased))
+        .description("Connections in use by SNS requests")
+        .register(registry);
+    Gauge.builder("sns.client.pool.pending", () -> poolStats(PoolStats::getPending))
+        .description("SNS requests waiting for a connection")
+        .register(registry);
+    Gauge.builder("sns.client.pool.available", () -> poolStats(PoolStats::getAvailable))
+        .description("Idle connections kept in the pool")
+        .register(registry);
+    Gauge.builder("sns.client.pool.max", () -> poolStats(PoolStats::getMax))
+        .description("Pool size")
+        .register(registry);
+
+    if (AwsSdkMetrics.getMetricCollector().isEnabled()) {
+      log.warn("An SDK metric collector is already registered, sns.client.pool.acquire is not"
+          + " recorded");
+      return;
+    }
+    Timer acquire = Timer.builder("sns.client.pool.acquire")
+        .description("Time waiting to lease a connection from the pool")
+        .publishPercentiles(0.5, 0.99)
+        .register(registry);
+    AwsSdkMetrics.setMetricCollector(new ConnectionAcquireCollector(acquire));
+  }
+
+  private int poolStats(ToIntFunction<PoolStats> stat) {
+    return pools.get().stream().mapToInt(pool -> stat.applyAsInt(pool.getTotalStats())).sum();
+  }
+
+  private List<ConnPoolControl<?>> readPools() {
+    List<AmazonSNS> clients = new ArrayList<>();
+    snsShards.forEach(shard -> clients.add(shard.getClient()));
+    amazonSNSAsync.ifAvailable(clients::add);
+
+    List<ConnPoolControl<?>> pools = new ArrayList<>(clients.size());
+    for (AmazonSNS snsClient : clients) {
+      HttpClientConnectionManager manager = connectionManager(snsClient);
+      if (manager instanceof ConnPoolControl) {
+        pools.add((ConnPoolControl<?>) manager);
+      } else {
+        log.warn("Connection pool of {} not readable, it is left out of sns.client.pool.*",
+            snsClient.getClass().getSimpleName());
+      }
+    }
+    return pools;
+  }
+
+  private static HttpClientConnectionManager connectionManager(AmazonSNS client) {
+    Field clientField = ReflectionUtils.findField(AmazonWebServiceClient.class, "client");
+    Field httpClientField = ReflectionUtils.findField(AmazonHttpClient.class, "httpClient");
+    if (!(client instanceof AmazonWebServiceClient) || clientField == null
+        || httpClientField == null) {
+      return null;
+    }
+    try {
+      ReflectionUtils.makeAccessible(clientField);
+      ReflectionUtils.makeAccessible(httpClientField);
+      Object httpClient = httpClientField.get(clientField.get(client));
+      return httpClient instanceof ConnectionManagerAwareHttpClient
+          ? ((ConnectionManagerAwareHttpClient) httpClient).getHttpClientConnectionManager()
+          : null;
+    } catch (IllegalAccessException | RuntimeException e) {
+      return null;
+    }
+  }
+
+  private static class ConnectionAcquireCollector extends MetricCollector {
+
+    private final ServiceMetricCollector serviceMetricCollector;
+
+    private ConnectionAcquireCollector(Timer acquire) {
+      this.serviceMetricCollector = new ServiceMetricCollector() {
+        @Override
+        public void collectByteThroughput(ByteThroughputProvider provider) {
+        }
+
+        @Override
+        public void collectLatency(ServiceLatencyProvider provider) {
+          if (provider.getServiceMetricType() == AWSServiceMetrics.HttpClientGetConnectionTime) {
+            acquire.record((long) (provider.getDurationMilli() * 1_000_000), TimeUnit.NANOSECONDS);
+          }
+        }
+      };
+    }
+
+    @Override
+    public boolean start() {
+      return true;
+    }
+
+    @Override
+    public boolean stop() {
+      return true;
+    }
+
+    @Override
+    public boolean isEnabled() {
+      return true;
+    }
+
+    @Override
+    public RequestMetricCollector getRequestMetricCollector() {
+      return RequestMetricCollector.NONE;
+    }
+
+    @Override
+    public ServiceMetricCollector getServiceMetricCollector() {
+      return serviceMetricCollector;
+    }
+  }
+
+}
@@ -5,17 +5,34 @@ import com.poc.aws.sns.api.interfaces.json.Notification;
 import com.poc.aws.sns.api.interfaces.json.request.TopicRequest;
 import com.poc.aws.sns.api.interfaces.json.response.CreateTopicResponse;
 import com.poc.aws.sns.api.interfaces.json.response.GetTopicResponse;
+import com.poc.aws.sns.api.interfaces.json.response.PublishBatchResponse;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Stream;
 
 public interface SNSService {
 
-  String subscribe(String topic);
+  default String subscribe(String topic) {
+    return subscribe(topic, null);
+  }
 
-  List<Subscription> getSubscribes(String topic);
+  /*
+    filterPolicy is an SNS filter policy on message attributes, null delivers every message.
+   */
+  String subscribe(String topic, String filterPolicy);
+
+  Stream<Subscription> getSubscribes(String topic);
 
   CreateTopicResponse createTopic(TopicRequest topicRequest);
 
   List<GetTopicResponse> getTopics();
 
   void publish(Notification notification, String topic);
+
+  CompletableFuture<String> publishAsync(Notification notification, String topic);
+
+  PublishBatchResponse publishBatch(List<Notification> notifications, String topic);
+
+  CompletableFuture<PublishBatchResponse> publishBatchAsync(List<Notification> notifications,
+      String topic);
 }
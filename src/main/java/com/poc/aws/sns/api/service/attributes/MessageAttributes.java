@@ -0,0 +1,124 @@
+package com.poc.aws.sns.api.service.attributes;
+
+import com.amazonaws.services.sns.model.MessageAttributeValue;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.google.common.base.Strings;
+import com.google.common.base.Utf8;
+import com.poc.aws.sns.api.interfaces.json.MessageAttribute;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/*
+  Conversions of message attributes between the API, the SDK requests and the JSON of an SNS
+  HTTP delivery. SNS counts attribute names, types and values in the 256 KB message size.
+ */
+public final class MessageAttributes {
+
+  public static final int MAX_ATTRIBUTES = 10;
+
+  private static final String BINARY = "Binary";
+  private static final String NUMBER = "Number";
+  private static final String STRING = "String";
+
+  private MessageAttributes() {
+  }
+
+  /*
+    Returns null without attributes, so requests without them stay as they were. Throws
+    IllegalArgumentException for attributes SNS would reject.
+   */
+  public static Map<String, MessageAttributeValue> toSns(Map<String, MessageAttribute> attributes) {
+    if (attributes == null || attributes.isEmpty()) {
+      return null;
+    }
+    if (attributes.size() > MAX_ATTRIBUTES) {
+      throw new IllegalArgumentException("more than " + MAX_ATTRIBUTES + " attributes");
+    }
+
+    Map<String, MessageAttributeValue> values = new LinkedHashMap<>(attributes.size() * 2);
+    attributes.forEach((name, attribute) -> {
+      if (Strings.isNullOrEmpty(name) || attribute == null
+          || Strings.isNullOrEmpty(attribute.getType()) || attribute.getValue() == null) {
+        throw new IllegalArgumentException("attribute '" + name + "' needs a type and a value");
+      }
+      if (!validType(attribute.getType())) {
+        throw new IllegalArgumentException("attribute '" + name + "' has unsupported type "
+            + attribute.getType());
+      }
+      if (attribute.getType().startsWith(NUMBER) && !isNumber(attribute.getValue())) {
+        throw new IllegalArgumentException("attribute '" + name + "' is not a number");
+      }
+      MessageAttributeValue value = new MessageAttributeValue()
+          .withDataType(attribute.getType());
+      if (attribute.getType().startsWith(BINARY)) {
+        value.setBinaryValue(ByteBuffer.wrap(Base64.getDecoder().decode(attribute.getValue())));
+      } else {
+        value.setStringValue(attribute.getValue());
+      }
+      values.put(name, value);
+    });
+    return values;
+  }
+
+  /*
+    MessageAttributes of an SNS HTTP delivery: {"name": {"Type": "String", "Value": "..."}}.
+   */
+  public static Map<String, MessageAttribute> fromDelivery(JsonNode messageAttributes) {
+    if (messageAttributes == null || !messageAttributes.isObject() || messageAttributes.isEmpty()) {
+      return Collections.emptyMap();
+    }
+    Map<String, MessageAttribute> attributes = new LinkedHashMap<>(messageAttributes.size() * 2);
+    for (Iterator<Map.Entry<String, JsonNode>> fields = messageAttributes.fields();
+        fields.hasNext(); ) {
+      Map.Entry<String, JsonNode> field = fields.next();
+      JsonNode type = field.getValue().get("Type");
+      JsonNode value = field.getValue().get("Value");
+      if (type != null && value != null) {
+        attributes.put(field.getKey(), new MessageAttribute(type.asText(), value.asText()));
+      }
+    }
+    return attributes;
+  }
+
+  /* String, Number and Binary, each with an optional custom suffix such as String.Array */
+  private static boolean validType(String type) {
+    for (String base : new String[]{STRING, NUMBER, BINARY}) {
+      if (type.equals(base)
+          || type.length() > base.length() + 1 && type.startsWith(base)
+          && type.charAt(base.length()) == '.') {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private static boolean isNumber(String value) {
+    try {
+      new BigDecimal(value);
+      return true;
+    } catch (NumberFormatException e) {
+      return false;
+    }
+  }
+
+  public static int payloadBytes(String message, Map<String, MessageAttributeValue> attributes) {
+    int bytes = Utf8.encodedLength(Strings.nullToEmpty(message));
+    if (attributes != null) {
+      for (Map.Entry<String, MessageAttributeValue> attribute : attributes.entrySet()) {
+        MessageAttributeValue value = attribute.getValue();
+        bytes += Utf8.encodedLength(attribute.getKey())
+            + Utf8.encodedLength(Strings.nullToEmpty(value.getDataType()))
+            + (value.getBinaryValue() != null
+                ? value.getBinaryValue().remaining()
+                : Utf8.encodedLength(Strings.nullToEmpty(value.getStringValue())));
+      }
+    }
+    return bytes;
+  }
+
+}
@@ -0,0 +1,231 @@
+package com.poc.aws.sns.api.service.batch;
+
+import static com.poc.aws.sns.api.service.batch.PublishBatches.MAX_BATCH_ENTRIES;
+
+import com.amazonaws.services.sns.AmazonSNS;
+import com.amazonaws.services.sns.model.AmazonSNSException;
+import com.amazonaws.services.sns.model.MessageAttributeValue;
+import com.amazonaws.services.sns.model.PublishBatchRequest;
+import com.amazonaws.services.sns.model.PublishBatchRequestEntry;
+import com.amazonaws.services.sns.model.PublishBatchResult;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.poc.aws.sns.api.exceptions.MessageError;
+import com.poc.aws.sns.api.exceptions.ServiceUnavailableException;
+import com.poc.aws.sns.api.exceptions.TooManyRequestsException;
+import com.poc.aws.sns.api.exceptions.UnprocessableEntityException;
+import com.poc.aws.sns.api.interfaces.Messages;
+import com.poc.aws.sns.api.interfaces.json.Notification;
+import com.poc.aws.sns.api.service.attributes.MessageAttributes;
+import com.poc.aws.sns.api.service.resilience.SnsCallGuard;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+import javax.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+/*
+  Buffers single publishes per topic and sends them as PublishBatch calls, either when 10
+  messages are waiting or when the linger time of the first buffered message runs out.
+  Each topic queue is bounded; when it is full the publish is rejected with 503 instead of
+  growing the heap. Each PublishBatch call goes through the SnsCallGuard like any other
+  publish, and a limiter or circuit breaker rejection fails every entry of the call with its
+  429 or 503. Whatever fails while a batch is sent fails the futures of its messages, none is
+  left incomplete.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(value = "aws.sns.publish.micro-batch.enabled", havingValue = "true")
+public class MicroBatchingPublisher {
+
+  private final AmazonSNS amazonSNS;
+  private final MessageError messageError;
+  private final Executor snsPublishExecutor;
+  private final Optional<SnsCallGuard> snsCallGuard;
+  private final long lingerMillis;
+  private final int queueCapacity;
+  private final long offerTimeoutMillis;
+
+  private final Map<String, TopicBuffer> buffers = new ConcurrentHashMap<>();
+  private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(
+      new ThreadFactoryBuilder().setNameFormat("sns-micro-batch-%d").setDaemon(true).build());
+
+  public MicroBatchingPublisher(AmazonSNS amazonSNS, MessageError messageError,
+      Executor snsPublishExecutor, Optional<SnsCallGuard> snsCallGuard,
+      @Value("${aws.sns.publish.micro-batch.linger-ms:5}") long lingerMillis,
+      @Value("${aws.sns.publish.micro-batch.queue-capacity:10000}") int queueCapacity,
+      @Value("${aws.sns.publish.micro-batch.offer-timeout-ms:0}") long offerTimeoutMillis) {
+    this.amazonSNS = amazonSNS;
+    this.messageError = messageError;
+    this.snsPublishExecutor = snsPublishExecutor;
+    this.snsCallGuard = snsCallGuard;
+    this.lingerMillis = lingerMillis;
+    this.queueCapacity = queueCapacity;
+    this.offerTimeoutMillis = offerTimeoutMillis;
+  }
+
+  /*
+    The attributes are the ones the caller already converted and validated.
+   */
+  public CompletableFuture<String> submit(String topicArn, Notification notification,
+      Map<String, MessageAttributeValue> attributes) {
+    TopicBuffer buffer = buffers.computeIfAbsent(topicArn, TopicBuffer::new);
+    PendingMessage message = new PendingMessage(notification, attributes);
+
+    if (!offer(buffer, message)) {
+      throw new ServiceUnavailableException(
+          messageError.create(Messages.PUBLISH_QUEUE_FULL, topicArn));
+    }
+
+    if (buffer.queue.size() >= MAX_BATCH_ENTRIES) {
+      flush(buffer, true);
+    } else if (buffer.lingerScheduled.compareAndSet(false, true)) {
+      scheduler.schedule(() -> {
+        buffer.lingerScheduled.set(false);
+        flush(buffer, false);
+      }, lingerMillis, TimeUnit.MILLISECONDS);
+    }
+    return message.future;
+  }
+
+  private boolean offer(TopicBuffer buffer, PendingMessage message) {
+    try {
+      return offerTimeoutMillis > 0
+          ? buffer.queue.offer(message, offerTimeoutMillis, TimeUnit.MILLISECONDS)
+          : buffer.queue.offer(message);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      return false;
+    }
+  }
+
+  /*
+    Hands the buffered messages to the publish executor. On a size trigger only full batches
+    are taken, the remainder waits for the linger timer.
+   */
+  private void flush(TopicBuffer buffer, boolean fullBatchesOnly) {
+    while (fullBatchesOnly ? buffer.queue.size() >= MAX_BATCH_ENTRIES : !buffer.queue.isEmpty()) {
+      List<PendingMessage> batch = new ArrayList<>(MAX_BATCH_ENTRIES);
+      buffer.queue.drainTo(batch, MAX_BATCH_ENTRIES);
+      if (batch.isEmpty()) {
+        return;
+      }
+      snsPublishExecutor.execute(() -> send(buffer.topicArn, batch));
+    }
+  }
+
+  private void send(String topicArn, List<PendingMessage> batch) {
+    try {
+      List<PublishBatchRequestEntry> entries = new ArrayList<>(batch.size());
+      for (int i = 0; i < batch.size(); i++) {
+        PendingMessage message = batch.get(i);
+        entries.add(new PublishBatchRequestEntry()
+            .withId(String.valueOf(i))
+            .withMessage(message.notification.getBody())
+            .withSubject(message.notification.getSubject())
+            .withMessageAttributes(message.attributes));
+      }
+
+      List<List<PublishBatchRequestEntry>> requests = PublishBatches.partitionByBytes(entries,
+          entry -> MessageAttributes.payloadBytes(entry.getMessage(),
+              entry.getMessageAttributes()));
+      for (List<PublishBatchRequestEntry> request : requests) {
+        send(topicArn, batch, request);
+      }
+      /* only reaches an entry SNS returned no result for */
+      batch.forEach(message -> message.future.completeExceptionally(
+          new UnprocessableEntityException(messageError.create(Messages.SNS_INTEGRATION_HAS_FAILED),
+              "no result for the entry")));
+    } catch (RuntimeException e) {
+      RuntimeException failure = failure(e);
+      batch.forEach(message -> message.future.completeExceptionally(failure));
+    }
+  }
+
+  private void send(String topicArn, List<PendingMessage> batch,
+      List<PublishBatchRequestEntry> request) {
+    PublishBatchRequest publishBatchRequest = new PublishBatchRequest()
+        .withTopicArn(topicArn)
+        .withPublishBatchRequestEntries(request);
+    try {
+      PublishBatchResult result = guarded(() ->
+          CompletableFuture.completedFuture(amazonSNS.publishBatch(publishBatchRequest))).join();
+      result.getSuccessful().forEach(entry ->
+          batch.get(Integer.parseInt(entry.getId())).future.complete(entry.getMessageId()));
+      result.getFailed().forEach(entry -> {
+        AmazonSNSException cause = new AmazonSNSException(entry.getMessage());
+        cause.setErrorCode(entry.getCode());
+        batch.get(Integer.parseInt(entry.getId())).future.completeExceptionally(
+            new UnprocessableEntityException(
+                messageError.create(Messages.SNS_INTEGRATION_HAS_FAILED), cause));
+      });
+    } catch (RuntimeException e) {
+      RuntimeException failure = failure(e instanceof CompletionException ? e.getCause() : e);
+      request.forEach(entry ->
+          batch.get(Integer.parseInt(entry.getId())).future.completeExceptionally(failure));
+    }
+  }
+
+  private <R> CompletableFuture<R> guarded(Supplier<CompletableFuture<R>> call) {
+    return snsCallGuard.isPresent() ? snsCallGuard.get().call(call) : call.get();
+  }
+
+  /*
+    Rejections keep their 429 or 503, anything else is an integration failure.
+   */
+  private RuntimeException failure(Throwable cause) {
+    if (cause instanceof TooManyRequestsException
+        || cause instanceof ServiceUnavailableException) {
+      return (RuntimeException) cause;
+    }
+    log.error("Not possible to publish notification batch.", cause);
+    return new UnprocessableEntityException(
+        messageError.create(Messages.SNS_INTEGRATION_HAS_FAILED), cause);
+  }
+
+  @PreDestroy
+  public void shutdown() {
+    scheduler.shutdown();
+    buffers.values().forEach(buffer -> flush(buffer, false));
+  }
+
+  private class TopicBuffer {
+
+    private final String topicArn;
+    private final BlockingQueue<PendingMessage> queue;
+    private final AtomicBoolean lingerScheduled = new AtomicBoolean();
+
+    private TopicBuffer(String topicArn) {
+      this.topicArn = topicArn;
+      this.queue = new ArrayBlockingQueue<>(queueCapacity);
+    }
+  }
+
+  private static class PendingMessage {
+
+    private final Notification notification;
+    private final Map<String, MessageAttributeValue> attributes;
+    private final CompletableFuture<String> future = new CompletableFuture<>();
+
+    private PendingMessage(Notification notification,
+        Map<String, MessageAttributeValue> attributes) {
+      this.notification = notification;
+      this.attributes = attributes;
+    }
+  }
+
+}
@@ -0,0 +1,57 @@
+package com.poc.aws.sns.api.service.batch;
+
+import com.google.common.base.Strings;
+import com.google.common.base.Utf8;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+import java.util.function.ToIntFunction;
+
+/*
+  PublishBatch limits: https://docs.aws.amazon.com/sns/latest/api/API_PublishBatch.html
+ */
+public final class PublishBatches {
+
+  public static final int MAX_BATCH_ENTRIES = 10;
+  public static final int MAX_BATCH_PAYLOAD_BYTES = 256 * 1024;
+
+  private PublishBatches() {
+  }
+
+  /*
+    Splits the entries in batches of at most 10 entries, also respecting the 256 KB aggregate
+    payload limit of a single PublishBatch call.
+   */
+  public static <T> List<List<T>> partition(List<T> entries, Function<T, String> message) {
+    return partitionByBytes(entries,
+        entry -> Utf8.encodedLength(Strings.nullToEmpty(message.apply(entry))));
+  }
+
+  /*
+    Same as partition, for entries whose size is more than the message, e.g. with attributes.
+   */
+  public static <T> List<List<T>> partitionByBytes(List<T> entries,
+      ToIntFunction<T> payloadBytes) {
+    List<List<T>> batches = new ArrayList<>();
+    List<T> batch = new ArrayList<>(MAX_BATCH_ENTRIES);
+    int batchBytes = 0;
+
+    for (T entry : entries) {
+      int bytes = payloadBytes.applyAsInt(entry);
+      if (batch.size() == MAX_BATCH_ENTRIES
+          || (!batch.isEmpty() && batchBytes + bytes > MAX_BATCH_PAYLOAD_BYTES)) {
+        batches.add(batch);
+        batch = new ArrayList<>(MAX_BATCH_ENTRIES);
+        batchBytes = 0;
+      }
+      batch.add(entry);
+      batchBytes += bytes;
+    }
+
+    if (!batch.isEmpty()) {
+      batches.add(batch);
+    }
+    return batches;
+  }
+
+}
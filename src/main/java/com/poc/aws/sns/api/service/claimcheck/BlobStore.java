@@ -0,0 +1,17 @@
+package com.poc.aws.sns.api.service.claimcheck;
+
+import java.io.IOException;
+
+/*
+  Storage of offloaded notification bodies. Keys are chosen by the store and must be readable
+  by every instance that receives the notification.
+ */
+public interface BlobStore {
+
+  String name();
+
+  String put(byte[] content) throws IOException;
+
+  byte[] get(String key) throws IOException;
+
+}
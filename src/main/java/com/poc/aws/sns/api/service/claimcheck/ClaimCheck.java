@@ -0,0 +1,132 @@
+package com.poc.aws.sns.api.service.claimcheck;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.base.Utf8;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+import com.poc.aws.sns.api.exceptions.MessageError;
+import com.poc.aws.sns.api.exceptions.UnprocessableEntityException;
+import com.poc.aws.sns.api.interfaces.Messages;
+import com.poc.aws.sns.api.interfaces.json.Notification;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.GuavaCacheMetrics;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+/*
+  Claim check for large bodies: above the threshold the body is gzipped into the blob store
+  and only a ClaimCheckPointer is published. On receipt the pointer is swapped back for the
+  body; recently resolved bodies are cached, bounded by their size, and concurrent receipts of
+  the same pointer share one read.
+ */
+@Component
+@ConditionalOnProperty(value = "aws.sns.claim-check.enabled", havingValue = "true")
+public class ClaimCheck {
+
+  private static final String POINTER_PREFIX = "{\"snsClaimCheck\":";
+  private static final String GZIP = "gzip";
+
+  private final BlobStore blobStore;
+  private final ObjectMapper objectMapper;
+  private final MessageError messageError;
+  private final int thresholdBytes;
+  private final LoadingCache<String, String> bodies;
+  private final Counter offloaded;
+
+  public ClaimCheck(BlobStore blobStore, ObjectMapper objectMapper, MessageError messageError,
+      MeterRegistry meterRegistry,
+      @Value("${aws.sns.claim-check.threshold-bytes:65536}") int thresholdBytes,
+      @Value("${aws.sns.claim-check.cache.max-bytes:67108864}") long cacheMaxBytes,
+      @Value("${aws.sns.claim-check.cache.ttl-ms:300000}") long cacheTtlMillis) {
+    this.blobStore = blobStore;
+    this.objectMapper = objectMapper;
+    this.messageError = messageError;
+    this.thresholdBytes = thresholdBytes;
+    this.bodies = CacheBuilder.newBuilder()
+        .maximumWeight(cacheMaxBytes)
+        .weigher((String key, String body) -> body.length() * 2)
+        .expireAfterAccess(cacheTtlMillis, TimeUnit.MILLISECONDS)
+        .recordStats()
+        .build(CacheLoader.from(this::load));
+    this.offloaded = Counter.builder("sns.claim-check.offloaded")
+        .description("Notification bodies published through the blob store")
+        .register(meterRegistry);
+    GuavaCacheMetrics.monitor(meterRegistry, bodies, "sns.claim-check.bodies");
+  }
+
+  public Notification offload(Notification notification) {
+    String body = notification.getBody();
+    if (body == null || body.length() <= thresholdBytes / 3
+        || Utf8.encodedLength(body) <= thresholdBytes) {
+      return notification;
+    }
+
+    try {
+      String key = blobStore.put(gzip(body));
+      offloaded.increment();
+      String pointer = objectMapper.writeValueAsString(new ClaimCheckPointer(
+          ClaimCheckPointer.Reference.builder()
+              .store(blobStore.name())
+              .key(key)
+              .encoding(GZIP)
+              .size(Utf8.encodedLength(body))
+              .build()));
+      return Notification.builder()
+          .subject(notification.getSubject())
+          .body(pointer)
+          .attributes(notification.getAttributes())
+          .messageGroupId(notification.getMessageGroupId())
+          .messageDeduplicationId(notification.getMessageDeduplicationId())
+          .build();
+    } catch (IOException e) {
+      throw new UnprocessableEntityException(
+          messageError.create(Messages.CLAIM_CHECK_FAILED), e);
+    }
+  }
+
+  /*
+    Messages that are not pointers are returned as they are.
+   */
+  public String resolve(String message) {
+    if (message == null || !message.startsWith(POINTER_PREFIX)) {
+      return message;
+    }
+    try {
+      ClaimCheckPointer pointer = objectMapper.readValue(message, ClaimCheckPointer.class);
+      return bodies.getUnchecked(pointer.getReference().getKey());
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  private String load(String key) {
+    try (InputStream in = new GZIPInputStream(
+        new ByteArrayInputStream(blobStore.get(key)))) {
+      return new String(in.readAllBytes(), UTF_8);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  private static byte[] gzip(String body) throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream(body.length() / 4);
+    try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+      gzip.write(body.getBytes(UTF_8));
+    }
+    return out.toByteArray();
+  }
+
+}
@@ -0,0 +1,34 @@
+package com.poc.aws.sns.api.service.claimcheck;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/*
+  Published in place of an offloaded body, as {"snsClaimCheck":{...}}.
+ */
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class ClaimCheckPointer {
+
+  @JsonProperty("snsClaimCheck")
+  private Reference reference;
+
+  @Data
+  @Builder
+  @AllArgsConstructor
+  @NoArgsConstructor
+  public static class Reference {
+
+    private String store;
+    private String key;
+    private String encoding;
+    private long size;
+
+  }
+
+}
@@ -0,0 +1,124 @@
+package com.poc.aws.sns.api.service.claimcheck;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+/*
+  Blobs as files under a directory shared by publishers and subscribers, spread over 256
+  sub directories by the first two characters of the key. Files are written to a temporary
+  name and moved, so readers never see a partial blob.
+
+  A blob cannot be deleted on receipt, every subscription of the topic reads it, so blobs live
+  for the retention instead: a periodic sweep deletes the files older than it. The retention
+  has to outlast the delivery retries of the subscriptions, a pointer delivered after its blob
+  was swept cannot be resolved. A retention of 0 keeps the blobs forever.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(value = "aws.sns.claim-check.store", havingValue = "filesystem",
+    matchIfMissing = true)
+public class FileSystemBlobStore implements BlobStore {
+
+  private static final long MAX_SWEEP_INTERVAL_MILLIS = TimeUnit.MINUTES.toMillis(10);
+
+  private final Path directory;
+  private final long retentionMillis;
+
+  private final ScheduledExecutorService sweeper = Executors.newSingleThreadScheduledExecutor(
+      new ThreadFactoryBuilder().setNameFormat("sns-claim-check-sweep-%d").setDaemon(true)
+          .build());
+
+  public FileSystemBlobStore(
+      @Value("${aws.sns.claim-check.directory:${java.io.tmpdir}/sns-claim-check}")
+          String directory,
+      @Value("${aws.sns.claim-check.retention-ms:86400000}") long retentionMillis) {
+    this.directory = Paths.get(directory);
+    this.retentionMillis = retentionMillis;
+  }
+
+  @PostConstruct
+  public void start() {
+    if (retentionMillis > 0) {
+      long interval = Math.min(retentionMillis, MAX_SWEEP_INTERVAL_MILLIS);
+      sweeper.scheduleWithFixedDelay(this::sweep, interval, interval, TimeUnit.MILLISECONDS);
+    }
+  }
+
+  @PreDestroy
+  public void shutdown() {
+    sweeper.shutdownNow();
+  }
+
+  @Override
+  public String name() {
+    return "filesystem";
+  }
+
+  @Override
+  public String put(byte[] content) throws IOException {
+    String key = UUID.randomUUID().toString();
+    Path path = path(key);
+    Files.createDirectories(path.getParent());
+    Path temp = path.resolveSibling(key + ".tmp");
+    Files.write(temp, content);
+    Files.move(temp, path, StandardCopyOption.ATOMIC_MOVE);
+    return key;
+  }
+
+  @Override
+  public byte[] get(String key) throws IOException {
+    return Files.readAllBytes(path(key));
+  }
+
+  /*
+    Deletes the blobs, and temporary files left by failed writes, older than the retention.
+   */
+  public void sweep() {
+    if (!Files.isDirectory(directory)) {
+      return;
+    }
+    long expiredBefore = System.currentTimeMillis() - retentionMillis;
+    int deleted = 0;
+    try (DirectoryStream<Path> shards = Files.newDirectoryStream(directory, Files::isDirectory)) {
+      for (Path shard : shards) {
+        try (DirectoryStream<Path> blobs = Files.newDirectoryStream(shard)) {
+          for (Path blob : blobs) {
+            if (Files.getLastModifiedTime(blob).toMillis() < expiredBefore
+                && Files.deleteIfExists(blob)) {
+              deleted++;
+            }
+          }
+        }
+      }
+    } catch (IOException e) {
+      log.warn("Not possible to sweep the claim check blobs of {}: {}", directory,
+          e.getMessage());
+    }
+    if (deleted > 0) {
+      log.info("Deleted {} claim check blobs older than {} ms", deleted, retentionMillis);
+    }
+  }
+
+  private Path path(String key) {
+    if (key.length() < 3 || key.contains("/") || key.contains("\\") || key.contains("..")) {
+      throw new IllegalArgumentException("Invalid blob key " + key);
+    }
+    return directory.resolve(key.substring(0, 2)).resolve(key);
+  }
+
+}
@@ -0,0 +1,106 @@
+package com.poc.aws.sns.api.service.fifo;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.poc.aws.sns.api.exceptions.MessageError;
+import com.poc.aws.sns.api.exceptions.ServiceUnavailableException;
+import com.poc.aws.sns.api.interfaces.Messages;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.util.Arrays;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import javax.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/*
+  Publishes to FIFO topics through single threaded lanes chosen by topic and message group.
+  A lane starts the next call only after SNS answered the previous one, so the messages of a
+  group reach SNS in the order they were accepted, while groups on other lanes publish in
+  parallel. A full lane rejects the publish with 503.
+ */
+@Slf4j
+@Component
+public class MessageGroupLanes {
+
+  public static final String FIFO_SUFFIX = ".fifo";
+
+  private final MessageError messageError;
+  private final ThreadPoolExecutor[] lanes;
+
+  public MessageGroupLanes(MessageError messageError, MeterRegistry meterRegistry,
+      @Value("${aws.sns.publish.fifo.lanes:16}") int laneCount,
+      @Value("${aws.sns.publish.fifo.queue-capacity:1000}") int queueCapacity) {
+    this.messageError = messageError;
+    this.lanes = new ThreadPoolExecutor[laneCount];
+    for (int i = 0; i < laneCount; i++) {
+      lanes[i] = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+          new ArrayBlockingQueue<>(queueCapacity),
+          new ThreadFactoryBuilder().setNameFormat("sns-fifo-lane-" + i + "-%d").build(),
+          new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    Gauge.builder("sns.publish.fifo.queue.size", this,
+            groupLanes -> Arrays.stream(groupLanes.lanes)
+                .mapToInt(lane -> lane.getQueue().size())
+                .sum())
+        .description("FIFO publishes waiting for their message group lane")
+        .register(meterRegistry);
+  }
+
+  public static boolean isFifo(String topic) {
+    return topic != null && topic.endsWith(FIFO_SUFFIX);
+  }
+
+  public int lane(String topicArn, String messageGroupId) {
+    return Math.floorMod(31 * topicArn.hashCode() + messageGroupId.hashCode(), lanes.length);
+  }
+
+  public <R> CompletableFuture<R> submit(String topicArn, String messageGroupId,
+      Supplier<CompletableFuture<R>> call) {
+    return submit(topicArn, lane(topicArn, messageGroupId), call);
+  }
+
+  /*
+    The lane thread waits for the call to complete, the returned future completes with it.
+   */
+  public <R> CompletableFuture<R> submit(String topicArn, int lane,
+      Supplier<CompletableFuture<R>> call) {
+    CompletableFuture<R> result = new CompletableFuture<>();
+    try {
+      lanes[lane].execute(() -> {
+        try {
+          result.complete(call.get().join());
+        } catch (CompletionException e) {
+          result.completeExceptionally(e.getCause());
+        } catch (RuntimeException e) {
+          result.completeExceptionally(e);
+        }
+      });
+    } catch (RejectedExecutionException e) {
+      throw new ServiceUnavailableException(
+          messageError.create(Messages.PUBLISH_QUEUE_FULL, topicArn));
+    }
+    return result;
+  }
+
+  @PreDestroy
+  public void shutdown() throws InterruptedException {
+    for (ThreadPoolExecutor lane : lanes) {
+      lane.shutdown();
+    }
+    for (ThreadPoolExecutor lane : lanes) {
+      if (!lane.awaitTermination(10, TimeUnit.SECONDS)) {
+        log.warn("FIFO publishes still queued at shutdown: {}", lane.getQueue().size());
+        lane.shutdownNow();
+      }
+    }
+  }
+
+}
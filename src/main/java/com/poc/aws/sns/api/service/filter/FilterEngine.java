@@ -0,0 +1,117 @@
+package com.poc.aws.sns.api.service.filter;
+
+import com.poc.aws.sns.api.service.filter.FilterInput.Value;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/*
+  Routes a message to the targets whose filter policy it matches without evaluating every
+  policy. Policies with an attribute made only of exact strings are indexed by attribute name
+  and value, so only the policies reachable from the values the message carries are
+  evaluated; the others, and targets without a policy, are always candidates. Immutable once
+  built and safe to share between threads.
+ */
+public final class FilterEngine<T> {
+
+  private final List<T> targets;
+  private final List<FilterPolicy> policies;
+  private final Map<String, Map<String, int[]>> index;
+  private final BitSet unindexed;
+
+  private FilterEngine(List<T> targets, List<FilterPolicy> policies,
+      Map<String, Map<String, int[]>> index, BitSet unindexed) {
+    this.targets = targets;
+    this.policies = policies;
+    this.index = index;
+    this.unindexed = unindexed;
+  }
+
+  public static <T> Builder<T> builder() {
+    return new Builder<>();
+  }
+
+  /* targets in registration order */
+  public List<T> route(FilterInput input) {
+    BitSet candidates = (BitSet) unindexed.clone();
+    for (Map.Entry<String, Value[]> attribute : input.attributes().entrySet()) {
+      Map<String, int[]> byValue = index.get(attribute.getKey());
+      if (byValue == null) {
+        continue;
+      }
+      for (Value value : attribute.getValue()) {
+        int[] ids = value.numeric ? null : byValue.get(value.text);
+        if (ids != null) {
+          for (int id : ids) {
+            candidates.set(id);
+          }
+        }
+      }
+    }
+
+    if (candidates.isEmpty()) {
+      return Collections.emptyList();
+    }
+    List<T> matched = new ArrayList<>(candidates.cardinality());
+    for (int id = candidates.nextSetBit(0); id >= 0; id = candidates.nextSetBit(id + 1)) {
+      FilterPolicy policy = policies.get(id);
+      if (policy == null || policy.matches(input)) {
+        matched.add(targets.get(id));
+      }
+    }
+    return matched;
+  }
+
+  public int size() {
+    return targets.size();
+  }
+
+  public static final class Builder<T> {
+
+    private final List<T> targets = new ArrayList<>();
+    private final List<FilterPolicy> policies = new ArrayList<>();
+
+    private Builder() {
+    }
+
+    /* a null policy receives every message */
+    public Builder<T> add(T target, FilterPolicy policy) {
+      targets.add(target);
+      policies.add(policy);
+      return this;
+    }
+
+    public FilterEngine<T> build() {
+      Map<String, Map<String, List<Integer>>> lists = new HashMap<>();
+      BitSet unindexed = new BitSet(targets.size());
+      for (int id = 0; id < targets.size(); id++) {
+        FilterPolicy.AttributeRule rule = policies.get(id) == null
+            ? null
+            : policies.get(id).indexableRule();
+        if (rule == null) {
+          unindexed.set(id);
+          continue;
+        }
+        for (String value : rule.exactValues()) {
+          lists.computeIfAbsent(rule.name, name -> new HashMap<>())
+              .computeIfAbsent(value, v -> new ArrayList<>())
+              .add(id);
+        }
+      }
+
+      Map<String, Map<String, int[]>> index = new HashMap<>(lists.size() * 2);
+      lists.forEach((name, byValue) -> {
+        Map<String, int[]> ids = new HashMap<>(byValue.size() * 2);
+        byValue.forEach((value, list) -> ids.put(value,
+            list.stream().mapToInt(Integer::intValue).distinct().toArray()));
+        index.put(name, ids);
+      });
+      return new FilterEngine<>(List.copyOf(targets), new ArrayList<>(policies), index,
+          unindexed);
+    }
+  }
+
+}
@@ -0,0 +1,107 @@
+package com.poc.aws.sns.api.service.filter;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.poc.aws.sns.api.interfaces.json.MessageAttribute;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/*
+  Message attributes parsed once for matching: String.Array values are split into their
+  elements and Number values parsed, so every policy evaluated against the message reuses them.
+  Binary attributes only count for exists.
+ */
+public final class FilterInput {
+
+  static final FilterInput EMPTY = new FilterInput(Collections.emptyMap());
+
+  private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+  private static final Value[] NO_VALUES = new Value[0];
+
+  private final Map<String, Value[]> attributes;
+
+  private FilterInput(Map<String, Value[]> attributes) {
+    this.attributes = attributes;
+  }
+
+  public static FilterInput of(Map<String, MessageAttribute> attributes) {
+    if (attributes == null || attributes.isEmpty()) {
+      return EMPTY;
+    }
+    Map<String, Value[]> parsed = new HashMap<>(attributes.size() * 2);
+    attributes.forEach((name, attribute) -> parsed.put(name, values(attribute)));
+    return new FilterInput(parsed);
+  }
+
+  Map<String, Value[]> attributes() {
+    return attributes;
+  }
+
+  /* null when the attribute is absent */
+  Value[] values(String name) {
+    return attributes.get(name);
+  }
+
+  private static Value[] values(MessageAttribute attribute) {
+    String type = attribute.getType() == null ? "String" : attribute.getType();
+    String value = attribute.getValue();
+    if (value == null || type.startsWith("Binary")) {
+      return NO_VALUES;
+    }
+    if (type.startsWith("Number")) {
+      return new Value[]{Value.number(value)};
+    }
+    if (type.startsWith("String.Array")) {
+      return array(value);
+    }
+    return new Value[]{Value.text(value)};
+  }
+
+  private static Value[] array(String value) {
+    JsonNode elements;
+    try {
+      elements = OBJECT_MAPPER.readTree(value);
+    } catch (IOException e) {
+      return new Value[]{Value.text(value)};
+    }
+    if (elements == null || !elements.isArray()) {
+      return new Value[]{Value.text(value)};
+    }
+    Value[] values = new Value[elements.size()];
+    for (int i = 0; i < values.length; i++) {
+      JsonNode element = elements.get(i);
+      values[i] = element.isNumber()
+          ? new Value(element.asText(), element.asDouble(), true)
+          : Value.text(element.asText());
+    }
+    return values;
+  }
+
+  static final class Value {
+
+    final String text;
+    final double number;
+    final boolean numeric;
+
+    private Value(String text, double number, boolean numeric) {
+      this.text = text;
+      this.number = number;
+      this.numeric = numeric;
+    }
+
+    static Value text(String text) {
+      return new Value(text, Double.NaN, false);
+    }
+
+    static Value number(String text) {
+      try {
+        return new Value(text, Double.parseDouble(text), true);
+      } catch (NumberFormatException e) {
+        return text(text);
+      }
+    }
+  }
+
+}
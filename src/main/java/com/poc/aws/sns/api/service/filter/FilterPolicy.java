@@ -0,0 +1,362 @@
+package com.poc.aws.sns.api.service.filter;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.poc.aws.sns.api.service.filter.FilterInput.Value;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/*
+  An SNS subscription filter policy on message attributes, compiled into matchers:
+  https://docs.aws.amazon.com/sns/latest/dg/sns-subscription-filter-policies.html
+
+  Every attribute of the policy must match (AND) and an attribute matches when any of its
+  conditions matches any of its values (OR). Supported conditions are exact strings and
+  numbers, prefix, suffix, equals-ignore-case, anything-but, numeric ranges and exists.
+ */
+public final class FilterPolicy {
+
+  private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+  private final String source;
+  private final AttributeRule[] rules;
+
+  private FilterPolicy(String source, AttributeRule[] rules) {
+    this.source = source;
+    this.rules = rules;
+  }
+
+  /*
+    Throws IllegalArgumentException with the reason when the policy is not valid.
+   */
+  public static FilterPolicy compile(String policy) {
+    JsonNode root;
+    try {
+      root = OBJECT_MAPPER.readTree(policy);
+    } catch (JsonProcessingException e) {
+      throw new IllegalArgumentException("not valid JSON, " + e.getOriginalMessage());
+    }
+    if (root == null || !root.isObject() || root.isEmpty()) {
+      throw new IllegalArgumentException("a policy is a non empty JSON object");
+    }
+
+    List<AttributeRule> rules = new ArrayList<>(root.size());
+    for (Iterator<Map.Entry<String, JsonNode>> fields = root.fields(); fields.hasNext(); ) {
+      Map.Entry<String, JsonNode> field = fields.next();
+      if (!field.getValue().isArray() || field.getValue().isEmpty()) {
+        throw new IllegalArgumentException(
+            "conditions of '" + field.getKey() + "' must be a non empty array");
+      }
+      List<Condition> conditions = new ArrayList<>(field.getValue().size());
+      for (JsonNode condition : field.getValue()) {
+        conditions.add(condition(field.getKey(), condition));
+      }
+      rules.add(new AttributeRule(field.getKey(), conditions.toArray(new Condition[0])));
+    }
+    return new FilterPolicy(policy, rules.toArray(new AttributeRule[0]));
+  }
+
+  public boolean matches(FilterInput input) {
+    for (AttributeRule rule : rules) {
+      if (!rule.matches(input.values(rule.name))) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /*
+    The attribute whose conditions are all exact strings with the fewest values, or null. A
+    message can only match when it carries one of these values, so the engine indexes on them.
+   */
+  AttributeRule indexableRule() {
+    AttributeRule indexable = null;
+    for (AttributeRule rule : rules) {
+      if (rule.exactValues() != null
+          && (indexable == null || rule.conditions.length < indexable.conditions.length)) {
+        indexable = rule;
+      }
+    }
+    return indexable;
+  }
+
+  @Override
+  public String toString() {
+    return source;
+  }
+
+  private static Condition condition(String name, JsonNode condition) {
+    if (condition.isTextual()) {
+      return new Exact(condition.asText());
+    }
+    if (condition.isNumber()) {
+      return new Numeric(condition.asDouble(), true, condition.asDouble(), true);
+    }
+    if (!condition.isObject() || condition.size() != 1) {
+      throw new IllegalArgumentException("unsupported condition " + condition + " of '" + name
+          + "'");
+    }
+
+    Map.Entry<String, JsonNode> operator = condition.fields().next();
+    JsonNode operand = operator.getValue();
+    switch (operator.getKey()) {
+      case "prefix":
+        return new Prefix(text(name, operand));
+      case "suffix":
+        return new Suffix(text(name, operand));
+      case "equals-ignore-case":
+        return new EqualsIgnoreCase(text(name, operand));
+      case "exists":
+        if (!operand.isBoolean()) {
+          throw new IllegalArgumentException("exists of '" + name + "' must be true or false");
+        }
+        return new Exists(operand.asBoolean());
+      case "numeric":
+        return numeric(name, operand);
+      case "anything-but":
+        return anythingBut(name, operand);
+      default:
+        throw new IllegalArgumentException("unsupported operator " + operator.getKey() + " of '"
+            + name + "'");
+    }
+  }
+
+  private static String text(String name, JsonNode operand) {
+    if (!operand.isTextual()) {
+      throw new IllegalArgumentException("operand " + operand + " of '" + name
+          + "' must be a string");
+    }
+    return operand.asText();
+  }
+
+  private static Condition numeric(String name, JsonNode operand) {
+    if (!operand.isArray() || (operand.size() != 2 && operand.size() != 4)) {
+      throw new IllegalArgumentException("numeric of '" + name
+          + "' takes one or two operator and number pairs");
+    }
+    double lower = Double.NEGATIVE_INFINITY;
+    double upper = Double.POSITIVE_INFINITY;
+    boolean lowerInclusive = false;
+    boolean upperInclusive = false;
+    for (int i = 0; i < operand.size(); i += 2) {
+      String comparison = operand.get(i).asText();
+      if (!operand.get(i + 1).isNumber()) {
+        throw new IllegalArgumentException("numeric of '" + name + "' compares with numbers");
+      }
+      double value = operand.get(i + 1).asDouble();
+      switch (comparison) {
+        case "=":
+          return new Numeric(value, true, value, true);
+        case ">":
+        case ">=":
+          lower = value;
+          lowerInclusive = comparison.length() == 2;
+          break;
+        case "<":
+        case "<=":
+          upper = value;
+          upperInclusive = comparison.length() == 2;
+          break;
+        default:
+          throw new IllegalArgumentException("unsupported numeric operator " + comparison
+              + " of '" + name + "'");
+      }
+    }
+    return new Numeric(lower, lowerInclusive, upper, upperInclusive);
+  }
+
+  private static Condition anythingBut(String name, JsonNode operand) {
+    if (operand.isObject() && operand.has("prefix")) {
+      return new AnythingButPrefix(text(name, operand.get("prefix")));
+    }
+    Set<String> texts = new HashSet<>();
+    Set<Double> numbers = new HashSet<>();
+    for (JsonNode value : operand.isArray() ? operand : List.of(operand)) {
+      if (value.isNumber()) {
+        numbers.add(value.asDouble());
+      } else if (value.isTextual()) {
+        texts.add(value.asText());
+      } else {
+        throw new IllegalArgumentException("anything-but of '" + name
+            + "' takes strings, numbers or a prefix");
+      }
+    }
+    return new AnythingBut(texts, numbers);
+  }
+
+  static final class AttributeRule {
+
+    final String name;
+    final Condition[] conditions;
+
+    private AttributeRule(String name, Condition[] conditions) {
+      this.name = name;
+      this.conditions = conditions;
+    }
+
+    /* the strings of a rule made only of exact conditions, otherwise null */
+    List<String> exactValues() {
+      List<String> values = new ArrayList<>(conditions.length);
+      for (Condition condition : conditions) {
+        if (!(condition instanceof Exact)) {
+          return null;
+        }
+        values.add(((Exact) condition).text);
+      }
+      return values;
+    }
+
+    private boolean matches(Value[] values) {
+      for (Condition condition : conditions) {
+        if (condition instanceof Exists) {
+          if (((Exists) condition).exists == (values != null)) {
+            return true;
+          }
+        } else if (values != null) {
+          for (Value value : values) {
+            if (condition.matches(value)) {
+              return true;
+            }
+          }
+        }
+      }
+      return false;
+    }
+  }
+
+  private interface Condition {
+
+    boolean matches(Value value);
+  }
+
+  private static final class Exact implements Condition {
+
+    private final String text;
+
+    private Exact(String text) {
+      this.text = text;
+    }
+
+    @Override
+    public boolean matches(Value value) {
+      return !value.numeric && text.equals(value.text);
+    }
+  }
+
+  private static final class Prefix implements Condition {
+
+    private final String prefix;
+
+    private Prefix(String prefix) {
+      this.prefix = prefix;
+    }
+
+    @Override
+    public boolean matches(Value value) {
+      return !value.numeric && value.text.startsWith(prefix);
+    }
+  }
+
+  private static final class Suffix implements Condition {
+
+    private final String suffix;
+
+    private Suffix(String suffix) {
+      this.suffix = suffix;
+    }
+
+    @Override
+    public boolean matches(Value value) {
+      return !value.numeric && value.text.endsWith(suffix);
+    }
+  }
+
+  private static final class EqualsIgnoreCase implements Condition {
+
+    private final String text;
+
+    private EqualsIgnoreCase(String text) {
+      this.text = text;
+    }
+
+    @Override
+    public boolean matches(Value value) {
+      return !value.numeric && text.equalsIgnoreCase(value.text);
+    }
+  }
+
+  private static final class Numeric implements Condition {
+
+    private final double lower;
+    private final boolean lowerInclusive;
+    private final double upper;
+    private final boolean upperInclusive;
+
+    private Numeric(double lower, boolean lowerInclusive, double upper, boolean upperInclusive) {
+      this.lower = lower;
+      this.lowerInclusive = lowerInclusive;
+      this.upper = upper;
+      this.upperInclusive = upperInclusive;
+    }
+
+    @Override
+    public boolean matches(Value value) {
+      if (!value.numeric) {
+        return false;
+      }
+      double number = value.number;
+      return (lowerInclusive ? number >= lower : number > lower)
+          && (upperInclusive ? number <= upper : number < upper);
+    }
+  }
+
+  private static final class AnythingBut implements Condition {
+
+    private final Set<String> texts;
+    private final Set<Double> numbers;
+
+    private AnythingBut(Set<String> texts, Set<Double> numbers) {
+      this.texts = texts;
+      this.numbers = numbers;
+    }
+
+    @Override
+    public boolean matches(Value value) {
+      return value.numeric ? !numbers.contains(value.number) : !texts.contains(value.text);
+    }
+  }
+
+  private static final class AnythingButPrefix implements Condition {
+
+    private final String prefix;
+
+    private AnythingButPrefix(String prefix) {
+      this.prefix = prefix;
+    }
+
+    @Override
+    public boolean matches(Value value) {
+      return value.numeric || !value.text.startsWith(prefix);
+    }
+  }
+
+  private static final class Exists implements Condition {
+
+    private final boolean exists;
+
+    private Exists(boolean exists) {
+      this.exists = exists;
+    }
+
+    @Override
+    public boolean matches(Value value) {
+      return exists;
+    }
+  }
+
+}
@@ -1,25 +1,58 @@
 package com.poc.aws.sns.api.service.impl;
 
+import com.amazonaws.AmazonWebServiceRequest;
+import com.amazonaws.handlers.AsyncHandler;
 import com.amazonaws.services.sns.AmazonSNS;
+import com.amazonaws.services.sns.AmazonSNSAsync;
+import com.amazonaws.services.sns.model.CreateTopicRequest;
 import com.amazonaws.services.sns.model.CreateTopicResult;
-import com.amazonaws.services.sns.model.ListSubscriptionsByTopicResult;
+import com.amazonaws.services.sns.model.MessageAttributeValue;
+import com.amazonaws.services.sns.model.PublishBatchRequest;
+import com.amazonaws.services.sns.model.PublishBatchRequestEntry;
+import com.amazonaws.services.sns.model.PublishBatchResult;
 import com.amazonaws.services.sns.model.PublishRequest;
 import com.amazonaws.services.sns.model.PublishResult;
 import com.amazonaws.services.sns.model.SubscribeRequest;
 import com.amazonaws.services.sns.model.SubscribeResult;
 import com.amazonaws.services.sns.model.Subscription;
+import com.google.common.base.Strings;
 import com.poc.aws.sns.api.exceptions.MessageError;
+import com.poc.aws.sns.api.exceptions.MessageError.ApiError;
+import com.poc.aws.sns.api.exceptions.NotFoundException;
+import com.poc.aws.sns.api.exceptions.ServiceUnavailableException;
+import com.poc.aws.sns.api.exceptions.TooManyRequestsException;
 import com.poc.aws.sns.api.exceptions.UnprocessableEntityException;
 import com.poc.aws.sns.api.interfaces.Messages;
 import com.poc.aws.sns.api.interfaces.json.Notification;
 import com.poc.aws.sns.api.interfaces.json.request.TopicRequest;
 import com.poc.aws.sns.api.interfaces.json.response.CreateTopicResponse;
 import com.poc.aws.sns.api.interfaces.json.response.GetTopicResponse;
+import com.poc.aws.sns.api.interfaces.json.response.PublishBatchEntryResponse;
+import com.poc.aws.sns.api.interfaces.json.response.PublishBatchResponse;
 import com.poc.aws.sns.api.service.SNSService;
+import com.poc.aws.sns.api.service.attributes.MessageAttributes;
+import com.poc.aws.sns.api.service.batch.MicroBatchingPublisher;
+import com.poc.aws.sns.api.service.batch.PublishBatches;
+import com.poc.aws.sns.api.service.claimcheck.ClaimCheck;
+import com.poc.aws.sns.api.service.fifo.MessageGroupLanes;
+import com.poc.aws.sns.api.service.filter.FilterPolicy;
+import com.poc.aws.sns.api.service.outbox.OutboxLog;
+import com.poc.aws.sns.api.service.ratelimit.PublishRateLimiter;
+import com.poc.aws.sns.api.service.registry.SubscriptionPageCache;
+import com.poc.aws.sns.api.service.registry.TopicRegistry;
+import com.poc.aws.sns.api.service.resilience.SnsCallGuard;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.function.BiConsumer;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
-import javax.annotation.PostConstruct;
+import java.util.stream.Stream;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
@@ -29,35 +62,51 @@ import org.springframework.stereotype.Service;
 @Slf4j
 public class AmazonSNSIntegrationServiceImpl implements SNSService {
 
+  private static final String FILTER_POLICY_ATTRIBUTE = "FilterPolicy";
+  private static final String FIFO_TOPIC_ATTRIBUTE = "FifoTopic";
+  private static final String CONTENT_BASED_DEDUPLICATION_ATTRIBUTE = "ContentBasedDeduplication";
+
   private final AmazonSNS amazonSNS;
+  private final Optional<AmazonSNSAsync> amazonSNSAsync;
   private final MessageError messageError;
+  private final TopicRegistry topicRegistry;
+  private final SubscriptionPageCache subscriptionPageCache;
+  private final Executor snsPublishExecutor;
+  private final MessageGroupLanes messageGroupLanes;
+  private final Optional<MicroBatchingPublisher> microBatchingPublisher;
+  private final Optional<OutboxLog> outboxLog;
+  private final Optional<SnsCallGuard> snsCallGuard;
+  private final Optional<PublishRateLimiter> publishRateLimiter;
+  private final Optional<ClaimCheck> claimCheck;
 
   private final String snsArn;
   private final String snsNotificationEndpoint;
   private final String protocol;
-  private final String topicDefault;
 
   /*
-    Different ways to run method after startup in spring boot
-      - https://stacktraceguru.com/springboot/run-method-on-startup
+    The filter policy is compiled locally first, so an invalid one is answered without a call.
    */
-  @PostConstruct
-  private void subscribe() {
-    subscribe(topicDefault);
-  }
-
   @Override
-  public String subscribe(String topic) {
+  public String subscribe(String topic, String filterPolicy) {
     SubscribeRequest request = new SubscribeRequest();
     request.setProtocol(protocol);
     request.setEndpoint(snsNotificationEndpoint);
     request.setReturnSubscriptionArn(true);
-
-    String topicArn = snsArn + ":" + topic;
+    String topicArn = topicArn(topic);
     request.setTopicArn(topicArn);
+    if (filterPolicy != null && !filterPolicy.isBlank()) {
+      try {
+        FilterPolicy.compile(filterPolicy);
+      } catch (IllegalArgumentException e) {
+        throw new UnprocessableEntityException(
+            messageError.create(Messages.INVALID_FILTER_POLICY, e.getMessage()));
+      }
+      request.addAttributesEntry(FILTER_POLICY_ATTRIBUTE, filterPolicy);
+    }
 
     try {
       SubscribeResult result = amazonSNS.subscribe(request);
+      subscriptionPageCache.invalidate(topicArn);
       String requestId = result.getSdkResponseMetadata().getRequestId();
       log.info(
           "Subscription ARN is {}. Status is {}. RequestId: {}", result.getSubscriptionArn(), result
@@ -65,45 +114,325 @@ public class AmazonSNSIntegrationServiceImpl implements SNSService {
       return requestId;
     } catch (Exception e) {
       throw new UnprocessableEntityException(
-          messageError.create(Messages.SNS_INTEGRATION_HAS_FAILED), e.getMessage());
+          messageError.create(Messages.SNS_INTEGRATION_HAS_FAILED), e);
     }
   }
 
   @Override
   public void publish(Notification notification, String topic) {
+    join(publishAsync(notification, topic));
+  }
+
+  /*
+    Without the async client the call still runs on the caller thread and the future is
+    already complete when returned. In outbox mode the notification is only written to the
+    local log and the returned id is its log position; the drainer publishes it later.
+    Publishes to FIFO topics skip micro-batching and go through the lane of their message
+    group, which keeps them in order.
+   */
+  @Override
+  public CompletableFuture<String> publishAsync(Notification received, String topic) {
     log.info("Sending message to sns topic: {}", topic);
+    String topicArn = topicArn(topic);
+    boolean fifo = MessageGroupLanes.isFifo(topicArn);
+    validateMessageGroup(received, topic, fifo);
+    Map<String, MessageAttributeValue> attributes = attributes(received);
+    Notification notification = claimCheck.map(check -> check.offload(received)).orElse(received);
+
+    CompletableFuture<String> messageId;
+    if (outboxLog.isPresent()) {
+      messageId = outboxLog.get().append(topicArn, notification).thenApply(String::valueOf);
+    } else if (fifo) {
+      publishRateLimiter.ifPresent(limiter -> limiter.acquire(topicArn, 1));
+      PublishRequest publishRequest = publishRequest(topicArn, notification, attributes);
+      messageId = messageGroupLanes.submit(topicArn, notification.getMessageGroupId(),
+              () -> guarded(() -> publish(publishRequest)))
+          .thenApply(PublishResult::getMessageId);
+    } else if (microBatchingPublisher.isPresent()) {
+      publishRateLimiter.ifPresent(limiter -> limiter.acquire(topicArn, 1));
+      messageId = microBatchingPublisher.get().submit(topicArn, notification, attributes);
+    } else {
+      publishRateLimiter.ifPresent(limiter -> limiter.acquire(topicArn, 1));
+      PublishRequest publishRequest = publishRequest(topicArn, notification, attributes);
+      messageId = guarded(() -> publish(publishRequest)).thenApply(PublishResult::getMessageId);
+    }
+
+    return messageId.handle((id, e) -> {
+      if (e != null) {
+        Throwable cause = e instanceof CompletionException ? e.getCause() : e;
+        if (cause instanceof TooManyRequestsException
+            || cause instanceof ServiceUnavailableException) {
+          throw (RuntimeException) cause;
+        }
+        log.error("Not possible to publish notification.", cause);
+        if (cause instanceof UnprocessableEntityException) {
+          throw (UnprocessableEntityException) cause;
+        }
+        throw new UnprocessableEntityException(
+            messageError.create(Messages.SNS_INTEGRATION_HAS_FAILED), cause);
+      }
+      log.info("MessageId: {}", id);
+      return id;
+    });
+  }
+
+  @Override
+  public PublishBatchResponse publishBatch(List<Notification> notifications, String topic) {
+    return join(publishBatchAsync(notifications, topic));
+  }
+
+  /*
+    Batches to a FIFO topic only hold the messages of one lane and are sent on that lane. In
+    outbox mode every notification is appended to the local log like a single publish.
+   */
+  @Override
+  public CompletableFuture<PublishBatchResponse> publishBatchAsync(
+      List<Notification> notifications, String topic) {
+    String topicArn = topicArn(topic);
+    boolean fifo = MessageGroupLanes.isFifo(topicArn);
+    notifications.forEach(notification -> validateMessageGroup(notification, topic, fifo));
+    if (outboxLog.isPresent()) {
+      return appendBatch(topicArn, notifications);
+    }
+    List<List<PublishBatchRequestEntry>> batches = toBatches(topicArn, notifications, fifo);
+    log.info("Sending {} messages to sns topic: {} in {} batches", notifications.size(), topic,
+        batches.size());
+
+    ApiError integrationError = messageError.create(Messages.SNS_INTEGRATION_HAS_FAILED);
+    List<CompletableFuture<PublishBatchResponse>> futures = batches.stream()
+        .map(entries -> (fifo ? publishBatchOnLane(topicArn, entries)
+            : publishBatch(topicArn, entries))
+            .exceptionally(e -> failedBatch(entries, integrationError, e)))
+        .collect(Collectors.toList());
+    return merge(futures);
+  }
+
+  /*
+    Every attribute is validated before the first append, so an invalid entry rejects the whole
+    request as it does without the outbox. The message id of an accepted entry is its log
+    position.
+   */
+  private CompletableFuture<PublishBatchResponse> appendBatch(String topicArn,
+      List<Notification> notifications) {
+    notifications.forEach(this::attributes);
+    log.info("Appending {} messages for sns topic: {} to the outbox", notifications.size(),
+        topicArn);
+
+    ApiError writeError = messageError.create(Messages.OUTBOX_WRITE_FAILED);
+    List<CompletableFuture<PublishBatchResponse>> futures = new ArrayList<>(notifications.size());
+    for (int i = 0; i < notifications.size(); i++) {
+      String id = String.valueOf(i);
+      Notification received = notifications.get(i);
+      Notification notification = claimCheck.map(check -> check.offload(received))
+          .orElse(received);
+      futures.add(outboxLog.get().append(topicArn, notification)
+          .thenApply(position -> {
+            PublishBatchResponse response = new PublishBatchResponse();
+            response.getSuccessful().add(PublishBatchEntryResponse.builder()
+                .id(id)
+                .messageId(String.valueOf(position))
+                .build());
+            return response;
+          })
+          .exceptionally(e -> failedBatch(List.of(new PublishBatchRequestEntry().withId(id)),
+              writeError, e)));
+    }
+    return merge(futures);
+  }
+
+  private static CompletableFuture<PublishBatchResponse> merge(
+      List<CompletableFuture<PublishBatchResponse>> futures) {
+    return CompletableFuture.allOf(futures.toArray(new CompletableFuture[0]))
+        .thenApply(done -> {
+          PublishBatchResponse response = new PublishBatchResponse();
+          futures.stream()
+              .map(CompletableFuture::join)
+              .forEach(batch -> {
+                response.getSuccessful().addAll(batch.getSuccessful());
+                response.getFailed().addAll(batch.getFailed());
+              });
+          return response;
+        });
+  }
+
+  /*
+    A full lane fails its own batch only; the batches already queued on other lanes still publish
+    and the response tells the caller which entries to retry.
+   */
+  private CompletableFuture<PublishBatchResponse> publishBatchOnLane(String topicArn,
+      List<PublishBatchRequestEntry> entries) {
     try {
-      String topicArn = snsArn + ":" + topic;
-      PublishRequest publishRequest = new PublishRequest(
-          topicArn, notification.getBody(),
-          notification.getSubject());
-      PublishResult publishResult = this.amazonSNS.publish(publishRequest);
+      return messageGroupLanes.submit(topicArn,
+          messageGroupLanes.lane(topicArn, entries.get(0).getMessageGroupId()),
+          () -> publishBatch(topicArn, entries));
+    } catch (ServiceUnavailableException e) {
+      return CompletableFuture.failedFuture(e);
+    }
+  }
 
-      log.info("MessageId: {}", publishResult.getMessageId());
-    } catch (Exception e) {
-      log.error("Not possible to publish notification.", e.getCause());
+  private CompletableFuture<PublishBatchResponse> publishBatch(String topicArn,
+      List<PublishBatchRequestEntry> entries) {
+    PublishBatchRequest request = new PublishBatchRequest()
+        .withTopicArn(topicArn)
+        .withPublishBatchRequestEntries(entries);
+
+    try {
+      publishRateLimiter.ifPresent(limiter -> limiter.acquire(topicArn, entries.size()));
+    } catch (TooManyRequestsException e) {
+      return CompletableFuture.failedFuture(e);
+    }
+    return guarded(() -> publishBatch(request)).thenApply(this::toResponse);
+  }
+
+  private CompletableFuture<PublishResult> publish(PublishRequest request) {
+    return amazonSNSAsync.isPresent()
+        ? execute(amazonSNSAsync.get()::publishAsync, request)
+        : call(() -> amazonSNS.publish(request));
+  }
+
+  private CompletableFuture<PublishBatchResult> publishBatch(PublishBatchRequest request) {
+    return amazonSNSAsync.isPresent()
+        ? execute(amazonSNSAsync.get()::publishBatchAsync, request)
+        : CompletableFuture.supplyAsync(() -> amazonSNS.publishBatch(request), snsPublishExecutor);
+  }
+
+  private <R> CompletableFuture<R> guarded(Supplier<CompletableFuture<R>> call) {
+    return snsCallGuard.isPresent() ? snsCallGuard.get().call(call) : call.get();
+  }
+
+  private PublishBatchResponse toResponse(PublishBatchResult result) {
+    PublishBatchResponse response = new PublishBatchResponse();
+    result.getSuccessful().forEach(entry -> response.getSuccessful().add(
+        PublishBatchEntryResponse.builder()
+            .id(entry.getId())
+            .messageId(entry.getMessageId())
+            .build()));
+    result.getFailed().forEach(entry -> response.getFailed().add(
+        PublishBatchEntryResponse.builder()
+            .id(entry.getId())
+            .code(entry.getCode())
+            .description(entry.getMessage())
+            .build()));
+    return response;
+  }
+
+  private PublishBatchResponse failedBatch(List<PublishBatchRequestEntry> entries, ApiError error,
+      Throwable e) {
+    Throwable cause = e instanceof CompletionException ? e.getCause() : e;
+    ApiError entryError = error;
+    if (cause instanceof TooManyRequestsException) {
+      entryError = ((TooManyRequestsException) cause).getError();
+    } else if (cause instanceof ServiceUnavailableException) {
+      entryError = ((ServiceUnavailableException) cause).getError();
+    } else {
+      log.error("Not possible to publish notification batch.", e);
+      if (cause instanceof UnprocessableEntityException) {
+        entryError = ((UnprocessableEntityException) cause).getErrors().get(0);
+      }
+    }
+
+    PublishBatchResponse response = new PublishBatchResponse();
+    for (PublishBatchRequestEntry entry : entries) {
+      response.getFailed().add(PublishBatchEntryResponse.builder()
+          .id(entry.getId())
+          .code(entryError.getCode())
+          .description(entryError.getDescription())
+          .build());
+    }
+    return response;
+  }
+
+  private List<List<PublishBatchRequestEntry>> toBatches(String topicArn,
+      List<Notification> notifications, boolean fifo) {
+    List<PublishBatchRequestEntry> entries = new ArrayList<>(notifications.size());
+    for (int i = 0; i < notifications.size(); i++) {
+      Notification received = notifications.get(i);
+      Notification notification = claimCheck.map(check -> check.offload(received))
+          .orElse(received);
+      entries.add(new PublishBatchRequestEntry()
+          .withId(String.valueOf(i))
+          .withMessage(notification.getBody())
+          .withSubject(notification.getSubject())
+          .withMessageAttributes(attributes(notification))
+          .withMessageGroupId(notification.getMessageGroupId())
+          .withMessageDeduplicationId(notification.getMessageDeduplicationId()));
+    }
+    if (!fifo) {
+      return partition(entries);
+    }
+
+    Map<Integer, List<PublishBatchRequestEntry>> lanes = new LinkedHashMap<>();
+    for (PublishBatchRequestEntry entry : entries) {
+      lanes.computeIfAbsent(messageGroupLanes.lane(topicArn, entry.getMessageGroupId()),
+          lane -> new ArrayList<>()).add(entry);
+    }
+    List<List<PublishBatchRequestEntry>> batches = new ArrayList<>();
+    lanes.values().forEach(laneEntries -> batches.addAll(partition(laneEntries)));
+    return batches;
+  }
+
+  private static List<List<PublishBatchRequestEntry>> partition(
+      List<PublishBatchRequestEntry> entries) {
+    return PublishBatches.partitionByBytes(entries,
+        entry -> MessageAttributes.payloadBytes(entry.getMessage(), entry.getMessageAttributes()));
+  }
+
+  private static PublishRequest publishRequest(String topicArn, Notification notification,
+      Map<String, MessageAttributeValue> attributes) {
+    return new PublishRequest(topicArn, notification.getBody(), notification.getSubject())
+        .withMessageAttributes(attributes)
+        .withMessageGroupId(notification.getMessageGroupId())
+        .withMessageDeduplicationId(notification.getMessageDeduplicationId());
+  }
+
+  /*
+    SNS requires a message group on FIFO topics and rejects group and deduplication ids on
+    standard ones; both are answered here without a call.
+   */
+  private void validateMessageGroup(Notification notification, String topic, boolean fifo) {
+    if (fifo && Strings.isNullOrEmpty(notification.getMessageGroupId())) {
+      throw new UnprocessableEntityException(messageError.create(
+          Messages.INVALID_FIFO_PUBLISH, topic, "messageGroupId is required"));
+    }
+    if (!fifo && (notification.getMessageGroupId() != null
+        || notification.getMessageDeduplicationId() != null)) {
+      throw new UnprocessableEntityException(messageError.create(
+          Messages.INVALID_FIFO_PUBLISH, topic,
+          "messageGroupId and messageDeduplicationId are only accepted by FIFO topics"));
+    }
+  }
+
+  private Map<String, MessageAttributeValue> attributes(Notification notification) {
+    try {
+      return MessageAttributes.toSns(notification.getAttributes());
+    } catch (IllegalArgumentException e) {
       throw new UnprocessableEntityException(
-          messageError.create(Messages.SNS_INTEGRATION_HAS_FAILED, e.getMessage()));
+          messageError.create(Messages.INVALID_MESSAGE_ATTRIBUTE, e.getMessage()));
     }
   }
 
   @Override
-  public List<Subscription> getSubscribes(String topic) {
+  public Stream<Subscription> getSubscribes(String topic) {
     try {
-      ListSubscriptionsByTopicResult result = amazonSNS.listSubscriptionsByTopic(snsArn + ":" + topic);
-      return Optional.ofNullable(result)
-          .map(ListSubscriptionsByTopicResult::getSubscriptions)
-          .orElse(List.of());
+      return subscriptionPageCache.stream(snsArn + ":" + topic);
     } catch (Exception e) {
       log.error("Error to get subscribes", e.getCause());
     }
 
-    return List.of();
+    return Stream.empty();
   }
 
   @Override
   public CreateTopicResponse createTopic(TopicRequest topicRequest) {
-    CreateTopicResult topicResult = amazonSNS.createTopic(topicRequest.getName());
+    CreateTopicRequest request = new CreateTopicRequest(topicRequest.getName());
+    if (MessageGroupLanes.isFifo(topicRequest.getName())) {
+      request.addAttributesEntry(FIFO_TOPIC_ATTRIBUTE, "true");
+      if (topicRequest.isContentBasedDeduplication()) {
+        request.addAttributesEntry(CONTENT_BASED_DEDUPLICATION_ATTRIBUTE, "true");
+      }
+    }
+    CreateTopicResult topicResult = amazonSNS.createTopic(request);
+    topicRegistry.register(topicResult.getTopicArn());
     return CreateTopicResponse.builder()
         .arn(topicResult.getTopicArn())
         .status(topicResult
@@ -114,13 +443,56 @@ public class AmazonSNSIntegrationServiceImpl implements SNSService {
 
   @Override
   public List<GetTopicResponse> getTopics() {
-    return amazonSNS.listTopics()
-        .getTopics()
+    return topicRegistry.getTopicArns()
         .stream()
-        .map(topic -> GetTopicResponse.builder()
-            .arn(topic.getTopicArn())
+        .map(topicArn -> GetTopicResponse.builder()
+            .arn(topicArn)
             .build())
         .collect(Collectors.toList());
   }
 
+  private static <Q extends AmazonWebServiceRequest, R> CompletableFuture<R> execute(
+      BiConsumer<Q, AsyncHandler<Q, R>> call, Q request) {
+    CompletableFuture<R> future = new CompletableFuture<>();
+    call.accept(request, new AsyncHandler<>() {
+      @Override
+      public void onError(Exception exception) {
+        future.completeExceptionally(exception);
+      }
+
+      @Override
+      public void onSuccess(Q request, R result) {
+        future.complete(result);
+      }
+    });
+    return future;
+  }
+
+  private static <R> CompletableFuture<R> call(Supplier<R> call) {
+    try {
+      return CompletableFuture.completedFuture(call.get());
+    } catch (Exception e) {
+      return CompletableFuture.failedFuture(e);
+    }
+  }
+
+  private static <T> T join(CompletableFuture<T> future) {
+    try {
+      return future.join();
+    } catch (CompletionException e) {
+      if (e.getCause() instanceof RuntimeException) {
+        throw (RuntimeException) e.getCause();
+      }
+      throw e;
+    }
+  }
+
+  private String topicArn(String topic) {
+    String topicArn = snsArn + ":" + topic;
+    if (!topicRegistry.contains(topicArn)) {
+      throw new NotFoundException(messageError.create(Messages.TOPIC_NOT_FOUND, topic));
+    }
+    return topicArn;
+  }
+
 }
@@ -0,0 +1,217 @@
+package com.poc.aws.sns.api.service.impl;
+
+import com.amazonaws.AmazonServiceException;
+import com.amazonaws.services.sns.model.Subscription;
+import com.google.common.base.Strings;
+import com.google.common.base.Utf8;
+import com.poc.aws.sns.api.exceptions.NotFoundException;
+import com.poc.aws.sns.api.exceptions.ServiceUnavailableException;
+import com.poc.aws.sns.api.exceptions.TooManyRequestsException;
+import com.poc.aws.sns.api.exceptions.UnprocessableEntityException;
+import com.poc.aws.sns.api.interfaces.json.Notification;
+import com.poc.aws.sns.api.interfaces.json.request.TopicRequest;
+import com.poc.aws.sns.api.interfaces.json.response.CreateTopicResponse;
+import com.poc.aws.sns.api.interfaces.json.response.GetTopicResponse;
+import com.poc.aws.sns.api.interfaces.json.response.PublishBatchResponse;
+import com.poc.aws.sns.api.service.SNSService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Primary;
+import org.springframework.stereotype.Service;
+
+/*
+  Records latency, throughput, payload size and errors of every SNSService operation, tagged by
+  operation and topic. Only the first max-topic-tags topics with a successful operation get
+  their own tag, so calls to missing or invalid topics cannot use up the slots; the remaining
+  ones share the "other" tag to keep the series count bounded. Latencies are published as
+  histogram buckets only, which the percentiles are computed from across instances.
+ */
+@Service
+@Primary
+public class MeteredSNSService implements SNSService {
+
+  private static final String OTHER_TOPIC = "other";
+  private static final String NO_TOPIC = "none";
+
+  private final SNSService delegate;
+  private final MeterRegistry registry;
+  private final int maxTopicTags;
+  private final Set<String> taggedTopics = ConcurrentHashMap.newKeySet();
+
+  public MeteredSNSService(AmazonSNSIntegrationServiceImpl delegate, MeterRegistry registry,
+      @Value("${aws.sns.metrics.max-topic-tags:50}") int maxTopicTags) {
+    this.delegate = delegate;
+    this.registry = registry;
+    this.maxTopicTags = maxTopicTags;
+  }
+
+  @Override
+  public String subscribe(String topic, String filterPolicy) {
+    return record("subscribe", topic, () -> delegate.subscribe(topic, filterPolicy));
+  }
+
+  @Override
+  public Stream<Subscription> getSubscribes(String topic) {
+    return record("listSubscriptions", topic, () -> delegate.getSubscribes(topic));
+  }
+
+  @Override
+  public CreateTopicResponse createTopic(TopicRequest topicRequest) {
+    return record("createTopic", topicRequest.getName(), () -> delegate.createTopic(topicRequest));
+  }
+
+  @Override
+  public List<GetTopicResponse> getTopics() {
+    return record("listTopics", null, delegate::getTopics);
+  }
+
+  @Override
+  public void publish(Notification notification, String topic) {
+    recordPayload("publish", topic, payloadSize(notification));
+    record("publish", topic, () -> {
+      delegate.publish(notification, topic);
+      return null;
+    });
+  }
+
+  @Override
+  public CompletableFuture<String> publishAsync(Notification notification, String topic) {
+    recordPayload("publish", topic, payloadSize(notification));
+    return recordAsync("publish", topic, () -> delegate.publishAsync(notification, topic));
+  }
+
+  @Override
+  public PublishBatchResponse publishBatch(List<Notification> notifications, String topic) {
+    recordPayload("publishBatch", topic, payloadSize(notifications));
+    return record("publishBatch", topic, () -> delegate.publishBatch(notifications, topic));
+  }
+
+  @Override
+  public CompletableFuture<PublishBatchResponse> publishBatchAsync(
+      List<Notification> notifications, String topic) {
+    recordPayload("publishBatch", topic, payloadSize(notifications));
+    return recordAsync("publishBatch", topic,
+        () -> delegate.publishBatchAsync(notifications, topic));
+  }
+
+  private <T> T record(String operation, String topic, Supplier<T> call) {
+    Timer.Sample sample = Timer.start(registry);
+    try {
+      T result = call.get();
+      stop(sample, operation, topic, null);
+      return result;
+    } catch (RuntimeException e) {
+      stop(sample, operation, topic, e);
+      throw e;
+    }
+  }
+
+  private <T> CompletableFuture<T> recordAsync(String operation, String topic,
+      Supplier<CompletableFuture<T>> call) {
+    Timer.Sample sample = Timer.start(registry);
+    try {
+      return call.get().whenComplete((result, e) -> stop(sample, operation, topic, e));
+    } catch (RuntimeException e) {
+      stop(sample, operation, topic, e);
+      throw e;
+    }
+  }
+
+  private void stop(Timer.Sample sample, String operation, String topic, Throwable error) {
+    String topicTag = topicTag(topic, error == null);
+    sample.stop(Timer.builder("sns.operation")
+        .description("Latency of SNS operations")
+        .tag("operation", operation)
+        .tag("topic", topicTag)
+        .tag("outcome", error == null ? "success" : "error")
+        .publishPercentileHistogram()
+        .register(registry));
+
+    if (error != null) {
+      Counter.builder("sns.operation.errors")
+          .description("Failed SNS operations by error code")
+          .tag("operation", operation)
+          .tag("topic", topicTag)
+          .tag("code", errorCode(error))
+          .register(registry)
+          .increment();
+    }
+  }
+
+  private void recordPayload(String operation, String topic, long bytes) {
+    DistributionSummary.builder("sns.payload.size")
+        .description("Size of the published message bodies")
+        .baseUnit("bytes")
+        .tag("operation", operation)
+        .tag("topic", topicTag(topic, false))
+        .publishPercentiles(0.5, 0.99)
+        .register(registry)
+        .record(bytes);
+  }
+
+  private String topicTag(String topic, boolean succeeded) {
+    if (topic == null) {
+      return NO_TOPIC;
+    }
+    if (taggedTopics.contains(topic)) {
+      return topic;
+    }
+    if (!succeeded) {
+      return OTHER_TOPIC;
+    }
+    synchronized (taggedTopics) {
+      if (taggedTopics.size() < maxTopicTags) {
+        taggedTopics.add(topic);
+        return topic;
+      }
+    }
+    return OTHER_TOPIC;
+  }
+
+  /*
+    SDK error code when SNS answered, otherwise the code of the API error returned to the caller.
+   */
+  private static String errorCode(Throwable error) {
+    for (Throwable cause = error; cause != null; cause = cause.getCause()) {
+      if (cause instanceof AmazonServiceException
+          && ((AmazonServiceException) cause).getErrorCode() != null) {
+        return ((AmazonServiceException) cause).getErrorCode();
+      }
+    }
+
+    Throwable cause = error instanceof CompletionException && error.getCause() != null
+        ? error.getCause() : error;
+    if (cause instanceof UnprocessableEntityException) {
+      return ((UnprocessableEntityException) cause).getErrors().get(0).getCode();
+    }
+    if (cause instanceof NotFoundException) {
+      return ((NotFoundException) cause).getError().getCode();
+    }
+    if (cause instanceof ServiceUnavailableException) {
+      return ((ServiceUnavailableException) cause).getError().getCode();
+    }
+    if (cause instanceof TooManyRequestsException) {
+      return ((TooManyRequestsException) cause).getError().getCode();
+    }
+    return cause.getClass().getSimpleName();
+  }
+
+  private static long payloadSize(Notification notification) {
+    return Utf8.encodedLength(Strings.nullToEmpty(notification.getBody()));
+  }
+
+  private static long payloadSize(List<Notification> notifications) {
+    return notifications.stream().mapToLong(MeteredSNSService::payloadSize).sum();
+  }
+
+}
@@ -0,0 +1,18 @@
+package com.poc.aws.sns.api.service.inbound;
+
+import com.poc.aws.sns.api.interfaces.json.MessageAttribute;
+import java.util.Map;
+import lombok.Builder;
+import lombok.Value;
+
+@Value
+@Builder(toBuilder = true)
+public class InboundNotification {
+
+  String topicArn;
+  String messageId;
+  String subject;
+  String message;
+  Map<String, MessageAttribute> attributes;
+
+}
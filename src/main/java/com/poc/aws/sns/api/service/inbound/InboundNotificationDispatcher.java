@@ -0,0 +1,176 @@
+package com.poc.aws.sns.api.service.inbound;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.poc.aws.sns.api.exceptions.MessageError;
+import com.poc.aws.sns.api.exceptions.ServiceUnavailableException;
+import com.poc.aws.sns.api.interfaces.Messages;
+import com.poc.aws.sns.api.service.claimcheck.ClaimCheck;
+import com.poc.aws.sns.api.service.filter.FilterEngine;
+import com.poc.aws.sns.api.service.filter.FilterInput;
+import com.poc.aws.sns.api.service.filter.FilterPolicy;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import javax.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/*
+  Hands inbound notifications to a fixed set of partitions, each one a small pool with its own
+  bounded queue. A topic always lands on the same partition, so a slow or noisy topic fills its
+  own queue without starving the others. When the partition is full the delivery is rejected
+  with 503 and SNS retries it later with its delivery policy backoff.
+
+  The handlers a notification goes to are chosen by their filter policies on the request
+  thread; a notification no handler wants is acknowledged without being queued.
+ */
+@Slf4j
+@Component
+public class InboundNotificationDispatcher {
+
+  private final FilterEngine<InboundNotificationHandler> handlers;
+  private final Optional<MessageIdDeduplicator> messageIdDeduplicator;
+  private final Optional<ClaimCheck> claimCheck;
+  private final MessageError messageError;
+  private final ThreadPoolExecutor[] partitions;
+  private final Timer handleSuccess;
+  private final Timer handleFailure;
+  private final Counter rejected;
+  private final Counter filtered;
+
+  public InboundNotificationDispatcher(List<InboundNotificationHandler> handlers,
+      Optional<MessageIdDeduplicator> messageIdDeduplicator, Optional<ClaimCheck> claimCheck,
+      MessageError messageError, MeterRegistry meterRegistry,
+      @Value("${aws.sns.inbound.partitions:8}") int partitionCount,
+      @Value("${aws.sns.inbound.threads-per-partition:1}") int threadsPerPartition,
+      @Value("${aws.sns.inbound.queue-capacity:1000}") int queueCapacity) {
+    this.handlers = compile(handlers);
+    this.messageIdDeduplicator = messageIdDeduplicator;
+    this.claimCheck = claimCheck;
+    this.messageError = messageError;
+    this.partitions = new ThreadPoolExecutor[partitionCount];
+    for (int i = 0; i < partitionCount; i++) {
+      partitions[i] = new ThreadPoolExecutor(threadsPerPartition, threadsPerPartition,
+          0L, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(queueCapacity),
+          new ThreadFactoryBuilder().setNameFormat("sns-inbound-" + i + "-%d").build(),
+          new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    this.handleSuccess = handleTimer(meterRegistry, "success");
+    this.handleFailure = handleTimer(meterRegistry, "failure");
+    this.rejected = Counter.builder("sns.inbound.rejected")
+        .description("Inbound notifications answered with 503 because the partition was full")
+        .register(meterRegistry);
+    this.filtered = Counter.builder("sns.inbound.filtered")
+        .description("Inbound notifications no handler filter policy matched")
+        .register(meterRegistry);
+    Gauge.builder("sns.inbound.queue.size", this,
+            dispatcher -> Arrays.stream(dispatcher.partitions)
+                .mapToInt(partition -> partition.getQueue().size())
+                .sum())
+        .description("Inbound notifications waiting for a worker")
+        .register(meterRegistry);
+  }
+
+  /*
+    Deliveries SNS already made are acknowledged again without being processed. The duplicate
+    check, the enqueue and the mark are one step per MessageId, so concurrent deliveries of the
+    same message are queued once.
+   */
+  public void dispatch(InboundNotification notification) {
+    List<InboundNotificationHandler> targets = handlers.route(
+        FilterInput.of(notification.getAttributes()));
+    if (targets.isEmpty()) {
+      filtered.increment();
+      return;
+    }
+
+    String messageId = notification.getMessageId();
+    if (messageId == null || messageIdDeduplicator.isEmpty()) {
+      enqueue(notification, targets);
+    } else if (!messageIdDeduplicator.get().acceptOnce(messageId,
+        () -> enqueue(notification, targets))) {
+      log.debug("Dropping duplicate message {}", messageId);
+    }
+  }
+
+  private void enqueue(InboundNotification notification,
+      List<InboundNotificationHandler> targets) {
+    ThreadPoolExecutor partition = partitions[Math.floorMod(
+        notification.getTopicArn() == null ? 0 : notification.getTopicArn().hashCode(),
+        partitions.length)];
+    try {
+      partition.execute(() -> handle(notification, targets));
+    } catch (RejectedExecutionException e) {
+      rejected.increment();
+      throw new ServiceUnavailableException(
+          messageError.create(Messages.INBOUND_QUEUE_FULL, notification.getTopicArn()));
+    }
+  }
+
+  private void handle(InboundNotification notification,
+      List<InboundNotificationHandler> targets) {
+    long started = System.nanoTime();
+    try {
+      InboundNotification resolved = claimCheck.isPresent()
+          ? notification.toBuilder()
+              .message(claimCheck.get().resolve(notification.getMessage()))
+              .build()
+          : notification;
+      for (InboundNotificationHandler handler : targets) {
+        handler.handle(resolved);
+      }
+      handleSuccess.record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+    } catch (RuntimeException e) {
+      handleFailure.record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+      log.error("Not possible to handle message {} from topic {}", notification.getMessageId(),
+          notification.getTopicArn(), e);
+    }
+  }
+
+  private static FilterEngine<InboundNotificationHandler> compile(
+      List<InboundNotificationHandler> handlers) {
+    FilterEngine.Builder<InboundNotificationHandler> engine = FilterEngine.builder();
+    for (InboundNotificationHandler handler : handlers) {
+      String policy = handler.filterPolicy();
+      try {
+        engine.add(handler, policy == null ? null : FilterPolicy.compile(policy));
+      } catch (IllegalArgumentException e) {
+        throw new IllegalStateException("Invalid filter policy of " + handler.getClass()
+            .getSimpleName() + ": " + e.getMessage(), e);
+      }
+    }
+    return engine.build();
+  }
+
+  private static Timer handleTimer(MeterRegistry meterRegistry, String outcome) {
+    return Timer.builder("sns.inbound.handle")
+        .description("Processing time of inbound notifications")
+        .tag("outcome", outcome)
+        .publishPercentiles(0.5, 0.99)
+        .register(meterRegistry);
+  }
+
+  @PreDestroy
+  public void shutdown() throws InterruptedException {
+    for (ThreadPoolExecutor partition : partitions) {
+      partition.shutdown();
+    }
+    for (ThreadPoolExecutor partition : partitions) {
+      if (!partition.awaitTermination(10, TimeUnit.SECONDS)) {
+        log.warn("Inbound notifications still queued at shutdown: {}", partition.getQueue().size());
+        partition.shutdownNow();
+      }
+    }
+  }
+
+}
@@ -0,0 +1,19 @@
+package com.poc.aws.sns.api.service.inbound;
+
+/*
+  Processing of a notification delivered by SNS, called from the inbound worker pool after the
+  HTTP delivery was acknowledged.
+ */
+public interface InboundNotificationHandler {
+
+  void handle(InboundNotification notification);
+
+  /*
+    SNS filter policy on the message attributes selecting the notifications this handler
+    receives, null for all of them.
+   */
+  default String filterPolicy() {
+    return null;
+  }
+
+}
@@ -0,0 +1,30 @@
+package com.poc.aws.sns.api.service.inbound;
+
+import com.google.common.base.Strings;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+@Slf4j
+@Component
+public class LoggingNotificationHandler implements InboundNotificationHandler {
+
+  private final String filterPolicy;
+
+  public LoggingNotificationHandler(
+      @Value("${aws.sns.inbound.logging.filter-policy:}") String filterPolicy) {
+    this.filterPolicy = Strings.emptyToNull(filterPolicy);
+  }
+
+  @Override
+  public void handle(InboundNotification notification) {
+    log.info("Received message: {}, having subject: {}", notification.getMessage(),
+        notification.getSubject());
+  }
+
+  @Override
+  public String filterPolicy() {
+    return filterPolicy;
+  }
+
+}
@@ -0,0 +1,191 @@
+package com.poc.aws.sns.api.service.inbound;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import javax.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+/*
+  Remembers the MessageIds seen during the last window in a ring of Bloom filters. Every
+  rotation clears the oldest filter and makes it the one written to, so a MessageId is
+  remembered for at least the window and the memory stays what was sized at startup. Hashing
+  walks the chars of the id and the filters are plain bit arrays, nothing is allocated per
+  message. A false positive drops a new message, its rate is published as
+  sns.inbound.dedupe.false-positive-probability. Check and mark of one MessageId hold one of
+  STRIPES locks, picked by its hash, so concurrent deliveries of the same id are serialized
+  while different ids rarely wait on each other.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(value = "aws.sns.inbound.dedupe.enabled", havingValue = "true",
+    matchIfMissing = true)
+public class MessageIdDeduplicator {
+
+  private static final int STRIPES = 256;
+
+  private final Object[] stripes = new Object[STRIPES];
+  private final Generation[] generations;
+  private final int hashFunctions;
+  private final ScheduledExecutorService rotation = Executors.newSingleThreadScheduledExecutor(
+      new ThreadFactoryBuilder().setNameFormat("sns-inbound-dedupe-%d").setDaemon(true).build());
+  private final Counter checked;
+  private final Counter duplicates;
+  private volatile int current;
+
+  public MessageIdDeduplicator(MeterRegistry meterRegistry,
+      @Value("${aws.sns.inbound.dedupe.window-ms:3600000}") long windowMillis,
+      @Value("${aws.sns.inbound.dedupe.generations:4}") int generationCount,
+      @Value("${aws.sns.inbound.dedupe.expected-messages-per-window:10000000}") long expected,
+      @Value("${aws.sns.inbound.dedupe.false-positive-probability:0.0001}") double fpp) {
+    int rotations = Math.max(1, generationCount - 1);
+    long perGeneration = Math.max(1, expected / rotations);
+    long bits = (long) Math.ceil(-perGeneration * Math.log(fpp) / (Math.log(2) * Math.log(2)));
+    int words = (int) Math.min(Integer.MAX_VALUE - 8, (bits + 63) >>> 6);
+    this.hashFunctions = Math.max(1, (int) Math.round((double) words * 64 / perGeneration
+        * Math.log(2)));
+    for (int i = 0; i < STRIPES; i++) {
+      stripes[i] = new Object();
+    }
+    this.generations = new Generation[rotations + 1];
+    for (int i = 0; i < generations.length; i++) {
+      generations[i] = new Generation(words);
+    }
+    log.info("MessageId dedupe with {} filters of {} KB and {} hash functions", generations.length,
+        words / 128, hashFunctions);
+
+    long rotationMillis = Math.max(1, windowMillis / rotations);
+    rotation.scheduleAtFixedRate(this::rotate, rotationMillis, rotationMillis,
+        TimeUnit.MILLISECONDS);
+
+    this.checked = Counter.builder("sns.inbound.dedupe.checked")
+        .description("Inbound MessageIds checked for duplicates")
+        .register(meterRegistry);
+    this.duplicates = Counter.builder("sns.inbound.dedupe.duplicates")
+        .description("Inbound deliveries dropped as duplicates")
+        .register(meterRegistry);
+    Gauge.builder("sns.inbound.dedupe.false-positive-probability", this,
+            MessageIdDeduplicator::falsePositiveProbability)
+        .description("Estimated probability that a new MessageId is taken for a duplicate")
+        .register(meterRegistry);
+  }
+
+  /*
+    Runs accept unless the MessageId was seen, and marks it seen once accept returned; false
+    for a duplicate. An exception from accept leaves the id unmarked, so a delivery rejected
+    with 503 is not mistaken for a duplicate when SNS retries it.
+   */
+  public boolean acceptOnce(String messageId, Runnable accept) {
+    checked.increment();
+    long h1 = hash(messageId, 0x9E3779B97F4A7C15L);
+    long h2 = hash(messageId, 0xC2B2AE3D27D4EB4FL) | 1;
+    synchronized (stripes[Math.floorMod(h1, STRIPES)]) {
+      for (Generation generation : generations) {
+        if (generation.mightContain(h1, h2, hashFunctions)) {
+          duplicates.increment();
+          return false;
+        }
+      }
+      accept.run();
+      generations[current].put(h1, h2, hashFunctions);
+      return true;
+    }
+  }
+
+  private void rotate() {
+    int next = (current + 1) % generations.length;
+    generations[next].clear();
+    current = next;
+  }
+
+  /*
+    A new id is reported as duplicate when all its bits are set in any of the filters.
+   */
+  private double falsePositiveProbability() {
+    double none = 1;
+    for (Generation generation : generations) {
+      none *= 1 - Math.pow(generation.fillRatio(), hashFunctions);
+    }
+    return 1 - none;
+  }
+
+  private static long hash(String value, long seed) {
+    long hash = seed;
+    for (int i = 0; i < value.length(); i++) {
+      hash = (hash ^ value.charAt(i)) * 0x100000001B3L;
+    }
+    hash ^= hash >>> 33;
+    hash *= 0xFF51AFD7ED558CCDL;
+    hash ^= hash >>> 33;
+    hash *= 0xC4CEB9FE1A85EC53L;
+    return hash ^ (hash >>> 33);
+  }
+
+  @PreDestroy
+  public void shutdown() {
+    rotation.shutdownNow();
+  }
+
+  private static class Generation {
+
+    private final AtomicLongArray words;
+    private final long bitCount;
+    private final AtomicLong setBits = new AtomicLong();
+
+    private Generation(int wordCount) {
+      this.words = new AtomicLongArray(wordCount);
+      this.bitCount = (long) wordCount * 64;
+    }
+
+    private boolean mightContain(long h1, long h2, int hashFunctions) {
+      long combined = h1;
+      for (int i = 0; i < hashFunctions; i++, combined += h2) {
+        long bit = Long.remainderUnsigned(combined, bitCount);
+        if ((words.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+          return false;
+        }
+      }
+      return true;
+    }
+
+    private void put(long h1, long h2, int hashFunctions) {
+      long combined = h1;
+      for (int i = 0; i < hashFunctions; i++, combined += h2) {
+        long bit = Long.remainderUnsigned(combined, bitCount);
+        int index = (int) (bit >>> 6);
+        long mask = 1L << bit;
+        long word;
+        do {
+          word = words.get(index);
+          if ((word & mask) != 0) {
+            break;
+          }
+        } while (!words.compareAndSet(index, word, word | mask));
+        if ((word & mask) == 0) {
+          setBits.incrementAndGet();
+        }
+      }
+    }
+
+    private void clear() {
+      for (int i = 0; i < words.length(); i++) {
+        words.set(i, 0);
+      }
+      setBits.set(0);
+    }
+
+    private double fillRatio() {
+      return (double) setBits.get() / bitCount;
+    }
+  }
+
+}
@@ -0,0 +1,211 @@
+package com.poc.aws.sns.api.service.outbox;
+
+import static com.poc.aws.sns.api.service.batch.PublishBatches.MAX_BATCH_ENTRIES;
+import static com.poc.aws.sns.api.service.batch.PublishBatches.MAX_BATCH_PAYLOAD_BYTES;
+
+import com.amazonaws.AmazonServiceException;
+import com.amazonaws.SdkClientException;
+import com.amazonaws.services.sns.AmazonSNS;
+import com.amazonaws.services.sns.model.BatchResultErrorEntry;
+import com.amazonaws.services.sns.model.PublishBatchRequest;
+import com.amazonaws.services.sns.model.PublishBatchRequestEntry;
+import com.amazonaws.services.sns.model.PublishBatchResult;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.poc.aws.sns.api.service.attributes.MessageAttributes;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.stereotype.Component;
+
+/*
+  Replays the outbox to SNS in order, as PublishBatch calls of consecutive records for the
+  same topic. Every error is retried with exponential backoff until it succeeds, throttling,
+  5xx and network errors as well as expired credentials, missing permissions or a missing
+  topic, so an outage of SNS or IAM only grows the backlog. Only entries that are invalid in
+  themselves (bad parameters, too large) are moved to the dead-letter file; a whole batch SNS
+  rejects as invalid is sent again entry by entry to find them. Delivery is at least once:
+  records drained after the last checkpoint are sent again after a crash. Records of a FIFO
+  topic keep their order as the log is drained by this single thread. Never lazy, nothing else
+  references it.
+ */
+@Slf4j
+@Lazy(false)
+@Component
+@ConditionalOnProperty(value = "aws.sns.outbox.enabled", havingValue = "true")
+public class OutboxDrainer {
+
+  /* errors of the request content, sending it again can never succeed */
+  private static final Set<String> INVALID_REQUEST_ERRORS = Set.of("InvalidParameter",
+      "InvalidParameterValue", "ValidationError", "BatchRequestTooLong",
+      "BatchEntryIdsNotDistinct", "TooManyEntriesInBatchRequest", "InvalidBatchEntryId",
+      "EmptyBatchRequest");
+
+  private final OutboxLog outboxLog;
+  private final AmazonSNS amazonSNS;
+  private final long checkpointIntervalMillis;
+  private final long initialBackoffMillis;
+  private final long maxBackoffMillis;
+  private final Counter published;
+  private final Counter deadLettered;
+  private final Thread drainer;
+
+  private volatile boolean running = true;
+
+  public OutboxDrainer(OutboxLog outboxLog, AmazonSNS amazonSNS, MeterRegistry meterRegistry,
+      @Value("${aws.sns.outbox.checkpoint-interval-ms:1000}") long checkpointIntervalMillis,
+      @Value("${aws.sns.outbox.initial-backoff-ms:100}") long initialBackoffMillis,
+      @Value("${aws.sns.outbox.max-backoff-ms:30000}") long maxBackoffMillis) {
+    this.outboxLog = outboxLog;
+    this.amazonSNS = amazonSNS;
+    this.checkpointIntervalMillis = checkpointIntervalMillis;
+    this.initialBackoffMillis = initialBackoffMillis;
+    this.maxBackoffMillis = maxBackoffMillis;
+    this.published = Counter.builder("sns.outbox.drained")
+        .description("Outbox records published to SNS")
+        .tag("outcome", "published")
+        .register(meterRegistry);
+    this.deadLettered = Counter.builder("sns.outbox.drained")
+        .description("Outbox records published to SNS")
+        .tag("outcome", "dead-letter")
+        .register(meterRegistry);
+    this.drainer = new ThreadFactoryBuilder().setNameFormat("sns-outbox-drainer-%d").build()
+        .newThread(this::drain);
+  }
+
+  @PostConstruct
+  public void start() {
+    drainer.start();
+  }
+
+  @PreDestroy
+  public void stop() throws InterruptedException {
+    running = false;
+    drainer.interrupt();
+    drainer.join(TimeUnit.SECONDS.toMillis(10));
+  }
+
+  private void drain() {
+    long position = outboxLog.checkpoint();
+    long checkpointed = position;
+    long lastCheckpoint = System.currentTimeMillis();
+    List<OutboxEntry> entries = new ArrayList<>(MAX_BATCH_ENTRIES);
+
+    try {
+      while (running) {
+        entries.clear();
+        long next = outboxLog.read(position, MAX_BATCH_ENTRIES, MAX_BATCH_PAYLOAD_BYTES, entries);
+        if (!entries.isEmpty()) {
+          publish(entries);
+        }
+        position = next;
+
+        boolean idle = entries.isEmpty();
+        if (position != checkpointed && (idle
+            || System.currentTimeMillis() - lastCheckpoint >= checkpointIntervalMillis)) {
+          outboxLog.checkpoint(position);
+          checkpointed = position;
+          lastCheckpoint = System.currentTimeMillis();
+        }
+        if (idle) {
+          outboxLog.awaitData(position, checkpointIntervalMillis);
+        }
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    } finally {
+      if (position != checkpointed) {
+        outboxLog.checkpoint(position);
+      }
+    }
+  }
+
+  private void publish(List<OutboxEntry> entries) throws InterruptedException {
+    List<OutboxEntry> remaining = entries;
+    long backoff = initialBackoffMillis;
+
+    while (true) {
+      try {
+        remaining = retriable(remaining, amazonSNS.publishBatch(request(remaining)));
+        if (remaining.isEmpty()) {
+          return;
+        }
+        log.warn("SNS failed {} outbox entries, retrying in {} ms", remaining.size(), backoff);
+      } catch (AmazonServiceException e) {
+        if (INVALID_REQUEST_ERRORS.contains(e.getErrorCode())) {
+          if (remaining.size() == 1) {
+            deadLetter(remaining.get(0), e.getErrorCode(), e.getErrorMessage());
+          } else {
+            for (OutboxEntry entry : remaining) {
+              publish(List.of(entry));
+            }
+          }
+          return;
+        }
+        log.warn("Not possible to drain the outbox ({}), retrying in {} ms", e.getErrorCode(),
+            backoff);
+      } catch (SdkClientException e) {
+        log.warn("Not possible to drain the outbox ({}), retrying in {} ms", e.getMessage(),
+            backoff);
+      }
+
+      if (!running) {
+        throw new InterruptedException();
+      }
+      TimeUnit.MILLISECONDS.sleep(backoff);
+      backoff = Math.min(maxBackoffMillis, backoff * 2);
+    }
+  }
+
+  private List<OutboxEntry> retriable(List<OutboxEntry> entries, PublishBatchResult result) {
+    published.increment(result.getSuccessful().size());
+    List<OutboxEntry> retriable = new ArrayList<>(result.getFailed().size());
+    for (BatchResultErrorEntry failed : result.getFailed()) {
+      OutboxEntry entry = entries.get(Integer.parseInt(failed.getId()));
+      if (failed.isSenderFault() && INVALID_REQUEST_ERRORS.contains(failed.getCode())) {
+        deadLetter(entry, failed.getCode(), failed.getMessage());
+      } else {
+        retriable.add(entry);
+      }
+    }
+    return retriable;
+  }
+
+  private void deadLetter(OutboxEntry entry, String code, String message) {
+    log.error("SNS rejected outbox entry {} for topic {} as invalid, moving it to the dead-letter"
+        + " file: {} {}", entry.getPosition(), entry.getTopicArn(), code, message);
+    try {
+      outboxLog.deadLetter(entry);
+    } catch (IOException e) {
+      log.error("Not possible to dead-letter outbox entry {}, it is lost", entry.getPosition(), e);
+    }
+    deadLettered.increment();
+  }
+
+  private static PublishBatchRequest request(List<OutboxEntry> entries) {
+    List<PublishBatchRequestEntry> requestEntries = new ArrayList<>(entries.size());
+    for (int i = 0; i < entries.size(); i++) {
+      OutboxEntry entry = entries.get(i);
+      requestEntries.add(new PublishBatchRequestEntry()
+          .withId(String.valueOf(i))
+          .withSubject(entry.getSubject())
+          .withMessage(entry.getBody())
+          .withMessageAttributes(MessageAttributes.toSns(entry.getAttributes()))
+          .withMessageGroupId(entry.getMessageGroupId())
+          .withMessageDeduplicationId(entry.getMessageDeduplicationId()));
+    }
+    return new PublishBatchRequest()
+        .withTopicArn(entries.get(0).getTopicArn())
+        .withPublishBatchRequestEntries(requestEntries);
+  }
+
+}
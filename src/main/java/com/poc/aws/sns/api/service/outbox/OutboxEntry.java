@@ -0,0 +1,18 @@
+package com.poc.aws.sns.api.service.outbox;
+
+import com.poc.aws.sns.api.interfaces.json.MessageAttribute;
+import java.util.Map;
+import lombok.Value;
+
+@Value
+public class OutboxEntry {
+
+  long position;
+  String topicArn;
+  String subject;
+  String body;
+  Map<String, MessageAttribute> attributes;
+  String messageGroupId;
+  String messageDeduplicationId;
+
+}
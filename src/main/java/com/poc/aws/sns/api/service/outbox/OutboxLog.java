@@ -0,0 +1,584 @@
+package com.poc.aws.sns.api.service.outbox;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.poc.aws.sns.api.exceptions.MessageError;
+import com.poc.aws.sns.api.exceptions.UnprocessableEntityException;
+import com.poc.aws.sns.api.interfaces.Messages;
+import com.poc.aws.sns.api.interfaces.json.MessageAttribute;
+import com.poc.aws.sns.api.interfaces.json.Notification;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+/*
+  Append only log of the notifications accepted in outbox mode, kept in memory mapped segment
+  files. Appending is a copy into the mapping under a short lock; a single flusher thread then
+  forces the dirty segments once for every append that arrived meanwhile (group commit) and
+  completes their futures, so the request waits for one fsync shared with its neighbours
+  instead of an SNS round trip.
+
+  Record layout: int length | int crc32 of the payload | payload, where the payload is
+  short topic length | topic | int subject length or -1 | subject | int body length | body,
+  followed by short attribute count | (short name length | name | short type length | type |
+  int value length | value) per attribute when the notification has attributes or a message
+  group, and by short group length | group | short deduplication id length or -1 |
+  deduplication id for FIFO topics. A length of 0 is the end of the written data, -1 moves on
+  to the next segment.
+
+  The drainer reads up to the durable position and records its progress in the checkpoint
+  file; segments behind the checkpoint are deleted.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(value = "aws.sns.outbox.enabled", havingValue = "true")
+public class OutboxLog {
+
+  private static final String CHECKPOINT_FILE = "checkpoint";
+  private static final String DEAD_LETTER_FILE = "dead-letter.dlq";
+  private static final int HEADER_BYTES = 8;
+  private static final int END_OF_SEGMENT = -1;
+  private static final int MIN_SEGMENT_BYTES = 1024 * 1024;
+  private static final long FORCE_BACKOFF_MILLIS = 10;
+  private static final long MAX_FORCE_BACKOFF_MILLIS = 1000;
+
+  private final MessageError messageError;
+  private final Path directory;
+  private final int segmentBytes;
+  private final boolean fsync;
+
+  private final NavigableMap<Long, OutboxSegment> segments = new ConcurrentSkipListMap<>();
+  private final CRC32 writeCrc = new CRC32();
+  private final Object dataSignal = new Object();
+  private final Thread flusher;
+
+  /* guarded by this */
+  private OutboxSegment active;
+  private long writePosition;
+  private List<CompletableFuture<Void>> pending = new ArrayList<>();
+  private Set<OutboxSegment> dirty = new LinkedHashSet<>();
+  private boolean running = true;
+
+  private volatile long durablePosition;
+  private volatile long checkpoint;
+
+  public OutboxLog(MessageError messageError, MeterRegistry meterRegistry,
+      @Value("${aws.sns.outbox.directory:${java.io.tmpdir}/sns-outbox}") String directory,
+      @Value("${aws.sns.outbox.segment-bytes:67108864}") int segmentBytes,
+      @Value("${aws.sns.outbox.fsync:true}") boolean fsync) {
+    this.messageError = messageError;
+    this.directory = Paths.get(directory);
+    this.segmentBytes = Math.max(MIN_SEGMENT_BYTES, segmentBytes);
+    this.fsync = fsync;
+    this.flusher = new ThreadFactoryBuilder().setNameFormat("sns-outbox-flusher-%d").build()
+        .newThread(this::flush);
+
+    Gauge.builder("sns.outbox.backlog", this, log -> log.durablePosition - log.checkpoint)
+        .description("Bytes written to the outbox and not yet published to SNS")
+        .baseUnit("bytes")
+        .register(meterRegistry);
+  }
+
+  @PostConstruct
+  public void open() throws IOException {
+    Files.createDirectories(directory);
+    try (Stream<Path> files = Files.list(directory)) {
+      for (Path path : files.filter(file -> file.toString().endsWith(OutboxSegment.SUFFIX))
+          .collect(Collectors.toList())) {
+        long baseOffset = OutboxSegment.baseOffset(path);
+        segments.put(baseOffset, OutboxSegment.open(directory, baseOffset, segmentBytes));
+      }
+    }
+    if (segments.isEmpty()) {
+      segments.put(0L, OutboxSegment.open(directory, 0, segmentBytes));
+    }
+
+    active = segments.lastEntry().getValue();
+    writePosition = active.baseOffset + recover(active);
+    durablePosition = writePosition;
+
+    checkpoint = readCheckpoint(segments.firstKey());
+    checkpoint = Math.max(segments.firstKey(), Math.min(checkpoint, writePosition));
+    log.info("Outbox opened at {} with {} segments, {} bytes to drain", directory,
+        segments.size(), writePosition - checkpoint);
+
+    flusher.start();
+  }
+
+  /*
+    Completes once the record is on disk, or right after the copy when fsync is disabled.
+   */
+  public CompletableFuture<Long> append(String topicArn, Notification notification) {
+    Payload payload = new Payload(topicArn, notification.getSubject(), notification.getBody(),
+        notification.getAttributes(), notification.getMessageGroupId(),
+        notification.getMessageDeduplicationId());
+    int payloadBytes = payload.length();
+    if (HEADER_BYTES + payloadBytes + 4 > segmentBytes) {
+      return CompletableFuture.failedFuture(writeFailed("record larger than a segment"));
+    }
+
+    long position;
+    CompletableFuture<Void> durable = new CompletableFuture<>();
+    synchronized (this) {
+      if (!running) {
+        return CompletableFuture.failedFuture(writeFailed("outbox is closed"));
+      }
+      try {
+        roll(HEADER_BYTES + payloadBytes);
+      } catch (IOException e) {
+        return CompletableFuture.failedFuture(writeFailed(e.getMessage()));
+      }
+
+      position = writePosition;
+      ByteBuffer record = active.buffer.duplicate();
+      record.position((int) (position - active.baseOffset) + HEADER_BYTES);
+      int payloadStart = record.position();
+      payload.write(record);
+
+      writeCrc.reset();
+      writeCrc.update(record.flip().position(payloadStart));
+      active.buffer.putInt(payloadStart - 4, (int) writeCrc.getValue());
+      active.buffer.putInt(payloadStart - HEADER_BYTES, payloadBytes);
+
+      writePosition += HEADER_BYTES + payloadBytes;
+      if (fsync) {
+        dirty.add(active);
+        pending.add(durable);
+        notifyAll();
+      } else {
+        durablePosition = writePosition;
+        durable.complete(null);
+      }
+    }
+
+    if (!fsync) {
+      signalData();
+    }
+    return durable.thenApply(done -> position);
+  }
+
+  /*
+    Reads consecutive records for the same topic, at most maxEntries of maxPayloadBytes in total,
+    and returns the position after the last one read.
+   */
+  public long read(long from, int maxEntries, int maxPayloadBytes, List<OutboxEntry> entries) {
+    long position = from;
+    int payloadBytes = 0;
+    CRC32 crc = new CRC32();
+
+    while (entries.size() < maxEntries && position < durablePosition) {
+      Map.Entry<Long, OutboxSegment> segmentEntry = segments.floorEntry(position);
+      if (segmentEntry == null) {
+        position = segments.firstKey();
+        continue;
+      }
+      OutboxSegment segment = segmentEntry.getValue();
+      int offset = (int) (position - segment.baseOffset);
+      int length = offset + 4 > segmentBytes ? END_OF_SEGMENT : segment.buffer.getInt(offset);
+      if (length == END_OF_SEGMENT || length == 0) {
+        position = segment.baseOffset + segmentBytes;
+        continue;
+      }
+
+      ByteBuffer record = segment.buffer.duplicate();
+      record.position(offset + HEADER_BYTES).limit(offset + HEADER_BYTES + length);
+      crc.reset();
+      crc.update(record.duplicate());
+      if ((int) crc.getValue() != segment.buffer.getInt(offset + 4)) {
+        log.error("Corrupted outbox record at {}, skipping the rest of {}", position,
+            segment.path);
+        position = segment.baseOffset + segmentBytes;
+        continue;
+      }
+
+      OutboxEntry entry = decode(position, record);
+      if (!entries.isEmpty() && (!entries.get(0).getTopicArn().equals(entry.getTopicArn())
+          || payloadBytes + length > maxPayloadBytes)) {
+        break;
+      }
+      entries.add(entry);
+      payloadBytes += length;
+      position += HEADER_BYTES + length;
+    }
+    return position;
+  }
+
+  /*
+    A checkpoint file left empty or unreadable by a crash restarts the drain from the oldest
+    segment, replaying what was already published rather than losing anything.
+   */
+  private long readCheckpoint(long oldest) throws IOException {
+    Path checkpointFile = directory.resolve(CHECKPOINT_FILE);
+    if (!Files.exists(checkpointFile)) {
+      return oldest;
+    }
+    String content = Files.readString(checkpointFile).trim();
+    try {
+      return Long.parseLong(content);
+    } catch (NumberFormatException e) {
+      log.warn("Invalid outbox checkpoint '{}' in {}, draining from {}", content, checkpointFile,
+          oldest);
+      return oldest;
+    }
+  }
+
+  public long checkpoint() {
+    return checkpoint;
+  }
+
+  /*
+    Keeps a record SNS rejected as invalid in the dead-letter file of the directory, in the
+    segment record format, so it can be inspected and replayed once fixed.
+   */
+  public void deadLetter(OutboxEntry entry) throws IOException {
+    Payload payload = new Payload(entry.getTopicArn(), entry.getSubject(), entry.getBody(),
+        entry.getAttributes(), entry.getMessageGroupId(), entry.getMessageDeduplicationId());
+    ByteBuffer record = ByteBuffer.allocate(HEADER_BYTES + payload.length());
+    record.position(HEADER_BYTES);
+    payload.write(record);
+    CRC32 crc = new CRC32();
+    crc.update(record.flip().position(HEADER_BYTES));
+    record.putInt(0, payload.length()).putInt(4, (int) crc.getValue()).rewind();
+
+    try (FileChannel channel = FileChannel.open(directory.resolve(DEAD_LETTER_FILE),
+        StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+      while (record.hasRemaining()) {
+        channel.write(record);
+      }
+      channel.force(false);
+    }
+  }
+
+  /*
+    Stores the drain progress and deletes the segments entirely behind it. A crash replays at
+    most what was drained since the last checkpoint.
+   */
+  public void checkpoint(long position) {
+    try {
+      Path temp = directory.resolve(CHECKPOINT_FILE + ".tmp");
+      try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE,
+          StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+        ByteBuffer content = ByteBuffer.wrap(Long.toString(position).getBytes(UTF_8));
+        while (content.hasRemaining()) {
+          channel.write(content);
+        }
+        channel.force(true);
+      }
+      Files.move(temp, directory.resolve(CHECKPOINT_FILE), StandardCopyOption.REPLACE_EXISTING,
+          StandardCopyOption.ATOMIC_MOVE);
+      checkpoint = position;
+    } catch (IOException e) {
+      log.error("Not possible to write the outbox checkpoint", e);
+      return;
+    }
+
+    for (OutboxSegment segment : segments.headMap(position, false).values()) {
+      if (segment.baseOffset + segmentBytes > position || segment == currentSegment()) {
+        break;
+      }
+      try {
+        segment.delete();
+        segments.remove(segment.baseOffset);
+        log.info("Compacted outbox segment {}", segment.path);
+      } catch (IOException e) {
+        log.warn("Not possible to delete outbox segment {}", segment.path, e);
+      }
+    }
+  }
+
+  public void awaitData(long position, long timeoutMillis) throws InterruptedException {
+    synchronized (dataSignal) {
+      if (durablePosition <= position) {
+        dataSignal.wait(timeoutMillis);
+      }
+    }
+  }
+
+  @PreDestroy
+  public void close() throws InterruptedException {
+    synchronized (this) {
+      running = false;
+      notifyAll();
+    }
+    flusher.join();
+  }
+
+  private synchronized OutboxSegment currentSegment() {
+    return active;
+  }
+
+  /* guarded by this */
+  private void roll(int recordBytes) throws IOException {
+    int offset = (int) (writePosition - active.baseOffset);
+    if (offset + recordBytes + 4 <= segmentBytes) {
+      return;
+    }
+    active.buffer.putInt(offset, END_OF_SEGMENT);
+    if (fsync) {
+      dirty.add(active);
+    }
+
+    long baseOffset = active.baseOffset + segmentBytes;
+    active = OutboxSegment.open(directory, baseOffset, segmentBytes);
+    segments.put(baseOffset, active);
+    writePosition = baseOffset;
+  }
+
+  /*
+    A failed force leaves the durable position where it was: the records stay pending and the
+    next force covers them, so a future only ever fails when the outbox closes before that.
+   */
+  private void flush() {
+    long backoffMillis = FORCE_BACKOFF_MILLIS;
+    while (true) {
+      List<CompletableFuture<Void>> batch;
+      Set<OutboxSegment> segmentsToForce;
+      long position;
+      synchronized (this) {
+        while (pending.isEmpty() && running) {
+          try {
+            wait();
+          } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            running = false;
+          }
+        }
+        if (pending.isEmpty()) {
+          return;
+        }
+        batch = pending;
+        segmentsToForce = dirty;
+        position = writePosition;
+        pending = new ArrayList<>();
+        dirty = new LinkedHashSet<>();
+      }
+
+      try {
+        segmentsToForce.forEach(segment -> segment.buffer.force());
+        durablePosition = position;
+        batch.forEach(durable -> durable.complete(null));
+        signalData();
+        backoffMillis = FORCE_BACKOFF_MILLIS;
+      } catch (RuntimeException e) {
+        log.error("Not possible to sync the outbox, retrying in {} ms", backoffMillis, e);
+        synchronized (this) {
+          batch.addAll(pending);
+          pending = batch;
+          segmentsToForce.addAll(dirty);
+          dirty = segmentsToForce;
+          if (!running) {
+            UnprocessableEntityException failure = writeFailed(e.getMessage());
+            pending.forEach(durable -> durable.completeExceptionally(failure));
+            return;
+          }
+          try {
+            wait(backoffMillis);
+          } catch (InterruptedException interrupted) {
+            Thread.currentThread().interrupt();
+            running = false;
+          }
+        }
+        backoffMillis = Math.min(MAX_FORCE_BACKOFF_MILLIS, backoffMillis * 2);
+      }
+    }
+  }
+
+  private void signalData() {
+    synchronized (dataSignal) {
+      dataSignal.notifyAll();
+    }
+  }
+
+  /*
+    Finds the end of the written records of the last segment after a restart. A torn record
+    left by a crash fails its checksum; it and everything after it are cleared.
+   */
+  private int recover(OutboxSegment segment) {
+    MappedByteBuffer buffer = segment.buffer;
+    CRC32 crc = new CRC32();
+    int offset = 0;
+    while (offset + HEADER_BYTES <= segmentBytes) {
+      int length = buffer.getInt(offset);
+      if (length <= 0 || offset + HEADER_BYTES + length > segmentBytes) {
+        break;
+      }
+      ByteBuffer payload = buffer.duplicate();
+      payload.position(offset + HEADER_BYTES).limit(offset + HEADER_BYTES + length);
+      crc.reset();
+      crc.update(payload);
+      if ((int) crc.getValue() != buffer.getInt(offset + 4)) {
+        log.warn("Discarding torn outbox record at {} in {}", offset, segment.path);
+        break;
+      }
+      offset += HEADER_BYTES + length;
+    }
+
+    if (offset + 4 <= segmentBytes && buffer.getInt(offset) != 0) {
+      for (int clear = offset; clear < segmentBytes; clear++) {
+        buffer.put(clear, (byte) 0);
+      }
+    }
+    return offset;
+  }
+
+  private static OutboxEntry decode(long position, ByteBuffer record) {
+    byte[] topic = new byte[record.getShort()];
+    record.get(topic);
+    int subjectLength = record.getInt();
+    String subject = null;
+    if (subjectLength >= 0) {
+      byte[] bytes = new byte[subjectLength];
+      record.get(bytes);
+      subject = new String(bytes, UTF_8);
+    }
+    byte[] body = new byte[record.getInt()];
+    record.get(body);
+
+    Map<String, MessageAttribute> attributes = null;
+    if (record.hasRemaining()) {
+      int count = record.getShort();
+      attributes = count == 0 ? null : new LinkedHashMap<>(count * 2);
+      for (int i = 0; i < count; i++) {
+        String name = string(record, record.getShort());
+        String type = string(record, record.getShort());
+        attributes.put(name, new MessageAttribute(type, string(record, record.getInt())));
+      }
+    }
+    String group = null;
+    String deduplicationId = null;
+    if (record.hasRemaining()) {
+      group = string(record, record.getShort());
+      int deduplicationIdLength = record.getShort();
+      deduplicationId = deduplicationIdLength < 0 ? null : string(record, deduplicationIdLength);
+    }
+    return new OutboxEntry(position, new String(topic, UTF_8), subject, new String(body, UTF_8),
+        attributes, group, deduplicationId);
+  }
+
+  private static String string(ByteBuffer record, int length) {
+    byte[] bytes = new byte[length];
+    record.get(bytes);
+    return new String(bytes, UTF_8);
+  }
+
+  /*
+    The payload of one record, see the class comment for the layout.
+   */
+  private static final class Payload {
+
+    private final byte[] topic;
+    private final byte[] subject;
+    private final byte[] body;
+    private final byte[][] attributes;
+    private final byte[] group;
+    private final byte[] deduplicationId;
+
+    private Payload(String topicArn, String subject, String body,
+        Map<String, MessageAttribute> attributes, String group, String deduplicationId) {
+      this.topic = topicArn.getBytes(UTF_8);
+      this.subject = bytes(subject);
+      this.body = body == null ? new byte[0] : body.getBytes(UTF_8);
+      this.attributes = encode(attributes);
+      this.group = bytes(group);
+      this.deduplicationId = bytes(deduplicationId);
+    }
+
+    private int length() {
+      int length = 2 + topic.length + 4 + (subject == null ? 0 : subject.length)
+          + 4 + body.length;
+      if (attributes != null || group != null) {
+        length += 2;
+      }
+      if (attributes != null) {
+        for (int i = 0; i < attributes.length; i += 3) {
+          length += 2 + attributes[i].length + 2 + attributes[i + 1].length + 4
+              + attributes[i + 2].length;
+        }
+      }
+      if (group != null) {
+        length += 2 + group.length + 2 + (deduplicationId == null ? 0 : deduplicationId.length);
+      }
+      return length;
+    }
+
+    private void write(ByteBuffer record) {
+      record.putShort((short) topic.length).put(topic);
+      if (subject == null) {
+        record.putInt(-1);
+      } else {
+        record.putInt(subject.length).put(subject);
+      }
+      record.putInt(body.length).put(body);
+      if (attributes != null || group != null) {
+        record.putShort((short) (attributes == null ? 0 : attributes.length / 3));
+      }
+      if (attributes != null) {
+        for (int i = 0; i < attributes.length; i += 3) {
+          record.putShort((short) attributes[i].length).put(attributes[i]);
+          record.putShort((short) attributes[i + 1].length).put(attributes[i + 1]);
+          record.putInt(attributes[i + 2].length).put(attributes[i + 2]);
+        }
+      }
+      if (group != null) {
+        record.putShort((short) group.length).put(group);
+        if (deduplicationId == null) {
+          record.putShort((short) -1);
+        } else {
+          record.putShort((short) deduplicationId.length).put(deduplicationId);
+        }
+      }
+    }
+
+    private static byte[] bytes(String value) {
+      return value == null ? null : value.getBytes(UTF_8);
+    }
+
+    /* name, type and value of each attribute, or null without attributes */
+    private static byte[][] encode(Map<String, MessageAttribute> attributes) {
+      if (attributes == null || attributes.isEmpty()) {
+        return null;
+      }
+      byte[][] encoded = new byte[attributes.size() * 3][];
+      int i = 0;
+      for (Map.Entry<String, MessageAttribute> attribute : attributes.entrySet()) {
+        encoded[i++] = attribute.getKey().getBytes(UTF_8);
+        encoded[i++] = attribute.getValue().getType().getBytes(UTF_8);
+        encoded[i++] = attribute.getValue().getValue().getBytes(UTF_8);
+      }
+      return encoded;
+    }
+  }
+
+  private UnprocessableEntityException writeFailed(String detail) {
+    return new UnprocessableEntityException(
+        messageError.create(Messages.OUTBOX_WRITE_FAILED), new IOException(detail));
+  }
+
+}
@@ -0,0 +1,49 @@
+package com.poc.aws.sns.api.service.outbox;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/*
+  One preallocated file of the outbox log, mapped whole. The file name is the log position of
+  its first byte, so a position maps to its segment without an index.
+ */
+class OutboxSegment {
+
+  static final String SUFFIX = ".log";
+
+  final long baseOffset;
+  final Path path;
+  final MappedByteBuffer buffer;
+
+  private OutboxSegment(long baseOffset, Path path, MappedByteBuffer buffer) {
+    this.baseOffset = baseOffset;
+    this.path = path;
+    this.buffer = buffer;
+  }
+
+  static OutboxSegment open(Path directory, long baseOffset, int size) throws IOException {
+    Path path = directory.resolve(String.format("%020d%s", baseOffset, SUFFIX));
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE,
+        StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+      return new OutboxSegment(baseOffset, path, channel.map(MapMode.READ_WRITE, 0, size));
+    }
+  }
+
+  static long baseOffset(Path path) {
+    String name = path.getFileName().toString();
+    return Long.parseLong(name.substring(0, name.length() - SUFFIX.length()));
+  }
+
+  /*
+    The mapping stays valid until the buffer is collected, deleting the file only unlinks it.
+   */
+  void delete() throws IOException {
+    Files.deleteIfExists(path);
+  }
+
+}
@@ -0,0 +1,48 @@
+package com.poc.aws.sns.api.service.ratelimit;
+
+import com.amazonaws.AmazonClientException;
+import com.amazonaws.AmazonServiceException;
+import com.amazonaws.AmazonWebServiceRequest;
+import com.amazonaws.handlers.HandlerContextKey;
+import com.amazonaws.retry.RetryPolicy.BackoffStrategy;
+import com.amazonaws.retry.RetryUtils;
+import java.util.concurrent.ThreadLocalRandom;
+
+/*
+  Decorrelated jitter ("Exponential Backoff And Jitter", AWS Architecture Blog): every delay is
+  drawn between the base delay and three times the previous one, capped. Retries of different
+  callers spread out instead of arriving in waves. The previous delay is kept on the request,
+  so the strategy itself is stateless. Throttling starts from a larger base delay.
+ */
+public class DecorrelatedJitterBackoffStrategy implements BackoffStrategy {
+
+  private static final HandlerContextKey<Long> PREVIOUS_DELAY =
+      new HandlerContextKey<>("DecorrelatedJitterPreviousDelay");
+
+  private final long baseDelayMillis;
+  private final long throttledBaseDelayMillis;
+  private final long maxBackoffMillis;
+
+  public DecorrelatedJitterBackoffStrategy(long baseDelayMillis, long throttledBaseDelayMillis,
+      long maxBackoffMillis) {
+    this.baseDelayMillis = baseDelayMillis;
+    this.throttledBaseDelayMillis = throttledBaseDelayMillis;
+    this.maxBackoffMillis = maxBackoffMillis;
+  }
+
+  @Override
+  public long delayBeforeNextRetry(AmazonWebServiceRequest originalRequest,
+      AmazonClientException exception, int retriesAttempted) {
+    long base = exception instanceof AmazonServiceException
+        && RetryUtils.isThrottlingException((AmazonServiceException) exception)
+        ? throttledBaseDelayMillis
+        : baseDelayMillis;
+    Long previous = retriesAttempted == 0 ? null : originalRequest.getHandlerContext(PREVIOUS_DELAY);
+    long upper = Math.max(base, previous == null ? base : previous * 3);
+    long delay = Math.min(maxBackoffMillis,
+        ThreadLocalRandom.current().nextLong(base, upper + 1));
+    originalRequest.addHandlerContext(PREVIOUS_DELAY, delay);
+    return delay;
+  }
+
+}
@@ -0,0 +1,77 @@
+package com.poc.aws.sns.api.service.ratelimit;
+
+import com.poc.aws.sns.api.exceptions.MessageError;
+import com.poc.aws.sns.api.exceptions.TooManyRequestsException;
+import com.poc.aws.sns.api.interfaces.Messages;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+/*
+  Keeps publishes under the SNS publish quota of the account and region with a global token
+  bucket, and under a per topic share of it with one bucket per topic. Every message counts
+  as a permit, also inside a PublishBatch. A publish over budget is rejected with 429 and the
+  time until the budget allows it, instead of being throttled by SNS.
+ */
+@Component
+@ConditionalOnProperty(value = "aws.sns.rate-limit.enabled", havingValue = "true",
+    matchIfMissing = true)
+public class PublishRateLimiter {
+
+  private final MessageError messageError;
+  private final TokenBucket global;
+  private final double topicPermitsPerSecond;
+  private final int topicBurst;
+  private final Map<String, TokenBucket> topics = new ConcurrentHashMap<>();
+  private final Counter globalRejections;
+  private final Counter topicRejections;
+
+  public PublishRateLimiter(MessageError messageError, MeterRegistry meterRegistry,
+      @Value("${aws.sns.rate-limit.global.permits-per-second:9000}") double globalPermitsPerSecond,
+      @Value("${aws.sns.rate-limit.global.burst:9000}") int globalBurst,
+      @Value("${aws.sns.rate-limit.topic.permits-per-second:3000}") double topicPermitsPerSecond,
+      @Value("${aws.sns.rate-limit.topic.burst:3000}") int topicBurst) {
+    this.messageError = messageError;
+    this.global = new TokenBucket(globalPermitsPerSecond, globalBurst);
+    this.topicPermitsPerSecond = topicPermitsPerSecond;
+    this.topicBurst = topicBurst;
+    this.globalRejections = rejections(meterRegistry, "global");
+    this.topicRejections = rejections(meterRegistry, "topic");
+  }
+
+  public void acquire(String topicArn, int messages) {
+    TokenBucket topic = topics.computeIfAbsent(topicArn,
+        arn -> new TokenBucket(topicPermitsPerSecond, topicBurst));
+
+    long wait = topic.tryAcquire(messages);
+    if (wait > 0) {
+      topicRejections.increment();
+      throw rejected(topicArn, wait);
+    }
+    wait = global.tryAcquire(messages);
+    if (wait > 0) {
+      topic.refund(messages);
+      globalRejections.increment();
+      throw rejected(topicArn, wait);
+    }
+  }
+
+  private TooManyRequestsException rejected(String topicArn, long waitNanos) {
+    Duration retryAfter = Duration.ofNanos(waitNanos);
+    return new TooManyRequestsException(messageError.create(Messages.PUBLISH_RATE_EXCEEDED,
+        topicArn, String.valueOf(retryAfter.toMillis())), retryAfter);
+  }
+
+  private static Counter rejections(MeterRegistry meterRegistry, String bucket) {
+    return Counter.builder("sns.rate-limit.rejected")
+        .description("Publishes rejected by the client side rate limit")
+        .tag("bucket", bucket)
+        .register(meterRegistry);
+  }
+
+}
@@ -0,0 +1,45 @@
+package com.poc.aws.sns.api.service.ratelimit;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/*
+  Token bucket kept as a single theoretical arrival time (GCRA), so taking permits is one CAS
+  and an idle bucket costs nothing to refill. The bucket starts full.
+ */
+final class TokenBucket {
+
+  private final long emissionIntervalNanos;
+  private final long capacityNanos;
+  private final AtomicLong theoreticalArrival = new AtomicLong(System.nanoTime());
+
+  TokenBucket(double permitsPerSecond, int burst) {
+    this.emissionIntervalNanos = (long) (TimeUnit.SECONDS.toNanos(1) / permitsPerSecond);
+    this.capacityNanos = emissionIntervalNanos * Math.max(1, burst);
+  }
+
+  /*
+    Returns 0 when the permits were taken, otherwise the nanos until they would be available.
+    A request larger than the burst is let through when the bucket is full.
+   */
+  long tryAcquire(int permits) {
+    long increment = emissionIntervalNanos * permits;
+    while (true) {
+      long now = System.nanoTime();
+      long current = theoreticalArrival.get();
+      long next = Math.max(current, now) + increment;
+      long wait = next - now - Math.max(capacityNanos, increment);
+      if (wait > 0) {
+        return wait;
+      }
+      if (theoreticalArrival.compareAndSet(current, next)) {
+        return 0;
+      }
+    }
+  }
+
+  void refund(int permits) {
+    theoreticalArrival.addAndGet(-emissionIntervalNanos * permits);
+  }
+
+}
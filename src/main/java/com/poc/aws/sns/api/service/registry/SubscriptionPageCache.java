@@ -0,0 +1,105 @@
+package com.poc.aws.sns.api.service.registry;
+
+import com.amazonaws.services.sns.AmazonSNS;
+import com.amazonaws.services.sns.model.ListSubscriptionsByTopicRequest;
+import com.amazonaws.services.sns.model.ListSubscriptionsByTopicResult;
+import com.amazonaws.services.sns.model.Subscription;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.AbstractIterator;
+import com.google.common.collect.Streams;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import lombok.EqualsAndHashCode;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/*
+  Caches ListSubscriptionsByTopic pages per topic and page token. The cache is bounded by the
+  total number of cached subscriptions, so a topic with thousands of subscriptions never sits
+  whole in the heap: pages are walked lazily while the response is written.
+ */
+@Slf4j
+@Component
+public class SubscriptionPageCache {
+
+  private final AmazonSNS amazonSNS;
+  private final Cache<PageKey, ListSubscriptionsByTopicResult> pages;
+
+  public SubscriptionPageCache(AmazonSNS amazonSNS,
+      @Value("${aws.sns.subscription-cache.ttl-ms:30000}") long ttlMillis,
+      @Value("${aws.sns.subscription-cache.max-subscriptions:100000}") long maxSubscriptions) {
+    this.amazonSNS = amazonSNS;
+    this.pages = CacheBuilder.newBuilder()
+        .expireAfterWrite(ttlMillis, TimeUnit.MILLISECONDS)
+        .maximumWeight(maxSubscriptions)
+        .weigher((PageKey key, ListSubscriptionsByTopicResult page) ->
+            page.getSubscriptions().size() + 1)
+        .build();
+  }
+
+  /*
+    The first page is read eagerly so a failing topic fails before the response is committed.
+    Errors on later pages end the stream early.
+   */
+  public Stream<Subscription> stream(String topicArn) {
+    ListSubscriptionsByTopicResult first = getPage(topicArn, null);
+
+    Iterator<List<Subscription>> iterator = new AbstractIterator<>() {
+      private ListSubscriptionsByTopicResult page = first;
+
+      @Override
+      protected List<Subscription> computeNext() {
+        if (page == null) {
+          return endOfData();
+        }
+        List<Subscription> subscriptions = page.getSubscriptions();
+        String nextToken = page.getNextToken();
+        try {
+          page = nextToken == null ? null : getPage(topicArn, nextToken);
+        } catch (RuntimeException e) {
+          log.error("Error to get subscribes page of topic {}", topicArn, e);
+          page = null;
+        }
+        return subscriptions;
+      }
+    };
+
+    return Streams.stream(iterator).flatMap(List::stream);
+  }
+
+  public void invalidate(String topicArn) {
+    pages.asMap().keySet().removeIf(key -> key.topicArn.equals(topicArn));
+  }
+
+  private ListSubscriptionsByTopicResult getPage(String topicArn, String nextToken) {
+    try {
+      return pages.get(new PageKey(topicArn, nextToken), () -> amazonSNS.listSubscriptionsByTopic(
+          new ListSubscriptionsByTopicRequest(topicArn).withNextToken(nextToken)));
+    } catch (ExecutionException | UncheckedExecutionException e) {
+      if (e.getCause() instanceof RuntimeException) {
+        throw (RuntimeException) e.getCause();
+      }
+      throw new IllegalStateException(e.getCause());
+    }
+  }
+
+  @EqualsAndHashCode
+  private static class PageKey {
+
+    private final String topicArn;
+    private final String nextToken;
+
+    private PageKey(String topicArn, String nextToken) {
+      this.topicArn = topicArn;
+      this.nextToken = Objects.toString(nextToken, "");
+    }
+  }
+
+}
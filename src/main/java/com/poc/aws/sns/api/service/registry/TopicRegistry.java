@@ -0,0 +1,157 @@
+package com.poc.aws.sns.api.service.registry;
+
+import com.amazonaws.services.sns.AmazonSNS;
+import com.amazonaws.services.sns.model.ListTopicsResult;
+import com.amazonaws.services.sns.model.Topic;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.poc.aws.sns.api.exceptions.MessageError;
+import com.poc.aws.sns.api.exceptions.ServiceUnavailableException;
+import com.poc.aws.sns.api.interfaces.Messages;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/*
+  In memory view of the account topics. The whole ListTopics pagination is read in background
+  on every refresh interval into a new map, swapped in once the last page is read, so reads and
+  topic checks never go to SNS and never see a partial list.
+ */
+@Slf4j
+@Component
+public class TopicRegistry {
+
+  private final AmazonSNS amazonSNS;
+  private final MessageError messageError;
+  private final long refreshIntervalMillis;
+  private final long missRefreshIntervalMillis;
+
+  /*
+    Topic ARN -> last time it was listed or registered. Topics created while a refresh is
+    running are newer than the refresh start and are carried over to the new map. Swapped and
+    written to while holding this.
+   */
+  private volatile ConcurrentNavigableMap<String, Long> topics = new ConcurrentSkipListMap<>();
+  private final ReentrantLock refreshLock = new ReentrantLock();
+  private final AtomicLong lastMissRefresh = new AtomicLong();
+  private volatile boolean loaded;
+
+  private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(
+      new ThreadFactoryBuilder().setNameFormat("sns-topic-registry-%d").setDaemon(true).build());
+
+  public TopicRegistry(AmazonSNS amazonSNS, MessageError messageError,
+      @Value("${aws.sns.topic-registry.refresh-interval-ms:60000}") long refreshIntervalMillis,
+      @Value("${aws.sns.topic-registry.miss-refresh-interval-ms:5000}") long missRefreshIntervalMillis) {
+    this.amazonSNS = amazonSNS;
+    this.messageError = messageError;
+    this.refreshIntervalMillis = refreshIntervalMillis;
+    this.missRefreshIntervalMillis = missRefreshIntervalMillis;
+  }
+
+  @PostConstruct
+  public void start() {
+    scheduler.scheduleWithFixedDelay(this::refresh, 0, refreshIntervalMillis,
+        TimeUnit.MILLISECONDS);
+  }
+
+  @PreDestroy
+  public void shutdown() {
+    scheduler.shutdownNow();
+  }
+
+  /*
+    Until the first refresh completes every topic is accepted and SNS has the last word.
+    A miss schedules an early refresh, at most once per miss interval, so topics created
+    outside this service show up without waiting for the next cycle.
+   */
+  public boolean contains(String topicArn) {
+    if (!loaded || topics.containsKey(topicArn)) {
+      return true;
+    }
+
+    long now = System.currentTimeMillis();
+    long last = lastMissRefresh.get();
+    if (now - last >= missRefreshIntervalMillis && lastMissRefresh.compareAndSet(last, now)) {
+      scheduler.execute(this::refresh);
+    }
+    return false;
+  }
+
+  public synchronized void register(String topicArn) {
+    topics.put(topicArn, System.currentTimeMillis());
+  }
+
+  /*
+    Until the first refresh completes the caller waits for the one in flight, or lists the
+    topics itself; when that fails it is answered with 503 rather than an empty list.
+   */
+  public List<String> getTopicArns() {
+    if (!loaded) {
+      refreshLock.lock();
+      try {
+        if (!loaded) {
+          load();
+        }
+      } catch (Exception e) {
+        log.warn("Not possible to load topic registry: {}", e.getMessage());
+        throw new ServiceUnavailableException(messageError.create(Messages.TOPICS_UNAVAILABLE),
+            e.getMessage());
+      } finally {
+        refreshLock.unlock();
+      }
+    }
+    return new ArrayList<>(topics.keySet());
+  }
+
+  /*
+    Skipped while another refresh is running.
+   */
+  public void refresh() {
+    if (!refreshLock.tryLock()) {
+      return;
+    }
+    try {
+      load();
+    } catch (Exception e) {
+      log.warn("Not possible to refresh topic registry: {}", e.getMessage());
+    } finally {
+      refreshLock.unlock();
+    }
+  }
+
+  private void load() {
+    long startedAt = System.currentTimeMillis();
+    ConcurrentNavigableMap<String, Long> listed = new ConcurrentSkipListMap<>();
+    String nextToken = null;
+    do {
+      ListTopicsResult result = amazonSNS.listTopics(nextToken);
+      long listedAt = System.currentTimeMillis();
+      for (Topic topic : result.getTopics()) {
+        listed.put(topic.getTopicArn(), listedAt);
+      }
+      nextToken = result.getNextToken();
+    } while (nextToken != null);
+
+    synchronized (this) {
+      topics.forEach((topicArn, seenAt) -> {
+        if (seenAt >= startedAt) {
+          listed.putIfAbsent(topicArn, seenAt);
+        }
+      });
+      topics = listed;
+    }
+    loaded = true;
+    log.debug("Topic registry refreshed with {} topics.", listed.size());
+  }
+
+}
@@ -0,0 +1,60 @@
+package com.poc.aws.sns.api.service.resilience;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/*
+  AIMD limit on the calls in flight to SNS. Every call that completes in time while the limit
+  is in use grows the limit by 1/limit, about one per round trip; a throttled, failed or slow
+  call shrinks it by the backoff ratio. Calls over the limit are rejected, never queued.
+ */
+public class AdaptiveConcurrencyLimiter {
+
+  private final int minLimit;
+  private final int maxLimit;
+  private final double backoffRatio;
+  private final long latencyThresholdNanos;
+  private final AtomicInteger inFlight = new AtomicInteger();
+  private volatile double limit;
+
+  public AdaptiveConcurrencyLimiter(int initialLimit, int minLimit, int maxLimit,
+      double backoffRatio, long latencyThresholdMillis) {
+    this.minLimit = minLimit;
+    this.maxLimit = maxLimit;
+    this.backoffRatio = backoffRatio;
+    this.latencyThresholdNanos = TimeUnit.MILLISECONDS.toNanos(latencyThresholdMillis);
+    this.limit = Math.max(minLimit, Math.min(maxLimit, initialLimit));
+  }
+
+  public boolean tryAcquire() {
+    while (true) {
+      int current = inFlight.get();
+      if (current >= (int) limit) {
+        return false;
+      }
+      if (inFlight.compareAndSet(current, current + 1)) {
+        return true;
+      }
+    }
+  }
+
+  public void release(long latencyNanos, boolean failed) {
+    int current = inFlight.getAndDecrement();
+    synchronized (this) {
+      if (failed || latencyNanos > latencyThresholdNanos) {
+        limit = Math.max(minLimit, limit * backoffRatio);
+      } else if (current * 2 >= limit) {
+        limit = Math.min(maxLimit, limit + 1 / limit);
+      }
+    }
+  }
+
+  public int getLimit() {
+    return (int) limit;
+  }
+
+  public int getInFlight() {
+    return inFlight.get();
+  }
+
+}
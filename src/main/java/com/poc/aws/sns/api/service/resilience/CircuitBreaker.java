@@ -0,0 +1,110 @@
+package com.poc.aws.sns.api.service.resilience;
+
+import java.util.concurrent.TimeUnit;
+
+/*
+  Count based circuit breaker. It opens when the failure rate of the last window calls reaches
+  the threshold, rejects every call while open, and after the open duration lets a few trial
+  calls through: all of them succeeding closes it, any failure opens it again.
+ */
+public class CircuitBreaker {
+
+  public enum State {
+    CLOSED, OPEN, HALF_OPEN
+  }
+
+  private final boolean[] window;
+  private final int minimumCalls;
+  private final double failureRateThreshold;
+  private final long openDurationNanos;
+  private final int halfOpenCalls;
+
+  /* guarded by this */
+  private State state = State.CLOSED;
+  private int next;
+  private int calls;
+  private int failures;
+  private long openedAt;
+  private int halfOpenInFlight;
+  private int halfOpenSuccesses;
+
+  public CircuitBreaker(int windowSize, int minimumCalls, double failureRateThreshold,
+      long openDurationMillis, int halfOpenCalls) {
+    this.window = new boolean[windowSize];
+    this.minimumCalls = Math.min(windowSize, minimumCalls);
+    this.failureRateThreshold = failureRateThreshold;
+    this.openDurationNanos = TimeUnit.MILLISECONDS.toNanos(openDurationMillis);
+    this.halfOpenCalls = halfOpenCalls;
+  }
+
+  public synchronized boolean tryAcquire() {
+    if (state == State.OPEN) {
+      if (System.nanoTime() - openedAt < openDurationNanos) {
+        return false;
+      }
+      state = State.HALF_OPEN;
+      halfOpenInFlight = 0;
+      halfOpenSuccesses = 0;
+    }
+    if (state == State.HALF_OPEN) {
+      if (halfOpenInFlight >= halfOpenCalls) {
+        return false;
+      }
+      halfOpenInFlight++;
+    }
+    return true;
+  }
+
+  /*
+    Gives back a permit taken by tryAcquire for a call that was not made.
+   */
+  public synchronized void cancel() {
+    if (state == State.HALF_OPEN) {
+      halfOpenInFlight--;
+    }
+  }
+
+  public synchronized void onResult(boolean failed) {
+    if (state == State.HALF_OPEN) {
+      if (failed) {
+        open();
+      } else if (++halfOpenSuccesses >= halfOpenCalls) {
+        close();
+      }
+      return;
+    }
+    if (state == State.OPEN) {
+      return;
+    }
+
+    if (calls == window.length) {
+      failures -= window[next] ? 1 : 0;
+    } else {
+      calls++;
+    }
+    window[next] = failed;
+    failures += failed ? 1 : 0;
+    next = (next + 1) % window.length;
+
+    if (calls >= minimumCalls && (double) failures / calls >= failureRateThreshold) {
+      open();
+    }
+  }
+
+  public synchronized State getState() {
+    return state;
+  }
+
+  private void open() {
+    state = State.OPEN;
+    openedAt = System.nanoTime();
+  }
+
+  private void close() {
+    state = State.CLOSED;
+    next = 0;
+    calls = 0;
+    failures = 0;
+  }
+
+}
@@ -0,0 +1,115 @@
+package com.poc.aws.sns.api.service.resilience;
+
+import com.amazonaws.AmazonServiceException;
+import com.amazonaws.retry.RetryUtils;
+import com.poc.aws.sns.api.exceptions.MessageError;
+import com.poc.aws.sns.api.exceptions.ServiceUnavailableException;
+import com.poc.aws.sns.api.exceptions.TooManyRequestsException;
+import com.poc.aws.sns.api.interfaces.Messages;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Supplier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+/*
+  Admission control for SNS calls: the circuit breaker rejects with 503 while SNS keeps
+  failing and the adaptive limiter rejects with 429 once the calls in flight reach the
+  current limit, so request threads fail fast instead of piling onto the connection pool.
+  Throttling, 5xx and client side errors count as failures, other 4xx answers do not.
+ */
+@Component
+@ConditionalOnProperty(value = "aws.sns.resilience.enabled", havingValue = "true",
+    matchIfMissing = true)
+public class SnsCallGuard {
+
+  private final MessageError messageError;
+  private final AdaptiveConcurrencyLimiter limiter;
+  private final CircuitBreaker circuitBreaker;
+  private final Counter limitRejections;
+  private final Counter circuitRejections;
+
+  public SnsCallGuard(MessageError messageError, MeterRegistry meterRegistry,
+      @Value("${aws.sns.resilience.limiter.initial-limit:20}") int initialLimit,
+      @Value("${aws.sns.resilience.limiter.min-limit:2}") int minLimit,
+      @Value("${aws.sns.resilience.limiter.max-limit:200}") int maxLimit,
+      @Value("${aws.sns.resilience.limiter.backoff-ratio:0.9}") double backoffRatio,
+      @Value("${aws.sns.resilience.limiter.latency-threshold-ms:1000}") long latencyThreshold,
+      @Value("${aws.sns.resilience.circuit-breaker.window-size:100}") int windowSize,
+      @Value("${aws.sns.resilience.circuit-breaker.minimum-calls:20}") int minimumCalls,
+      @Value("${aws.sns.resilience.circuit-breaker.failure-rate-threshold:0.5}")
+          double failureRateThreshold,
+      @Value("${aws.sns.resilience.circuit-breaker.open-duration-ms:10000}") long openDuration,
+      @Value("${aws.sns.resilience.circuit-breaker.half-open-calls:5}") int halfOpenCalls) {
+    this.messageError = messageError;
+    this.limiter = new AdaptiveConcurrencyLimiter(initialLimit, minLimit, maxLimit, backoffRatio,
+        latencyThreshold);
+    this.circuitBreaker = new CircuitBreaker(windowSize, minimumCalls, failureRateThreshold,
+        openDuration, halfOpenCalls);
+
+    Gauge.builder("sns.limiter.limit", limiter, AdaptiveConcurrencyLimiter::getLimit)
+        .description("Current limit of SNS calls in flight")
+        .register(meterRegistry);
+    Gauge.builder("sns.limiter.in-flight", limiter, AdaptiveConcurrencyLimiter::getInFlight)
+        .description("SNS calls in flight")
+        .register(meterRegistry);
+    Gauge.builder("sns.circuit.state", circuitBreaker, breaker -> breaker.getState().ordinal())
+        .description("SNS circuit breaker state: 0 closed, 1 open, 2 half open")
+        .register(meterRegistry);
+    this.limitRejections = rejections(meterRegistry, "limit");
+    this.circuitRejections = rejections(meterRegistry, "circuit-open");
+  }
+
+  /*
+    Rejections are returned as failed futures, the call is not made.
+   */
+  public <R> CompletableFuture<R> call(Supplier<CompletableFuture<R>> call) {
+    if (!circuitBreaker.tryAcquire()) {
+      circuitRejections.increment();
+      return CompletableFuture.failedFuture(
+          new ServiceUnavailableException(messageError.create(Messages.SNS_CIRCUIT_OPEN)));
+    }
+    if (!limiter.tryAcquire()) {
+      circuitBreaker.cancel();
+      limitRejections.increment();
+      return CompletableFuture.failedFuture(
+          new TooManyRequestsException(messageError.create(Messages.SNS_CONCURRENCY_LIMIT)));
+    }
+
+    long started = System.nanoTime();
+    CompletableFuture<R> result;
+    try {
+      result = call.get();
+    } catch (RuntimeException e) {
+      result = CompletableFuture.failedFuture(e);
+    }
+    return result.whenComplete((value, e) -> {
+      boolean failed = e != null && isFailure(e);
+      limiter.release(System.nanoTime() - started, failed);
+      circuitBreaker.onResult(failed);
+    });
+  }
+
+  private static boolean isFailure(Throwable error) {
+    Throwable cause = error instanceof CompletionException && error.getCause() != null
+        ? error.getCause() : error;
+    if (cause instanceof AmazonServiceException) {
+      AmazonServiceException serviceException = (AmazonServiceException) cause;
+      return serviceException.getStatusCode() >= 500
+          || RetryUtils.isThrottlingException(serviceException);
+    }
+    return true;
+  }
+
+  private static Counter rejections(MeterRegistry meterRegistry, String reason) {
+    return Counter.builder("sns.limiter.rejected")
+        .description("SNS calls rejected before being made")
+        .tag("reason", reason)
+        .register(meterRegistry);
+  }
+
+}
@@ -0,0 +1,81 @@
+package com.poc.aws.sns.api.service.routing;
+
+import java.util.concurrent.TimeUnit;
+
+/*
+  Health score of one SNS region: exponentially weighted averages of the call latency and of
+  the failure rate, a plain mean until the minimum calls are seen. When either average crosses
+  its threshold the region is ejected for the cool-down, then scored again from scratch.
+ */
+public class RegionHealth {
+
+  private final double decay;
+  private final int minimumCalls;
+  private final long latencyThresholdNanos;
+  private final double errorRateThreshold;
+  private final long cooldownNanos;
+
+  /* guarded by this */
+  private int calls;
+  private double latencyNanos;
+  private double errorRate;
+  private boolean ejected;
+  private long ejectedAt;
+
+  public RegionHealth(double decay, int minimumCalls, long latencyThresholdMillis,
+      double errorRateThreshold, long cooldownMillis) {
+    this.decay = decay;
+    this.minimumCalls = Math.max(1, minimumCalls);
+    this.latencyThresholdNanos = TimeUnit.MILLISECONDS.toNanos(latencyThresholdMillis);
+    this.errorRateThreshold = errorRateThreshold;
+    this.cooldownNanos = TimeUnit.MILLISECONDS.toNanos(cooldownMillis);
+  }
+
+  public synchronized void onResult(long elapsedNanos, boolean failed) {
+    if (calls < minimumCalls) {
+      calls++;
+    }
+    double weight = calls < minimumCalls ? 1.0 / calls : decay;
+    latencyNanos += weight * (elapsedNanos - latencyNanos);
+    errorRate += weight * ((failed ? 1 : 0) - errorRate);
+
+    if (!ejected && calls >= minimumCalls
+        && (latencyNanos > latencyThresholdNanos || errorRate > errorRateThreshold)) {
+      ejected = true;
+      ejectedAt = System.nanoTime();
+    }
+  }
+
+  /*
+    An ejected region becomes available again once its cool-down is over.
+   */
+  public synchronized boolean isAvailable() {
+    if (ejected && System.nanoTime() - ejectedAt >= cooldownNanos) {
+      ejected = false;
+      calls = 0;
+      latencyNanos = 0;
+      errorRate = 0;
+    }
+    return !ejected;
+  }
+
+  /*
+    Expected time to a successful call, lower is better.
+   */
+  public synchronized double score() {
+    return latencyNanos / Math.max(0.01, 1 - errorRate);
+  }
+
+  public synchronized boolean isEjected() {
+    return ejected;
+  }
+
+  public synchronized double getLatencyMillis() {
+    return latencyNanos / TimeUnit.MILLISECONDS.toNanos(1);
+  }
+
+  public synchronized double getErrorRate() {
+    return errorRate;
+  }
+
+}
@@ -0,0 +1,521 @@
+package com.poc.aws.sns.api.service.routing;
+
+import com.amazonaws.AmazonServiceException;
+import com.amazonaws.AmazonWebServiceRequest;
+import com.amazonaws.ResponseMetadata;
+import com.amazonaws.SdkClientException;
+import com.amazonaws.retry.RetryUtils;
+import com.amazonaws.services.sns.AbstractAmazonSNS;
+import com.amazonaws.services.sns.AmazonSNS;
+import com.amazonaws.services.sns.model.BatchResultErrorEntry;
+import com.amazonaws.services.sns.model.ConfirmSubscriptionRequest;
+import com.amazonaws.services.sns.model.ConfirmSubscriptionResult;
+import com.amazonaws.services.sns.model.CreateTopicRequest;
+import com.amazonaws.services.sns.model.CreateTopicResult;
+import com.amazonaws.services.sns.model.GetSubscriptionAttributesRequest;
+import com.amazonaws.services.sns.model.GetSubscriptionAttributesResult;
+import com.amazonaws.services.sns.model.GetTopicAttributesRequest;
+import com.amazonaws.services.sns.model.GetTopicAttributesResult;
+import com.amazonaws.services.sns.model.ListSubscriptionsByTopicRequest;
+import com.amazonaws.services.sns.model.ListSubscriptionsByTopicResult;
+import com.amazonaws.services.sns.model.ListTopicsRequest;
+import com.amazonaws.services.sns.model.ListTopicsResult;
+import com.amazonaws.services.sns.model.PublishBatchRequest;
+import com.amazonaws.services.sns.model.PublishBatchRequestEntry;
+import com.amazonaws.services.sns.model.PublishBatchResult;
+import com.amazonaws.services.sns.model.PublishBatchResultEntry;
+import com.amazonaws.services.sns.model.PublishRequest;
+import com.amazonaws.services.sns.model.PublishResult;
+import com.amazonaws.services.sns.model.SetSubscriptionAttributesRequest;
+import com.amazonaws.services.sns.model.SetSubscriptionAttributesResult;
+import com.amazonaws.services.sns.model.SubscribeRequest;
+import com.amazonaws.services.sns.model.SubscribeResult;
+import com.amazonaws.services.sns.model.Subscription;
+import com.amazonaws.services.sns.model.Topic;
+import com.amazonaws.services.sns.model.UnsubscribeRequest;
+import com.amazonaws.services.sns.model.UnsubscribeResult;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.poc.aws.sns.api.service.fifo.MessageGroupLanes;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import java.net.ConnectException;
+import java.net.UnknownHostException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+import javax.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.http.conn.ConnectTimeoutException;
+
+/*
+  AmazonSNS over one client per region and account. Publishes go to the primary shard while
+  its health allows and otherwise to the available secondary with the best score; a call
+  answered with throttling or 5xx, or whose connection could not be opened, is tried again on
+  the next shard, up to maxAttempts shards. A 5xx answer does not prove the message was
+  dropped, so delivery across a failover is at least once. Other client side errors, such as a
+  read timeout, may come after SNS accepted the message and are not retried elsewhere. Topic ARNs of the primary are rewritten to the region and account of the
+  shard serving the call. Topics and subscriptions are managed on the primary only, so a
+  secondary only takes the publishes of the topics it was last seen to have with a confirmed
+  subscription, checked in background every topicsRefreshIntervalMillis. FIFO topics stay on the primary: moving a message
+  group between regions would break its order.
+ */
+@Slf4j
+public class RegionRoutingAmazonSNS extends AbstractAmazonSNS {
+
+  private final SnsShard primary;
+  private final List<SnsShard> shards;
+  private final int maxAttempts;
+  private final long topicsRefreshIntervalMillis;
+  private final Comparator<SnsShard> preference;
+  private final List<Counter> failovers = new ArrayList<>();
+
+  /* secondary -> primary ARNs of the topics it can serve, absent until its first check */
+  private final Map<SnsShard, Set<String>> servedTopics = new ConcurrentHashMap<>();
+
+  private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(
+      new ThreadFactoryBuilder().setNameFormat("sns-region-topics-%d").setDaemon(true).build());
+
+  /*
+    The first shard is the primary.
+   */
+  public RegionRoutingAmazonSNS(List<SnsShard> shards, int maxAttempts,
+      long topicsRefreshIntervalMillis, MeterRegistry meterRegistry) {
+    this.primary = shards.get(0);
+    this.shards = List.copyOf(shards);
+    this.maxAttempts = Math.max(1, maxAttempts);
+    this.topicsRefreshIntervalMillis = topicsRefreshIntervalMillis;
+    this.preference = Comparator.<SnsShard, Boolean>comparing(shard -> shard != primary)
+        .thenComparingDouble(shard -> shard.getHealth().score());
+
+    for (SnsShard shard : this.shards) {
+      Tags tags = Tags.of("region", shard.getRegion(), "account", shard.getAccount());
+      Gauge.builder("sns.region.latency", shard.getHealth(), RegionHealth::getLatencyMillis)
+          .description("Weighted average latency of SNS calls to the region")
+          .baseUnit("milliseconds")
+          .tags(tags)
+          .register(meterRegistry);
+      Gauge.builder("sns.region.error-rate", shard.getHealth(), RegionHealth::getErrorRate)
+          .description("Weighted average failure rate of SNS calls to the region")
+          .tags(tags)
+          .register(meterRegistry);
+      Gauge.builder("sns.region.ejected", shard.getHealth(), health -> health.isEjected() ? 1 : 0)
+          .description("1 while the region is skipped by publish routing")
+          .tags(tags)
+          .register(meterRegistry);
+      failovers.add(Counter.builder("sns.region.failovers")
+          .description("Publishes moved to the next region after a failure")
+          .tags(tags)
+          .register(meterRegistry));
+      if (shard != primary) {
+        Gauge.builder("sns.region.topics", servedTopics,
+                served -> served.getOrDefault(shard, Set.of()).size())
+            .description("Topics the secondary region can take publishes for")
+            .tags(tags)
+            .register(meterRegistry);
+      }
+    }
+  }
+
+  @PostConstruct
+  public void start() {
+    if (shards.size() > 1) {
+      scheduler.scheduleWithFixedDelay(this::refreshServedTopics, 0, topicsRefreshIntervalMillis,
+          TimeUnit.MILLISECONDS);
+    }
+  }
+
+  /*
+    Lists the topics of every secondary and keeps those with at least one confirmed
+    subscription, so a failover never lands on a topic that is missing or that nobody would
+    receive from. A secondary that cannot be listed keeps its last view; one never listed
+    serves nothing. The primary is listed only to log how many of its topics are not covered.
+   */
+  void refreshServedTopics() {
+    Set<String> primaryTopics = primaryTopicArns();
+    for (SnsShard shard : shards) {
+      if (shard == primary) {
+        continue;
+      }
+      Set<String> served = ConcurrentHashMap.newKeySet();
+      try {
+        for (String topicArn : topicArns(shard.getClient())) {
+          if (hasConfirmedSubscription(shard.getClient(), topicArn)) {
+            served.add(primaryTopicArn(topicArn, shard));
+          }
+        }
+      } catch (SdkClientException e) {
+        log.warn("Not possible to list the topics of region {}: {}", shard.getRegion(),
+            e.getMessage());
+        continue;
+      }
+
+      Set<String> previous = servedTopics.put(shard, served);
+      long missing = primaryTopics.stream().filter(topic -> !served.contains(topic)).count();
+      if (missing > 0 && !served.equals(previous)) {
+        log.warn("Region {} lacks {} of {} topics or their subscriptions, their publishes do not"
+            + " fail over there", shard.getRegion(), missing, primaryTopics.size());
+      }
+    }
+  }
+
+  @Override
+  public PublishResult publish(PublishRequest request) {
+    List<SnsShard> candidates = candidates(request.getTopicArn());
+    for (int attempt = 0; ; attempt++) {
+      SnsShard shard = candidates.get(attempt);
+      try {
+        PublishRequest routed = request.clone()
+            .withTopicArn(topicArn(request.getTopicArn(), shard));
+        return call(shard, client -> client.publish(routed), result -> false);
+      } catch (SdkClientException e) {
+        boolean retryable = isMissingTopic(shard, request.getTopicArn(), e) || canFailOver(e);
+        if (attempt + 1 >= candidates.size() || !retryable) {
+          throw e;
+        }
+        failover(shard, e);
+      }
+    }
+  }
+
+  /*
+    Entries failed by a server fault are sent again to the next shard; the result merges what
+    every shard accepted with what the last one still failed.
+   */
+  @Override
+  public PublishBatchResult publishBatch(PublishBatchRequest request) {
+    List<SnsShard> candidates = candidates(request.getTopicArn());
+    List<PublishBatchRequestEntry> entries = request.getPublishBatchRequestEntries();
+    List<PublishBatchResultEntry> successful = new ArrayList<>();
+    List<BatchResultErrorEntry> failed = new ArrayList<>();
+
+    for (int attempt = 0; ; attempt++) {
+      SnsShard shard = candidates.get(attempt);
+      boolean last = attempt + 1 >= candidates.size();
+      PublishBatchResult result;
+      try {
+        PublishBatchRequest routed = request.clone()
+            .withTopicArn(topicArn(request.getTopicArn(), shard))
+            .withPublishBatchRequestEntries(entries);
+        result = call(shard, client -> client.publishBatch(routed),
+            batch -> batch.getFailed().stream().anyMatch(entry -> !entry.isSenderFault()));
+      } catch (SdkClientException e) {
+        boolean retryable = isMissingTopic(shard, request.getTopicArn(), e) || canFailOver(e);
+        if (!last && retryable) {
+          failover(shard, e);
+          continue;
+        }
+        if (successful.isEmpty() && failed.isEmpty()) {
+          throw e;
+        }
+        entries.forEach(entry -> failed.add(new BatchResultErrorEntry()
+            .withId(entry.getId())
+            .withCode(e instanceof AmazonServiceException
+                ? ((AmazonServiceException) e).getErrorCode() : "ClientError")
+            .withMessage(e.getMessage())
+            .withSenderFault(false)));
+        return new PublishBatchResult().withSuccessful(successful).withFailed(failed);
+      }
+
+      successful.addAll(result.getSuccessful());
+      Set<String> retry = new HashSet<>();
+      for (BatchResultErrorEntry entry : result.getFailed()) {
+        if (entry.isSenderFault() || last) {
+          failed.add(entry);
+        } else {
+          retry.add(entry.getId());
+        }
+      }
+      if (retry.isEmpty()) {
+        return new PublishBatchResult().withSuccessful(successful).withFailed(failed);
+      }
+      failover(shard, null);
+      entries = entries.stream()
+          .filter(entry -> retry.contains(entry.getId()))
+          .collect(Collectors.toList());
+    }
+  }
+
+  @Override
+  public PublishResult publish(String topicArn, String message) {
+    return publish(new PublishRequest(topicArn, message));
+  }
+
+  @Override
+  public PublishResult publish(String topicArn, String message, String subject) {
+    return publish(new PublishRequest(topicArn, message, subject));
+  }
+
+  @Override
+  public CreateTopicResult createTopic(CreateTopicRequest request) {
+    return primary.getClient().createTopic(request);
+  }
+
+  @Override
+  public CreateTopicResult createTopic(String name) {
+    return createTopic(new CreateTopicRequest(name));
+  }
+
+  @Override
+  public SubscribeResult subscribe(SubscribeRequest request) {
+    return primary.getClient().subscribe(request);
+  }
+
+  @Override
+  public SubscribeResult subscribe(String topicArn, String protocol, String endpoint) {
+    return subscribe(new SubscribeRequest(topicArn, protocol, endpoint));
+  }
+
+  @Override
+  public ConfirmSubscriptionResult confirmSubscription(ConfirmSubscriptionRequest request) {
+    return primary.getClient().confirmSubscription(request);
+  }
+
+  @Override
+  public ConfirmSubscriptionResult confirmSubscription(String topicArn, String token,
+      String authenticateOnUnsubscribe) {
+    return confirmSubscription(new ConfirmSubscriptionRequest(topicArn, token,
+        authenticateOnUnsubscribe));
+  }
+
+  @Override
+  public ConfirmSubscriptionResult confirmSubscription(String topicArn, String token) {
+    return confirmSubscription(new ConfirmSubscriptionRequest(topicArn, token));
+  }
+
+  @Override
+  public UnsubscribeResult unsubscribe(UnsubscribeRequest request) {
+    return primary.getClient().unsubscribe(request);
+  }
+
+  @Override
+  public UnsubscribeResult unsubscribe(String subscriptionArn) {
+    return unsubscribe(new UnsubscribeRequest(subscriptionArn));
+  }
+
+  @Override
+  public ListTopicsResult listTopics(ListTopicsRequest request) {
+    return primary.getClient().listTopics(request);
+  }
+
+  @Override
+  public ListTopicsResult listTopics() {
+    return listTopics(new ListTopicsRequest());
+  }
+
+  @Override
+  public ListTopicsResult listTopics(String nextToken) {
+    return listTopics(new ListTopicsRequest(nextToken));
+  }
+
+  @Override
+  public ListSubscriptionsByTopicResult listSubscriptionsByTopic(
+      ListSubscriptionsByTopicRequest request) {
+    return primary.getClient().listSubscriptionsByTopic(request);
+  }
+
+  @Override
+  public ListSubscriptionsByTopicResult listSubscriptionsByTopic(String topicArn) {
+    return listSubscriptionsByTopic(new ListSubscriptionsByTopicRequest(topicArn));
+  }
+
+  @Override
+  public ListSubscriptionsByTopicResult listSubscriptionsByTopic(String topicArn,
+      String nextToken) {
+    return listSubscriptionsByTopic(new ListSubscriptionsByTopicRequest(topicArn, nextToken));
+  }
+
+  @Override
+  public GetTopicAttributesResult getTopicAttributes(GetTopicAttributesRequest request) {
+    return primary.getClient().getTopicAttributes(request);
+  }
+
+  @Override
+  public GetTopicAttributesResult getTopicAttributes(String topicArn) {
+    return getTopicAttributes(new GetTopicAttributesRequest(topicArn));
+  }
+
+  @Override
+  public GetSubscriptionAttributesResult getSubscriptionAttributes(
+      GetSubscriptionAttributesRequest request) {
+    return primary.getClient().getSubscriptionAttributes(request);
+  }
+
+  @Override
+  public GetSubscriptionAttributesResult getSubscriptionAttributes(String subscriptionArn) {
+    return getSubscriptionAttributes(new GetSubscriptionAttributesRequest(subscriptionArn));
+  }
+
+  @Override
+  public SetSubscriptionAttributesResult setSubscriptionAttributes(
+      SetSubscriptionAttributesRequest request) {
+    return primary.getClient().setSubscriptionAttributes(request);
+  }
+
+  @Override
+  public SetSubscriptionAttributesResult setSubscriptionAttributes(String subscriptionArn,
+      String attributeName, String attributeValue) {
+    return setSubscriptionAttributes(new SetSubscriptionAttributesRequest(subscriptionArn,
+        attributeName, attributeValue));
+  }
+
+  @Override
+  public ResponseMetadata getCachedResponseMetadata(AmazonWebServiceRequest request) {
+    return primary.getClient().getCachedResponseMetadata(request);
+  }
+
+  @Override
+  public void shutdown() {
+    scheduler.shutdownNow();
+    shards.forEach(shard -> shard.getClient().shutdown());
+  }
+
+  /*
+    Available shards first, the primary ahead of the secondaries, then the ejected ones as a
+    last resort, at most maxAttempts of them. Secondaries without the topic are left out.
+   */
+  private List<SnsShard> candidates(String topicArn) {
+    if (MessageGroupLanes.isFifo(topicArn)) {
+      return List.of(primary);
+    }
+    List<SnsShard> available = new ArrayList<>(shards.size());
+    List<SnsShard> ejected = new ArrayList<>(0);
+    for (SnsShard shard : shards) {
+      if (shard != primary && !servedTopics.getOrDefault(shard, Set.of()).contains(topicArn)) {
+        continue;
+      }
+      (shard.getHealth().isAvailable() ? available : ejected).add(shard);
+    }
+    available.sort(preference);
+    ejected.sort(preference);
+    available.addAll(ejected);
+    return available.size() > maxAttempts ? available.subList(0, maxAttempts) : available;
+  }
+
+  private String topicArn(String topicArn, SnsShard shard) {
+    String prefix = primary.arnPrefix();
+    if (shard == primary || topicArn == null || !topicArn.startsWith(prefix + ":")) {
+      return topicArn;
+    }
+    return shard.arnPrefix() + topicArn.substring(prefix.length());
+  }
+
+  private String primaryTopicArn(String topicArn, SnsShard shard) {
+    String prefix = shard.arnPrefix();
+    return topicArn.startsWith(prefix + ":")
+        ? primary.arnPrefix() + topicArn.substring(prefix.length())
+        : topicArn;
+  }
+
+  private Set<String> primaryTopicArns() {
+    try {
+      return topicArns(primary.getClient());
+    } catch (SdkClientException e) {
+      log.warn("Not possible to list the topics of region {}: {}", primary.getRegion(),
+          e.getMessage());
+      return Set.of();
+    }
+  }
+
+  private static Set<String> topicArns(AmazonSNS client) {
+    Set<String> topicArns = new HashSet<>();
+    String nextToken = null;
+    do {
+      ListTopicsResult result = client.listTopics(nextToken);
+      for (Topic topic : result.getTopics()) {
+        topicArns.add(topic.getTopicArn());
+      }
+      nextToken = result.getNextToken();
+    } while (nextToken != null);
+    return topicArns;
+  }
+
+  private static boolean hasConfirmedSubscription(AmazonSNS client, String topicArn) {
+    String nextToken = null;
+    do {
+      ListSubscriptionsByTopicResult result = client.listSubscriptionsByTopic(topicArn,
+          nextToken);
+      for (Subscription subscription : result.getSubscriptions()) {
+        if (subscription.getSubscriptionArn().startsWith("arn:")) {
+          return true;
+        }
+      }
+      nextToken = result.getNextToken();
+    } while (nextToken != null);
+    return false;
+  }
+
+  /*
+    A secondary answering 404 lost the topic since its last check; it stops serving the topic
+    until the next one finds it again.
+   */
+  private boolean isMissingTopic(SnsShard shard, String topicArn, SdkClientException e) {
+    if (shard == primary || !(e instanceof AmazonServiceException)
+        || ((AmazonServiceException) e).getStatusCode() != 404) {
+      return false;
+    }
+    Set<String> served = servedTopics.get(shard);
+    if (served != null) {
+      served.remove(topicArn);
+    }
+    return true;
+  }
+
+  private static <R> R call(SnsShard shard, Function<AmazonSNS, R> call,
+      Predicate<R> failed) {
+    long started = System.nanoTime();
+    try {
+      R result = call.apply(shard.getClient());
+      shard.getHealth().onResult(System.nanoTime() - started, failed.test(result));
+      return result;
+    } catch (SdkClientException e) {
+      shard.getHealth().onResult(System.nanoTime() - started, isFailure(e));
+      throw e;
+    }
+  }
+
+  private void failover(SnsShard shard, SdkClientException e) {
+    failovers.get(shards.indexOf(shard)).increment();
+    log.warn("SNS publish to {} failed ({}), trying the next region", shard.getRegion(),
+        e == null ? "server fault" : e.getMessage());
+  }
+
+  /*
+    A connection that was never opened sent nothing; 4xx answers other than throttling would
+    fail anywhere.
+   */
+  private static boolean canFailOver(SdkClientException e) {
+    if (e instanceof AmazonServiceException) {
+      return isFailure(e);
+    }
+    for (Throwable cause = e.getCause(); cause != null; cause = cause.getCause()) {
+      if (cause instanceof ConnectException || cause instanceof ConnectTimeoutException
+          || cause instanceof UnknownHostException) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /* throttling, 5xx and client side errors count against the health of the region */
+  private static boolean isFailure(SdkClientException e) {
+    if (e instanceof AmazonServiceException) {
+      AmazonServiceException serviceException = (AmazonServiceException) e;
+      return serviceException.getStatusCode() >= 500
+          || RetryUtils.isThrottlingException(serviceException);
+    }
+    return true;
+  }
+
+}
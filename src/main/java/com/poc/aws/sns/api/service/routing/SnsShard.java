@@ -0,0 +1,21 @@
+package com.poc.aws.sns.api.service.routing;
+
+import com.amazonaws.services.sns.AmazonSNS;
+import lombok.Value;
+
+/*
+  The SNS client of one region and account, with the health score routing decisions use.
+ */
+@Value
+public class SnsShard {
+
+  String region;
+  String account;
+  AmazonSNS client;
+  RegionHealth health;
+
+  public String arnPrefix() {
+    return "arn:aws:sns:" + region + ":" + account;
+  }
+
+}
@@ -0,0 +1,134 @@
+package com.poc.aws.sns.api.service.signature;
+
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import com.poc.aws.sns.api.exceptions.ForbiddenException;
+import com.poc.aws.sns.api.exceptions.MessageError;
+import com.poc.aws.sns.api.exceptions.ServiceUnavailableException;
+import com.poc.aws.sns.api.interfaces.Messages;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.GuavaCacheMetrics;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.security.GeneralSecurityException;
+import java.security.cert.CertificateFactory;
+import java.security.cert.X509Certificate;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/*
+  Signing certificates by SigningCertURL. SNS signs with a handful of certificates, so nearly
+  every message is verified from the cache. Concurrent misses for the same URL wait for a
+  single download, and only URLs on an allowed scheme and host are ever fetched, otherwise the
+  message could point us at a certificate of its own choosing.
+ */
+@Slf4j
+@Component
+public class SigningCertificateCache {
+
+  private final MessageError messageError;
+  private final List<String> allowedSchemes;
+  private final Pattern allowedHosts;
+  private final HttpClient httpClient;
+  private final Duration fetchTimeout;
+  private final LoadingCache<URI, X509Certificate> certificates;
+
+  public SigningCertificateCache(MessageError messageError, MeterRegistry meterRegistry,
+      @Value("${aws.sns.signature.allowed-schemes:https}") List<String> allowedSchemes,
+      @Value("${aws.sns.signature.allowed-hosts:^sns\\.[a-z0-9\\-]+\\.amazonaws\\.com(\\.cn)?$}")
+          String allowedHosts,
+      @Value("${aws.sns.signature.certificate-cache.ttl-ms:3600000}") long ttlMillis,
+      @Value("${aws.sns.signature.certificate-cache.max-size:64}") long maxSize,
+      @Value("${aws.sns.signature.fetch-timeout-ms:5000}") long fetchTimeoutMillis) {
+    this.messageError = messageError;
+    this.allowedSchemes = allowedSchemes;
+    this.allowedHosts = Pattern.compile(allowedHosts);
+    this.fetchTimeout = Duration.ofMillis(fetchTimeoutMillis);
+    this.httpClient = HttpClient.newBuilder()
+        .connectTimeout(fetchTimeout)
+        .followRedirects(HttpClient.Redirect.NEVER)
+        .build();
+    this.certificates = CacheBuilder.newBuilder()
+        .expireAfterWrite(ttlMillis, TimeUnit.MILLISECONDS)
+        .maximumSize(maxSize)
+        .recordStats()
+        .build(CacheLoader.from(this::fetch));
+    GuavaCacheMetrics.monitor(meterRegistry, certificates, "sns.signing-certificates");
+  }
+
+  public X509Certificate get(String signingCertUrl) {
+    URI uri = allowed(signingCertUrl);
+    try {
+      return certificates.get(uri);
+    } catch (ExecutionException | UncheckedExecutionException e) {
+      if (e.getCause() instanceof ServiceUnavailableException) {
+        throw (ServiceUnavailableException) e.getCause();
+      }
+      if (e.getCause() instanceof ForbiddenException) {
+        throw (ForbiddenException) e.getCause();
+      }
+      throw new ServiceUnavailableException(
+          messageError.create(Messages.SIGNING_CERTIFICATE_UNAVAILABLE, signingCertUrl),
+          e.getCause().getMessage());
+    }
+  }
+
+  private URI allowed(String signingCertUrl) {
+    URI uri;
+    try {
+      uri = signingCertUrl == null ? null : URI.create(signingCertUrl);
+    } catch (IllegalArgumentException e) {
+      uri = null;
+    }
+    if (uri == null || uri.getScheme() == null || uri.getHost() == null
+        || !allowedSchemes.contains(uri.getScheme().toLowerCase())
+        || !allowedHosts.matcher(uri.getHost().toLowerCase()).matches()) {
+      throw new ForbiddenException(
+          messageError.create(Messages.INVALID_SIGNATURE, "untrusted SigningCertURL"),
+          signingCertUrl);
+    }
+    return uri;
+  }
+
+  private X509Certificate fetch(URI uri) {
+    log.info("Fetching SNS signing certificate {}", uri);
+    HttpRequest request = HttpRequest.newBuilder(uri).timeout(fetchTimeout).GET().build();
+    try {
+      HttpResponse<InputStream> response = httpClient.send(request,
+          HttpResponse.BodyHandlers.ofInputStream());
+      try (InputStream body = response.body()) {
+        if (response.statusCode() != 200) {
+          throw new IOException("HTTP " + response.statusCode());
+        }
+        X509Certificate certificate = (X509Certificate) CertificateFactory.getInstance("X.509")
+            .generateCertificate(body);
+        certificate.checkValidity();
+        return certificate;
+      }
+    } catch (GeneralSecurityException e) {
+      throw new ForbiddenException(
+          messageError.create(Messages.INVALID_SIGNATURE, "invalid signing certificate"),
+          e.getMessage());
+    } catch (IOException e) {
+      throw new ServiceUnavailableException(
+          messageError.create(Messages.SIGNING_CERTIFICATE_UNAVAILABLE, uri.toString()), e.getMessage());
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new ServiceUnavailableException(
+          messageError.create(Messages.SIGNING_CERTIFICATE_UNAVAILABLE, uri.toString()), e.getMessage());
+    }
+  }
+
+}
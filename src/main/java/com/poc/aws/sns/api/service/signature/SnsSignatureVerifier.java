@@ -0,0 +1,117 @@
+package com.poc.aws.sns.api.service.signature;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.poc.aws.sns.api.exceptions.ForbiddenException;
+import com.poc.aws.sns.api.exceptions.MessageError;
+import com.poc.aws.sns.api.interfaces.Messages;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.NoSuchAlgorithmException;
+import java.security.Signature;
+import java.util.Base64;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+/*
+  Verifies the signature of SNS HTTP deliveries as described in "Verifying the signatures of
+  Amazon SNS messages". It is safe to call from any number of threads: certificates are shared
+  through the cache and each thread keeps its own Signature instances.
+ */
+@Component
+@RequiredArgsConstructor
+public class SnsSignatureVerifier {
+
+  private static final String[] NOTIFICATION_FIELDS =
+      {"Message", "MessageId", "Subject", "Timestamp", "TopicArn", "Type"};
+  private static final String[] CONFIRMATION_FIELDS =
+      {"Message", "MessageId", "SubscribeURL", "Timestamp", "Token", "TopicArn", "Type"};
+
+  private static final ThreadLocal<Signature> SHA1_WITH_RSA =
+      ThreadLocal.withInitial(() -> signature("SHA1withRSA"));
+  private static final ThreadLocal<Signature> SHA256_WITH_RSA =
+      ThreadLocal.withInitial(() -> signature("SHA256withRSA"));
+
+  private final SigningCertificateCache signingCertificateCache;
+  private final MessageError messageError;
+
+  public void verify(JsonNode message) {
+    String[] fields = fields(text(message, "Type"));
+    Signature signature = signature(message);
+    byte[] expected = decode(text(message, "Signature"));
+
+    try {
+      signature.initVerify(signingCertificateCache.get(text(message, "SigningCertURL")));
+      signature.update(stringToSign(message, fields).getBytes(StandardCharsets.UTF_8));
+      if (!signature.verify(expected)) {
+        throw invalid("signature mismatch");
+      }
+    } catch (GeneralSecurityException e) {
+      throw invalid(e.getMessage());
+    }
+  }
+
+  private String[] fields(String type) {
+    if ("Notification".equals(type)) {
+      return NOTIFICATION_FIELDS;
+    }
+    if ("SubscriptionConfirmation".equals(type) || "UnsubscribeConfirmation".equals(type)) {
+      return CONFIRMATION_FIELDS;
+    }
+    throw invalid("unknown message type " + type);
+  }
+
+  private Signature signature(JsonNode message) {
+    String version = text(message, "SignatureVersion");
+    if ("1".equals(version)) {
+      return SHA1_WITH_RSA.get();
+    }
+    if ("2".equals(version)) {
+      return SHA256_WITH_RSA.get();
+    }
+    throw invalid("unsupported SignatureVersion " + version);
+  }
+
+  private byte[] decode(String signature) {
+    if (signature == null) {
+      throw invalid("missing Signature");
+    }
+    try {
+      return Base64.getDecoder().decode(signature);
+    } catch (IllegalArgumentException e) {
+      throw invalid("malformed Signature");
+    }
+  }
+
+  /*
+    Each present field in byte sort order as "name\nvalue\n". Subject is left out of
+    notifications published without one.
+   */
+  private static String stringToSign(JsonNode message, String[] fields) {
+    StringBuilder builder = new StringBuilder(512);
+    for (String field : fields) {
+      String value = text(message, field);
+      if (value != null) {
+        builder.append(field).append('\n').append(value).append('\n');
+      }
+    }
+    return builder.toString();
+  }
+
+  private static String text(JsonNode message, String field) {
+    JsonNode value = message.get(field);
+    return value == null || value.isNull() ? null : value.asText();
+  }
+
+  private ForbiddenException invalid(String reason) {
+    return new ForbiddenException(messageError.create(Messages.INVALID_SIGNATURE, reason));
+  }
+
+  private static Signature signature(String algorithm) {
+    try {
+      return Signature.getInstance(algorithm);
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+}
@@ -0,0 +1,100 @@
+package com.poc.aws.sns.api.service.subscription;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.poc.aws.sns.api.service.SNSService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.stereotype.Component;
+
+/*
+  Subscribes this service to the default topic at startup. In background mode the context
+  starts without waiting for SNS and the subscription is retried with exponential backoff
+  until it succeeds; meanwhile this indicator keeps the readiness group OUT_OF_SERVICE.
+  Otherwise it subscribes while the context starts and a failure aborts the startup.
+ */
+@Slf4j
+@Lazy(false)
+@Component
+public class DefaultSubscription implements HealthIndicator {
+
+  private final SNSService snsService;
+  private final String topicDefault;
+  private final boolean background;
+  private final long initialBackoffMillis;
+  private final long maxBackoffMillis;
+  private final AtomicInteger attempts = new AtomicInteger();
+
+  private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(
+      new ThreadFactoryBuilder().setNameFormat("sns-default-subscription-%d").setDaemon(true)
+          .build());
+
+  private volatile boolean subscribed;
+  private volatile String requestId;
+  private volatile String lastError;
+
+  public DefaultSubscription(SNSService snsService, String topicDefault,
+      @Value("${aws.sns.default-subscription.background:true}") boolean background,
+      @Value("${aws.sns.default-subscription.initial-backoff-ms:1000}") long initialBackoffMillis,
+      @Value("${aws.sns.default-subscription.max-backoff-ms:60000}") long maxBackoffMillis) {
+    this.snsService = snsService;
+    this.topicDefault = topicDefault;
+    this.background = background;
+    this.initialBackoffMillis = initialBackoffMillis;
+    this.maxBackoffMillis = maxBackoffMillis;
+  }
+
+  @PostConstruct
+  public void start() {
+    if (background) {
+      scheduler.execute(() -> subscribe(initialBackoffMillis));
+    } else {
+      attempts.incrementAndGet();
+      requestId = snsService.subscribe(topicDefault);
+      subscribed = true;
+      scheduler.shutdown();
+    }
+  }
+
+  @PreDestroy
+  public void shutdown() {
+    scheduler.shutdownNow();
+  }
+
+  @Override
+  public Health health() {
+    Health.Builder health = subscribed ? Health.up() : Health.outOfService();
+    health.withDetail("topic", topicDefault).withDetail("attempts", attempts.get());
+    if (requestId != null) {
+      health.withDetail("requestId", requestId);
+    } else if (lastError != null) {
+      health.withDetail("lastError", lastError);
+    }
+    return health.build();
+  }
+
+  private void subscribe(long backoff) {
+    int attempt = attempts.incrementAndGet();
+    try {
+      requestId = snsService.subscribe(topicDefault);
+      subscribed = true;
+      lastError = null;
+      scheduler.shutdown();
+    } catch (RuntimeException e) {
+      lastError = e.getMessage();
+      log.warn("Not possible to subscribe to topic {} (attempt {}), retrying in {} ms: {}",
+          topicDefault, attempt, backoff, e.getMessage());
+      scheduler.schedule(() -> subscribe(Math.min(maxBackoffMillis, backoff * 2)), backoff,
+          TimeUnit.MILLISECONDS);
+    }
+  }
+
+}
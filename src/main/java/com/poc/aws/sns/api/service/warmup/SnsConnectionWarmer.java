@@ -0,0 +1,126 @@
+package com.poc.aws.sns.api.service.warmup;
+
+import com.amazonaws.services.sns.AmazonSNS;
+import com.amazonaws.services.sns.AmazonSNSAsync;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.poc.aws.sns.api.service.routing.SnsShard;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.stereotype.Component;
+
+/*
+  Opens pooled connections to SNS before the instance takes traffic, so the first requests
+  after a rollout do not pay for DNS, TCP and TLS setup. Each client, of every region when
+  routing is enabled, fires a burst of concurrent ListTopics calls released together; fast
+  answers may share a connection, so up to that many connections end up in the pool. Until
+  the burst is over this indicator keeps the readiness group OUT_OF_SERVICE. Failed calls are
+  only logged, warm-up never blocks readiness for longer than the timeout.
+ */
+@Slf4j
+@Lazy(false)
+@Component("snsWarmup")
+@ConditionalOnProperty(value = "aws.sns.client.warmup.enabled", havingValue = "true")
+public class SnsConnectionWarmer implements HealthIndicator {
+
+  private final List<AmazonSNS> clients = new ArrayList<>();
+  private final int connections;
+  private final long timeoutMillis;
+  private final AtomicInteger succeeded = new AtomicInteger();
+  private final AtomicInteger failed = new AtomicInteger();
+  private final ExecutorService executor;
+
+  private volatile boolean finished;
+  private volatile long elapsedMillis;
+
+  public SnsConnectionWarmer(List<SnsShard> snsShards, Optional<AmazonSNSAsync> amazonSNSAsync,
+      @Value("${aws.sns.client.warmup.connections:10}") int connections,
+      @Value("${aws.sns.client.warmup.timeout-ms:10000}") long timeoutMillis) {
+    snsShards.forEach(shard -> this.clients.add(shard.getClient()));
+    amazonSNSAsync.ifPresent(this.clients::add);
+    this.connections = connections;
+    this.timeoutMillis = timeoutMillis;
+    this.executor = Executors.newFixedThreadPool(connections + 1,
+        new ThreadFactoryBuilder().setNameFormat("sns-warmup-%d").setDaemon(true).build());
+  }
+
+  @PostConstruct
+  public void start() {
+    executor.execute(this::warmUp);
+  }
+
+  @PreDestroy
+  public void shutdown() {
+    executor.shutdownNow();
+  }
+
+  @Override
+  public Health health() {
+    Health.Builder health = finished ? Health.up() : Health.outOfService();
+    return health
+        .withDetail("connections", connections)
+        .withDetail("succeeded", succeeded.get())
+        .withDetail("failed", failed.get())
+        .withDetail("elapsedMs", elapsedMillis)
+        .build();
+  }
+
+  private void warmUp() {
+    long start = System.nanoTime();
+    try {
+      for (AmazonSNS client : clients) {
+        burst(client, start + TimeUnit.MILLISECONDS.toNanos(timeoutMillis));
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    } finally {
+      elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+      finished = true;
+      executor.shutdown();
+    }
+    log.info("SNS connection warm-up finished in {} ms, {} calls succeeded and {} failed",
+        elapsedMillis, succeeded.get(), failed.get());
+  }
+
+  private void burst(AmazonSNS client, long deadline) throws InterruptedException {
+    CountDownLatch ready = new CountDownLatch(connections);
+    CountDownLatch go = new CountDownLatch(1);
+    CountDownLatch done = new CountDownLatch(connections);
+
+    for (int i = 0; i < connections; i++) {
+      executor.execute(() -> {
+        try {
+          ready.countDown();
+          go.await();
+          client.listTopics();
+          succeeded.incrementAndGet();
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        } catch (RuntimeException e) {
+          failed.incrementAndGet();
+          log.warn("SNS warm-up call failed: {}", e.getMessage());
+        } finally {
+          done.countDown();
+        }
+      });
+    }
+
+    ready.await(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+    go.countDown();
+    done.await(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+  }
+
+}
@@ -0,0 +1,81 @@
+package com.poc.aws.sns.api.config;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import com.amazonaws.DnsResolver;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Test;
+
+class CachingDnsResolverTest {
+
+  private static final String HOST = "sns.us-east-1.amazonaws.com";
+
+  private final AtomicInteger lookups = new AtomicInteger();
+
+  @Test
+  void resolvesAHostOncePerTtl() throws Exception {
+    CachingDnsResolver resolver = new CachingDnsResolver(host -> lookup(), 60_000, 16);
+
+    assertThat(resolver.resolve(HOST)).containsExactly(InetAddress.getLoopbackAddress());
+    assertThat(resolver.resolve(HOST)).containsExactly(InetAddress.getLoopbackAddress());
+    assertThat(lookups).hasValue(1);
+  }
+
+  @Test
+  void resolvesAgainOnceTheTtlExpired() throws Exception {
+    CachingDnsResolver resolver = new CachingDnsResolver(host -> lookup(), 50, 16);
+
+    resolver.resolve(HOST);
+    Thread.sleep(100);
+    resolver.resolve(HOST);
+
+    assertThat(lookups).hasValue(2);
+  }
+
+  @Test
+  void doesNotCacheFailedLookups() throws Exception {
+    DnsResolver flaky = host -> {
+      if (lookups.incrementAndGet() == 1) {
+        throw new UnknownHostException(host);
+      }
+      return new InetAddress[] {InetAddress.getLoopbackAddress()};
+    };
+    CachingDnsResolver resolver = new CachingDnsResolver(flaky, 60_000, 16);
+
+    assertThatThrownBy(() -> resolver.resolve(HOST))
+        .isInstanceOf(UnknownHostException.class)
+        .hasMessage(HOST);
+    assertThat(resolver.resolve(HOST)).containsExactly(InetAddress.getLoopbackAddress());
+    assertThat(lookups).hasValue(2);
+  }
+
+  @Test
+  void reportsUnexpectedFailuresAsUnknownHost() {
+    IllegalStateException failure = new IllegalStateException("resolver down");
+    CachingDnsResolver resolver = new CachingDnsResolver(host -> {
+      throw failure;
+    }, 60_000, 16);
+
+    assertThatThrownBy(() -> resolver.resolve(HOST))
+        .isInstanceOf(UnknownHostException.class)
+        .hasCause(failure);
+  }
+
+  @Test
+  void returnsACopyOfTheCachedAddresses() throws Exception {
+    CachingDnsResolver resolver = new CachingDnsResolver(host -> lookup(), 60_000, 16);
+
+    resolver.resolve(HOST)[0] = null;
+
+    assertThat(resolver.resolve(HOST)).containsExactly(InetAddress.getLoopbackAddress());
+  }
+
+  private InetAddress[] lookup() {
+    lookups.incrementAndGet();
+    return new InetAddress[] {InetAddress.getLoopbackAddress()};
+  }
+
+}
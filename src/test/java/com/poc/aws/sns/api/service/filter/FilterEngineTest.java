@@ -0,0 +1,101 @@
+package com.poc.aws.sns.api.service.filter;
+
+import static com.poc.aws.sns.api.service.filter.FilterPolicyTest.input;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+class FilterEngineTest {
+
+  private static final String[] POLICIES = {
+      "{\"store\": [\"a\"]}",
+      "{\"store\": [\"a\", \"b\"], \"event\": [\"created\"]}",
+      "{\"store\": [\"c\"], \"price\": [{\"numeric\": [\">=\", 50]}]}",
+      "{\"event\": [\"created\", \"deleted\"], \"store\": [{\"prefix\": \"b\"}]}",
+      "{\"event\": [{\"anything-but\": \"deleted\"}]}",
+      "{\"price\": [{\"numeric\": [\">\", 10, \"<=\", 100]}]}",
+      "{\"store\": [{\"exists\": false}]}",
+      "{\"tags\": [\"red\"]}",
+      "{\"price\": [{\"anything-but\": [20, 30]}], \"store\": [\"b\", \"c\"]}",
+      "{\"event\": [{\"equals-ignore-case\": \"CREATED\"}]}",
+      "{\"store\": [\"a\"], \"tags\": [{\"exists\": true}]}",
+      "{\"store\": [{\"anything-but\": {\"prefix\": \"a\"}}]}"
+  };
+  private static final String[] STORES = {"a", "b", "c", "bb", "ab"};
+  private static final String[] EVENTS = {"created", "deleted", "Created", "updated"};
+  private static final String[] TAGS = {"[\"red\"]", "[\"blue\", \"red\"]", "[\"green\"]"};
+
+  @Test
+  void routesToTheSameTargetsAsEvaluatingEveryPolicy() {
+    FilterEngine.Builder<Integer> builder = FilterEngine.builder();
+    List<FilterPolicy> policies = new ArrayList<>();
+    for (int i = 0; i < POLICIES.length; i++) {
+      policies.add(FilterPolicy.compile(POLICIES[i]));
+      builder.add(i, policies.get(i));
+    }
+    builder.add(POLICIES.length, null);
+    policies.add(null);
+    FilterEngine<Integer> engine = builder.build();
+
+    Random random = new Random(42);
+    for (int i = 0; i < 2_000; i++) {
+      FilterInput input = randomInput(random);
+
+      List<Integer> expected = new ArrayList<>();
+      for (int id = 0; id < policies.size(); id++) {
+        if (policies.get(id) == null || policies.get(id).matches(input)) {
+          expected.add(id);
+        }
+      }
+      assertThat(engine.route(input)).as("targets of message %d", i).isEqualTo(expected);
+    }
+  }
+
+  @Test
+  void routesToEveryMatchingTargetInRegistrationOrder() {
+    FilterEngine<String> engine = FilterEngine.<String>builder()
+        .add("first", FilterPolicy.compile("{\"store\": [\"a\"]}"))
+        .add("everything", null)
+        .add("second", FilterPolicy.compile("{\"store\": [\"a\", \"b\"]}"))
+        .add("expensive", FilterPolicy.compile("{\"price\": [{\"numeric\": [\">\", 100]}]}"))
+        .build();
+
+    assertThat(engine.size()).isEqualTo(4);
+    assertThat(engine.route(input("store", "String", "a")))
+        .containsExactly("first", "everything", "second");
+    assertThat(engine.route(input("store", "String", "b", "price", "Number", "500")))
+        .containsExactly("everything", "second", "expensive");
+    assertThat(engine.route(input())).containsExactly("everything");
+  }
+
+  @Test
+  void routesNowhereWithoutMatchingPolicies() {
+    FilterEngine<String> engine = FilterEngine.<String>builder()
+        .add("first", FilterPolicy.compile("{\"store\": [\"a\"]}"))
+        .build();
+
+    assertThat(engine.route(input("store", "String", "b"))).isEmpty();
+    assertThat(engine.route(input("store", "Number", "1"))).isEmpty();
+  }
+
+  private static FilterInput randomInput(Random random) {
+    List<String> attributes = new ArrayList<>();
+    if (random.nextBoolean()) {
+      attributes.addAll(List.of("store", "String", STORES[random.nextInt(STORES.length)]));
+    }
+    if (random.nextBoolean()) {
+      attributes.addAll(List.of("event", "String", EVENTS[random.nextInt(EVENTS.length)]));
+    }
+    if (random.nextBoolean()) {
+      attributes.addAll(List.of("price", "Number", String.valueOf(random.nextInt(12) * 10)));
+    }
+    if (random.nextBoolean()) {
+      attributes.addAll(List.of("tags", "String.Array", TAGS[random.nextInt(TAGS.length)]));
+    }
+    return input(attributes.toArray(new String[0]));
+  }
+
+}
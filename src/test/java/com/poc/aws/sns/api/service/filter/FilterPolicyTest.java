@@ -0,0 +1,171 @@
+package com.poc.aws.sns.api.service.filter;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import com.poc.aws.sns.api.interfaces.json.MessageAttribute;
+import java.util.HashMap;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+
+class FilterPolicyTest {
+
+  @Test
+  void matchesExactStringsAndNumbers() {
+    FilterPolicy policy = FilterPolicy.compile("{\"store\": [\"example_corp\"], \"size\": [10]}");
+
+    assertThat(policy.matches(input("store", "String", "example_corp", "size", "Number", "10.0")))
+        .isTrue();
+    assertThat(policy.matches(input("store", "String", "example_corp", "size", "Number", "11")))
+        .isFalse();
+    assertThat(policy.matches(input("store", "String", "example_corp", "size", "String", "10")))
+        .isFalse();
+    assertThat(policy.matches(input("store", "String", "example_corp"))).isFalse();
+  }
+
+  @Test
+  void matchesAnythingButStrings() {
+    FilterPolicy policy = FilterPolicy.compile(
+        "{\"event\": [{\"anything-but\": [\"order_cancelled\", \"order_failed\"]}]}");
+
+    assertThat(policy.matches(input("event", "String", "order_placed"))).isTrue();
+    assertThat(policy.matches(input("event", "String", "order_failed"))).isFalse();
+    assertThat(policy.matches(input())).isFalse();
+  }
+
+  @Test
+  void matchesAnythingButNumbers() {
+    FilterPolicy single = FilterPolicy.compile("{\"price\": [{\"anything-but\": 100}]}");
+    FilterPolicy list = FilterPolicy.compile("{\"price\": [{\"anything-but\": [100, 500]}]}");
+
+    assertThat(single.matches(input("price", "Number", "100.0"))).isFalse();
+    assertThat(single.matches(input("price", "Number", "101"))).isTrue();
+    assertThat(list.matches(input("price", "Number", "500"))).isFalse();
+    assertThat(list.matches(input("price", "Number", "250"))).isTrue();
+    /* a number is compared with the numbers of the list only */
+    assertThat(list.matches(input("price", "String", "100"))).isTrue();
+  }
+
+  @Test
+  void matchesPrefixSuffixAndEqualsIgnoreCase() {
+    FilterPolicy prefix = FilterPolicy.compile("{\"region\": [{\"prefix\": \"us-\"}]}");
+    FilterPolicy suffix = FilterPolicy.compile("{\"image\": [{\"suffix\": \".png\"}]}");
+    FilterPolicy ignoreCase = FilterPolicy.compile(
+        "{\"status\": [{\"equals-ignore-case\": \"shipped\"}]}");
+
+    assertThat(prefix.matches(input("region", "String", "us-east-1"))).isTrue();
+    assertThat(prefix.matches(input("region", "String", "eu-west-1"))).isFalse();
+    assertThat(suffix.matches(input("image", "String", "cat.png"))).isTrue();
+    assertThat(suffix.matches(input("image", "String", "cat.jpg"))).isFalse();
+    assertThat(ignoreCase.matches(input("status", "String", "SHIPPED"))).isTrue();
+    assertThat(ignoreCase.matches(input("status", "String", "shipping"))).isFalse();
+  }
+
+  @Test
+  void matchesAnythingButPrefix() {
+    FilterPolicy policy = FilterPolicy.compile(
+        "{\"region\": [{\"anything-but\": {\"prefix\": \"us-\"}}]}");
+
+    assertThat(policy.matches(input("region", "String", "eu-west-1"))).isTrue();
+    assertThat(policy.matches(input("region", "String", "us-east-1"))).isFalse();
+    assertThat(policy.matches(input("region", "Number", "1"))).isTrue();
+    assertThat(policy.matches(input())).isFalse();
+  }
+
+  @Test
+  void matchesNumericRanges() {
+    FilterPolicy closed = FilterPolicy.compile(
+        "{\"price\": [{\"numeric\": [\">=\", 10, \"<\", 20]}]}");
+    FilterPolicy open = FilterPolicy.compile("{\"price\": [{\"numeric\": [\">\", 10]}]}");
+    FilterPolicy equal = FilterPolicy.compile("{\"price\": [{\"numeric\": [\"=\", 10.5]}]}");
+
+    assertThat(closed.matches(input("price", "Number", "10"))).isTrue();
+    assertThat(closed.matches(input("price", "Number", "19.99"))).isTrue();
+    assertThat(closed.matches(input("price", "Number", "20"))).isFalse();
+    assertThat(closed.matches(input("price", "Number", "9.99"))).isFalse();
+    assertThat(closed.matches(input("price", "String", "15"))).isFalse();
+    assertThat(open.matches(input("price", "Number", "10"))).isFalse();
+    assertThat(open.matches(input("price", "Number", "1e9"))).isTrue();
+    assertThat(equal.matches(input("price", "Number", "10.50"))).isTrue();
+    assertThat(equal.matches(input("price", "Number", "10"))).isFalse();
+  }
+
+  @Test
+  void matchesExists() {
+    FilterPolicy present = FilterPolicy.compile("{\"customer\": [{\"exists\": true}]}");
+    FilterPolicy absent = FilterPolicy.compile("{\"customer\": [{\"exists\": false}]}");
+
+    assertThat(present.matches(input("customer", "String", "c-1"))).isTrue();
+    assertThat(present.matches(input())).isFalse();
+    assertThat(absent.matches(input())).isTrue();
+    assertThat(absent.matches(input("other", "String", "c-1"))).isTrue();
+    assertThat(absent.matches(input("customer", "String", "c-1"))).isFalse();
+  }
+
+  @Test
+  void matchesAnyElementOfAStringArray() {
+    FilterPolicy policy = FilterPolicy.compile(
+        "{\"sports\": [\"rugby\"], \"scores\": [{\"numeric\": [\">\", 5]}]}");
+
+    assertThat(policy.matches(input("sports", "String.Array", "[\"soccer\", \"rugby\"]",
+        "scores", "String.Array", "[1, 7]"))).isTrue();
+    assertThat(policy.matches(input("sports", "String.Array", "[\"soccer\", \"tennis\"]",
+        "scores", "String.Array", "[1, 7]"))).isFalse();
+    assertThat(policy.matches(input("sports", "String.Array", "[\"rugby\"]",
+        "scores", "String.Array", "[1, \"7\"]"))).isFalse();
+  }
+
+  @Test
+  void matchesBinaryAttributesOnlyWithExists() {
+    FilterPolicy exists = FilterPolicy.compile("{\"payload\": [{\"exists\": true}]}");
+    FilterPolicy anythingBut = FilterPolicy.compile(
+        "{\"payload\": [{\"anything-but\": \"AAEC\"}]}");
+    FilterPolicy exact = FilterPolicy.compile("{\"payload\": [\"AAEC\"]}");
+
+    FilterInput binary = input("payload", "Binary", "AAEC");
+    assertThat(exists.matches(binary)).isTrue();
+    assertThat(anythingBut.matches(binary)).isFalse();
+    assertThat(exact.matches(binary)).isFalse();
+  }
+
+  @Test
+  void requiresEveryAttributeAndAnyCondition() {
+    FilterPolicy policy = FilterPolicy.compile("{\"store\": [\"a\", {\"prefix\": \"b-\"}],"
+        + " \"price\": [{\"numeric\": [\"<\", 10]}, {\"exists\": false}]}");
+
+    assertThat(policy.matches(input("store", "String", "b-1"))).isTrue();
+    assertThat(policy.matches(input("store", "String", "a", "price", "Number", "5"))).isTrue();
+    assertThat(policy.matches(input("store", "String", "a", "price", "Number", "50"))).isFalse();
+    assertThat(policy.matches(input("price", "Number", "5"))).isFalse();
+  }
+
+  @Test
+  void rejectsInvalidPolicies() {
+    assertThatThrownBy(() -> FilterPolicy.compile("{"))
+        .isInstanceOf(IllegalArgumentException.class)
+        .hasMessageStartingWith("not valid JSON");
+    assertThatThrownBy(() -> FilterPolicy.compile("{}"))
+        .isInstanceOf(IllegalArgumentException.class);
+    assertThatThrownBy(() -> FilterPolicy.compile("{\"store\": \"a\"}"))
+        .isInstanceOf(IllegalArgumentException.class);
+    assertThatThrownBy(() -> FilterPolicy.compile("{\"store\": [{\"wildcard\": \"a*\"}]}"))
+        .isInstanceOf(IllegalArgumentException.class)
+        .hasMessageContaining("wildcard");
+    assertThatThrownBy(() -> FilterPolicy.compile("{\"price\": [{\"numeric\": [\">\"]}]}"))
+        .isInstanceOf(IllegalArgumentException.class);
+    assertThatThrownBy(() -> FilterPolicy.compile("{\"price\": [{\"numeric\": [\"!=\", 1]}]}"))
+        .isInstanceOf(IllegalArgumentException.class);
+    assertThatThrownBy(() -> FilterPolicy.compile("{\"store\": [{\"exists\": \"yes\"}]}"))
+        .isInstanceOf(IllegalArgumentException.class);
+  }
+
+  /* name, type and value triples */
+  static FilterInput input(String... attributes) {
+    Map<String, MessageAttribute> parsed = new HashMap<>();
+    for (int i = 0; i < attributes.length; i += 3) {
+      parsed.put(attributes[i], new MessageAttribute(attributes[i + 1], attributes[i + 2]));
+    }
+    return FilterInput.of(parsed);
+  }
+
+}
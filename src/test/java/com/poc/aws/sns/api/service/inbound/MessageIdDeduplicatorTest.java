@@ -0,0 +1,85 @@
+package com.poc.aws.sns.api.service.inbound;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+class MessageIdDeduplicatorTest {
+
+  private final MessageIdDeduplicator deduplicator = new MessageIdDeduplicator(
+      new SimpleMeterRegistry(), 3_600_000, 4, 10_000, 0.0001);
+
+  @AfterEach
+  void shutdown() {
+    deduplicator.shutdown();
+  }
+
+  @Test
+  void acceptsAMessageIdOnce() {
+    AtomicInteger accepted = new AtomicInteger();
+
+    assertThat(deduplicator.acceptOnce("id-1", accepted::incrementAndGet)).isTrue();
+    assertThat(deduplicator.acceptOnce("id-1", accepted::incrementAndGet)).isFalse();
+    assertThat(deduplicator.acceptOnce("id-2", accepted::incrementAndGet)).isTrue();
+    assertThat(accepted).hasValue(2);
+  }
+
+  @Test
+  void leavesTheMessageIdUnmarkedWhenAcceptFails() {
+    assertThatThrownBy(() -> deduplicator.acceptOnce("id-1", () -> {
+      throw new IllegalStateException("queue full");
+    })).isInstanceOf(IllegalStateException.class);
+
+    assertThat(deduplicator.acceptOnce("id-1", () -> { })).isTrue();
+  }
+
+  @Test
+  void acceptsConcurrentDeliveriesOfOneMessageIdOnce() throws Exception {
+    int deliveries = 16;
+    ExecutorService executor = Executors.newFixedThreadPool(deliveries);
+    try {
+      CountDownLatch go = new CountDownLatch(1);
+      AtomicInteger accepted = new AtomicInteger();
+      List<Future<Boolean>> results = new ArrayList<>();
+      for (int i = 0; i < deliveries; i++) {
+        results.add(executor.submit(() -> {
+          go.await();
+          return deduplicator.acceptOnce("id-1", () -> {
+            accepted.incrementAndGet();
+            /* widens the window between the check and the mark */
+            sleep();
+          });
+        }));
+      }
+      go.countDown();
+
+      int firsts = 0;
+      for (Future<Boolean> result : results) {
+        firsts += result.get() ? 1 : 0;
+      }
+      assertThat(firsts).isOne();
+      assertThat(accepted).hasValue(1);
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  private static void sleep() {
+    try {
+      Thread.sleep(20);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+}
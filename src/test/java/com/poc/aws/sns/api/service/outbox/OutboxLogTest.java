@@ -0,0 +1,209 @@
+package com.poc.aws.sns.api.service.outbox;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.poc.aws.sns.api.exceptions.MessageError;
+import com.poc.aws.sns.api.interfaces.json.MessageAttribute;
+import com.poc.aws.sns.api.interfaces.json.Notification;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.context.support.ResourceBundleMessageSource;
+
+class OutboxLogTest {
+
+  private static final String TOPIC = "arn:aws:sns:us-east-1:000000000000:orders";
+  private static final String FIFO_TOPIC = "arn:aws:sns:us-east-1:000000000000:orders.fifo";
+  private static final int SEGMENT_BYTES = 1024 * 1024;
+
+  @TempDir
+  Path directory;
+
+  private final List<OutboxLog> opened = new ArrayList<>();
+
+  @AfterEach
+  void closeAll() throws InterruptedException {
+    for (OutboxLog log : opened) {
+      log.close();
+    }
+  }
+
+  @Test
+  void readsBackEveryFieldOfTheRecordFormat() throws IOException {
+    OutboxLog log = open();
+    Map<String, MessageAttribute> attributes = new LinkedHashMap<>();
+    attributes.put("eventType", new MessageAttribute("String", "created"));
+    attributes.put("amount", new MessageAttribute("Number.float", "12.5"));
+
+    long plain = log.append(TOPIC, Notification.builder().body("plain").build()).join();
+    long full = log.append(TOPIC, Notification.builder().subject("subject").body("full")
+        .attributes(attributes).build()).join();
+    long fifo = log.append(FIFO_TOPIC, Notification.builder().body("fifo")
+        .messageGroupId("group-1").messageDeduplicationId("dedup-1").build()).join();
+    long fifoWithoutDeduplicationId = log.append(FIFO_TOPIC, Notification.builder().body("")
+        .messageGroupId("group-2").build()).join();
+
+    List<OutboxEntry> entries = readAll(log);
+
+    assertThat(entries).extracting(OutboxEntry::getPosition)
+        .containsExactly(plain, full, fifo, fifoWithoutDeduplicationId);
+    assertThat(entries.get(0)).isEqualTo(
+        new OutboxEntry(plain, TOPIC, null, "plain", null, null, null));
+    assertThat(entries.get(1)).isEqualTo(
+        new OutboxEntry(full, TOPIC, "subject", "full", attributes, null, null));
+    assertThat(entries.get(1).getAttributes()).containsOnlyKeys("eventType", "amount");
+    assertThat(entries.get(2)).isEqualTo(
+        new OutboxEntry(fifo, FIFO_TOPIC, null, "fifo", null, "group-1", "dedup-1"));
+    assertThat(entries.get(3)).isEqualTo(
+        new OutboxEntry(fifoWithoutDeduplicationId, FIFO_TOPIC, null, "", null, "group-2", null));
+  }
+
+  @Test
+  void readStopsAtATopicChange() throws IOException {
+    OutboxLog log = open();
+    log.append(TOPIC, body("first")).join();
+    log.append(TOPIC, body("second")).join();
+    log.append(FIFO_TOPIC, body("third")).join();
+
+    List<OutboxEntry> entries = new ArrayList<>();
+    long next = log.read(log.checkpoint(), 10, Integer.MAX_VALUE, entries);
+
+    assertThat(entries).extracting(OutboxEntry::getBody).containsExactly("first", "second");
+    assertThat(next).isEqualTo(entries.get(1).getPosition() + 8 + payloadBytes(TOPIC, "second"));
+  }
+
+  @Test
+  void discardsATornTailOnRecovery() throws Exception {
+    OutboxLog log = open();
+    log.append(TOPIC, body("first")).join();
+    log.append(TOPIC, body("second")).join();
+    long torn = log.append(TOPIC, body("third")).join();
+    log.close();
+    opened.remove(log);
+
+    /* flips the last byte of the body, so the checksum of the last record no longer matches */
+    long lastByte = torn + 8 + payloadBytes(TOPIC, "third") - 1;
+    try (FileChannel channel = FileChannel.open(segmentFiles().get(0), StandardOpenOption.READ,
+        StandardOpenOption.WRITE)) {
+      channel.write(ByteBuffer.wrap(new byte[] {'X'}), lastByte);
+    }
+
+    OutboxLog reopened = open();
+    assertThat(readAll(reopened)).extracting(OutboxEntry::getBody)
+        .containsExactly("first", "second");
+
+    long next = reopened.append(TOPIC, body("fourth")).join();
+    assertThat(next).isEqualTo(torn);
+    assertThat(readAll(reopened)).extracting(OutboxEntry::getBody)
+        .containsExactly("first", "second", "fourth");
+  }
+
+  @Test
+  void rollsToANewSegmentWhenTheActiveOneIsFull() throws IOException {
+    OutboxLog log = open();
+    String body = "x".repeat(100 * 1024);
+    List<Long> positions = new ArrayList<>();
+    for (int i = 0; i < 15; i++) {
+      positions.add(log.append(TOPIC, body(i + body)).join());
+    }
+
+    assertThat(segmentFiles()).hasSize(2);
+    assertThat(positions).last().matches(position -> position >= SEGMENT_BYTES);
+    List<OutboxEntry> entries = readAll(log);
+    assertThat(entries).extracting(OutboxEntry::getPosition).isEqualTo(positions);
+    assertThat(entries).extracting(entry -> entry.getBody().substring(0, 2))
+        .containsExactly("0x", "1x", "2x", "3x", "4x", "5x", "6x", "7x", "8x", "9x", "10", "11",
+            "12", "13", "14");
+  }
+
+  @Test
+  void compactsSegmentsBehindTheCheckpoint() throws Exception {
+    OutboxLog log = open();
+    String body = "x".repeat(100 * 1024);
+    long firstOfSecondSegment = -1;
+    for (int i = 0; i < 15; i++) {
+      long position = log.append(TOPIC, body(body)).join();
+      if (firstOfSecondSegment < 0 && position >= SEGMENT_BYTES) {
+        firstOfSecondSegment = position;
+      }
+    }
+
+    log.checkpoint(firstOfSecondSegment - 1);
+    assertThat(segmentFiles()).hasSize(2);
+
+    log.checkpoint(firstOfSecondSegment);
+    assertThat(segmentFiles()).extracting(path -> path.getFileName().toString())
+        .containsExactly(String.format("%020d.log", SEGMENT_BYTES));
+    long drainFrom = firstOfSecondSegment;
+    assertThat(readAll(log)).isNotEmpty()
+        .allMatch(entry -> entry.getPosition() >= drainFrom);
+
+    log.close();
+    opened.remove(log);
+    OutboxLog reopened = open();
+    assertThat(reopened.checkpoint()).isEqualTo(firstOfSecondSegment);
+  }
+
+  @Test
+  void drainsFromTheOldestSegmentWhenTheCheckpointIsUnreadable() throws IOException {
+    Files.writeString(directory.resolve("checkpoint"), "");
+    OutboxLog log = open();
+    log.append(TOPIC, body("first")).join();
+
+    assertThat(log.checkpoint()).isZero();
+    assertThat(readAll(log)).extracting(OutboxEntry::getBody).containsExactly("first");
+  }
+
+  private OutboxLog open() throws IOException {
+    ResourceBundleMessageSource messageSource = new ResourceBundleMessageSource();
+    messageSource.setBasename("messages");
+    OutboxLog log = new OutboxLog(new MessageError(messageSource), new SimpleMeterRegistry(),
+        directory.toString(), SEGMENT_BYTES, true);
+    log.open();
+    opened.add(log);
+    return log;
+  }
+
+  private static Notification body(String body) {
+    return Notification.builder().body(body).build();
+  }
+
+  /* topic, subject and body of a record without attributes */
+  private static int payloadBytes(String topic, String body) {
+    return 2 + topic.length() + 4 + 4 + body.length();
+  }
+
+  private static List<OutboxEntry> readAll(OutboxLog log) {
+    List<OutboxEntry> entries = new ArrayList<>();
+    long position = log.checkpoint();
+    while (true) {
+      List<OutboxEntry> batch = new ArrayList<>();
+      position = log.read(position, 10, Integer.MAX_VALUE, batch);
+      if (batch.isEmpty()) {
+        return entries;
+      }
+      entries.addAll(batch);
+    }
+  }
+
+  private List<Path> segmentFiles() throws IOException {
+    try (Stream<Path> files = Files.list(directory)) {
+      return files.filter(file -> file.toString().endsWith(".log")).sorted()
+          .collect(Collectors.toList());
+    }
+  }
+
+}
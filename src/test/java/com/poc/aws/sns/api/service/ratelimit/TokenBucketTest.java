@@ -0,0 +1,66 @@
+package com.poc.aws.sns.api.service.ratelimit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+
+class TokenBucketTest {
+
+  private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+  /* margin for the time between taking the permits and asking for the next ones */
+  private static final long SLACK = TimeUnit.MILLISECONDS.toNanos(200);
+
+  private final TokenBucket bucket = new TokenBucket(1, 2);
+
+  @Test
+  void startsFullAndLetsTheBurstThrough() {
+    assertThat(bucket.tryAcquire(1)).isZero();
+    assertThat(bucket.tryAcquire(1)).isZero();
+    assertThat(bucket.tryAcquire(1)).isBetween(SECOND - SLACK, SECOND);
+  }
+
+  @Test
+  void retryAfterCoversEveryMissingPermit() {
+    assertThat(bucket.tryAcquire(2)).isZero();
+
+    assertThat(bucket.tryAcquire(2)).isBetween(2 * SECOND - SLACK, 2 * SECOND);
+  }
+
+  @Test
+  void rejectedRequestsTakeNothing() {
+    assertThat(bucket.tryAcquire(2)).isZero();
+    assertThat(bucket.tryAcquire(1)).isPositive();
+
+    assertThat(bucket.tryAcquire(1)).isBetween(SECOND - SLACK, SECOND);
+  }
+
+  @Test
+  void refundGivesThePermitsBack() {
+    assertThat(bucket.tryAcquire(2)).isZero();
+    bucket.refund(1);
+
+    assertThat(bucket.tryAcquire(1)).isZero();
+    assertThat(bucket.tryAcquire(1)).isPositive();
+  }
+
+  @Test
+  void letsARequestLargerThanTheBurstThroughWhenFull() {
+    assertThat(bucket.tryAcquire(5)).isZero();
+
+    /* the five permits are paid back before the burst of two is available again */
+    assertThat(bucket.tryAcquire(1)).isBetween(4 * SECOND - SLACK, 4 * SECOND);
+  }
+
+  @Test
+  void refillsOverTime() throws Exception {
+    TokenBucket fast = new TokenBucket(100, 1);
+    assertThat(fast.tryAcquire(1)).isZero();
+    assertThat(fast.tryAcquire(1)).isPositive();
+
+    Thread.sleep(20);
+
+    assertThat(fast.tryAcquire(1)).isZero();
+  }
+
+}
@@ -0,0 +1,84 @@
+package com.poc.aws.sns.api.service.resilience;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+
+class AdaptiveConcurrencyLimiterTest {
+
+  private static final long FAST = TimeUnit.MILLISECONDS.toNanos(10);
+  private static final long SLOW = TimeUnit.MILLISECONDS.toNanos(500);
+
+  private final AdaptiveConcurrencyLimiter limiter =
+      new AdaptiveConcurrencyLimiter(4, 1, 6, 0.5, 100);
+
+  @Test
+  void rejectsCallsOverTheLimit() {
+    for (int i = 0; i < 4; i++) {
+      assertThat(limiter.tryAcquire()).isTrue();
+    }
+
+    assertThat(limiter.tryAcquire()).isFalse();
+    assertThat(limiter.getInFlight()).isEqualTo(4);
+
+    limiter.release(FAST, false);
+    assertThat(limiter.tryAcquire()).isTrue();
+  }
+
+  @Test
+  void growsWhileTheLimitIsInUse() {
+    /* only the releases that find at least half of the limit in flight grow it, by 1/limit */
+    roundTrip(4);
+    roundTrip(4);
+    assertThat(limiter.getLimit()).isEqualTo(4);
+
+    roundTrip(4);
+    assertThat(limiter.getLimit()).isEqualTo(5);
+  }
+
+  @Test
+  void doesNotGrowWhileMostOfTheLimitIsUnused() {
+    for (int i = 0; i < 100; i++) {
+      roundTrip(1);
+    }
+
+    assertThat(limiter.getLimit()).isEqualTo(4);
+  }
+
+  @Test
+  void growsUpToTheMaximum() {
+    for (int i = 0; i < 100; i++) {
+      roundTrip(limiter.getLimit());
+    }
+
+    assertThat(limiter.getLimit()).isEqualTo(6);
+  }
+
+  @Test
+  void backsOffOnFailedAndSlowCallsDownToTheMinimum() {
+    assertThat(limiter.tryAcquire()).isTrue();
+    limiter.release(FAST, true);
+    assertThat(limiter.getLimit()).isEqualTo(2);
+
+    assertThat(limiter.tryAcquire()).isTrue();
+    limiter.release(SLOW, false);
+    assertThat(limiter.getLimit()).isEqualTo(1);
+
+    assertThat(limiter.tryAcquire()).isTrue();
+    limiter.release(FAST, true);
+    assertThat(limiter.getLimit()).isEqualTo(1);
+    assertThat(limiter.getInFlight()).isZero();
+  }
+
+  /* takes that many permits, then releases them all as fast successes */
+  private void roundTrip(int calls) {
+    for (int i = 0; i < calls; i++) {
+      assertThat(limiter.tryAcquire()).isTrue();
+    }
+    for (int i = 0; i < calls; i++) {
+      limiter.release(FAST, false);
+    }
+  }
+
+}
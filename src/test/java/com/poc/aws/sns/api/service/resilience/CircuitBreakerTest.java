@@ -0,0 +1,96 @@
+package com.poc.aws.sns.api.service.resilience;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.poc.aws.sns.api.service.resilience.CircuitBreaker.State;
+import org.junit.jupiter.api.Test;
+
+class CircuitBreakerTest {
+
+  private static final long OPEN_DURATION_MILLIS = 50;
+
+  private final CircuitBreaker breaker = new CircuitBreaker(4, 4, 0.5, OPEN_DURATION_MILLIS, 2);
+
+  @Test
+  void staysClosedUntilTheMinimumCalls() {
+    record(true, true, true);
+
+    assertThat(breaker.getState()).isEqualTo(State.CLOSED);
+    assertThat(breaker.tryAcquire()).isTrue();
+  }
+
+  @Test
+  void opensAtTheFailureRateThresholdAndRejects() {
+    record(false, true, false, true);
+
+    assertThat(breaker.getState()).isEqualTo(State.OPEN);
+    assertThat(breaker.tryAcquire()).isFalse();
+  }
+
+  @Test
+  void forgetsCallsThatLeftTheWindow() {
+    record(true, false, false, false);
+    /* the first failure leaves the window, one failure in four stays below the threshold */
+    record(false, false, true, false);
+
+    assertThat(breaker.getState()).isEqualTo(State.CLOSED);
+  }
+
+  @Test
+  void closesWhenEveryHalfOpenCallSucceeds() throws Exception {
+    open();
+    Thread.sleep(OPEN_DURATION_MILLIS * 2);
+
+    assertThat(breaker.tryAcquire()).isTrue();
+    assertThat(breaker.getState()).isEqualTo(State.HALF_OPEN);
+    assertThat(breaker.tryAcquire()).isTrue();
+    assertThat(breaker.tryAcquire()).isFalse();
+
+    breaker.onResult(false);
+    assertThat(breaker.getState()).isEqualTo(State.HALF_OPEN);
+    breaker.onResult(false);
+    assertThat(breaker.getState()).isEqualTo(State.CLOSED);
+
+    /* closing starts a new window, so a single failure does not open it again */
+    record(true);
+    assertThat(breaker.getState()).isEqualTo(State.CLOSED);
+  }
+
+  @Test
+  void opensAgainOnAHalfOpenFailure() throws Exception {
+    open();
+    Thread.sleep(OPEN_DURATION_MILLIS * 2);
+
+    assertThat(breaker.tryAcquire()).isTrue();
+    breaker.onResult(true);
+
+    assertThat(breaker.getState()).isEqualTo(State.OPEN);
+    assertThat(breaker.tryAcquire()).isFalse();
+  }
+
+  @Test
+  void cancelGivesBackAHalfOpenPermit() throws Exception {
+    open();
+    Thread.sleep(OPEN_DURATION_MILLIS * 2);
+
+    assertThat(breaker.tryAcquire()).isTrue();
+    assertThat(breaker.tryAcquire()).isTrue();
+    assertThat(breaker.tryAcquire()).isFalse();
+    breaker.cancel();
+
+    assertThat(breaker.tryAcquire()).isTrue();
+  }
+
+  private void open() {
+    record(true, true, true, true);
+    assertThat(breaker.getState()).isEqualTo(State.OPEN);
+  }
+
+  private void record(boolean... failures) {
+    for (boolean failed : failures) {
+      assertThat(breaker.tryAcquire()).isTrue();
+      breaker.onResult(failed);
+    }
+  }
+
+}
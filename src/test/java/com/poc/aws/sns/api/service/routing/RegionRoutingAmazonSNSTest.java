@@ -0,0 +1,262 @@
+package com.poc.aws.sns.api.service.routing;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.tuple;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.amazonaws.AmazonServiceException;
+import com.amazonaws.SdkClientException;
+import com.amazonaws.services.sns.AmazonSNS;
+import com.amazonaws.services.sns.model.BatchResultErrorEntry;
+import com.amazonaws.services.sns.model.ListSubscriptionsByTopicResult;
+import com.amazonaws.services.sns.model.ListTopicsResult;
+import com.amazonaws.services.sns.model.PublishBatchRequest;
+import com.amazonaws.services.sns.model.PublishBatchRequestEntry;
+import com.amazonaws.services.sns.model.PublishBatchResult;
+import com.amazonaws.services.sns.model.PublishBatchResultEntry;
+import com.amazonaws.services.sns.model.PublishRequest;
+import com.amazonaws.services.sns.model.PublishResult;
+import com.amazonaws.services.sns.model.Subscription;
+import com.amazonaws.services.sns.model.Topic;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.net.ConnectException;
+import java.net.SocketTimeoutException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+
+class RegionRoutingAmazonSNSTest {
+
+  private static final String ACCOUNT = "000000000000";
+  private static final String TOPIC = "arn:aws:sns:us-east-2:" + ACCOUNT + ":orders";
+
+  private final SnsShard primary = shard("us-east-2");
+  private final SnsShard west = shard("us-west-2");
+  private final SnsShard east = shard("us-east-1");
+
+  @Test
+  void publishesToThePrimaryWhileItIsAvailable() {
+    serve(west, "orders");
+    RegionRoutingAmazonSNS sns = routing(3, primary, west);
+    when(primary.getClient().publish(any(PublishRequest.class)))
+        .thenReturn(new PublishResult().withMessageId("primary"));
+
+    assertThat(sns.publish(new PublishRequest(TOPIC, "body")).getMessageId())
+        .isEqualTo("primary");
+    verify(west.getClient(), never()).publish(any(PublishRequest.class));
+  }
+
+  @Test
+  void failsOverToTheSecondaryWithTheBestScore() {
+    serve(west, "orders");
+    serve(east, "orders");
+    RegionRoutingAmazonSNS sns = routing(3, primary, west, east);
+    west.getHealth().onResult(TimeUnit.MILLISECONDS.toNanos(300), false);
+    east.getHealth().onResult(TimeUnit.MILLISECONDS.toNanos(50), false);
+    when(primary.getClient().publish(any(PublishRequest.class))).thenThrow(serviceError(503));
+    when(east.getClient().publish(any(PublishRequest.class)))
+        .thenReturn(new PublishResult().withMessageId("east"));
+
+    assertThat(sns.publish(new PublishRequest(TOPIC, "body")).getMessageId()).isEqualTo("east");
+    verify(east.getClient()).publish(argThat((PublishRequest request) ->
+        request.getTopicArn().equals("arn:aws:sns:us-east-1:" + ACCOUNT + ":orders")));
+    verify(west.getClient(), never()).publish(any(PublishRequest.class));
+  }
+
+  @Test
+  void triesAnEjectedPrimaryAfterTheAvailableSecondaries() {
+    serve(west, "orders");
+    RegionRoutingAmazonSNS sns = routing(3, primary, west);
+    primary.getHealth().onResult(TimeUnit.MILLISECONDS.toNanos(10), true);
+    assertThat(primary.getHealth().isEjected()).isTrue();
+    when(west.getClient().publish(any(PublishRequest.class))).thenThrow(serviceError(500));
+    when(primary.getClient().publish(any(PublishRequest.class)))
+        .thenReturn(new PublishResult().withMessageId("primary"));
+
+    assertThat(sns.publish(new PublishRequest(TOPIC, "body")).getMessageId())
+        .isEqualTo("primary");
+    verify(west.getClient()).publish(any(PublishRequest.class));
+  }
+
+  @Test
+  void stopsAfterMaxAttemptsShards() {
+    serve(west, "orders");
+    serve(east, "orders");
+    RegionRoutingAmazonSNS sns = routing(2, primary, west, east);
+    east.getHealth().onResult(TimeUnit.MILLISECONDS.toNanos(10), false);
+    west.getHealth().onResult(TimeUnit.MILLISECONDS.toNanos(20), false);
+    when(primary.getClient().publish(any(PublishRequest.class))).thenThrow(serviceError(503));
+    when(east.getClient().publish(any(PublishRequest.class))).thenThrow(serviceError(503));
+
+    assertThatThrownBy(() -> sns.publish(new PublishRequest(TOPIC, "body")))
+        .isInstanceOf(AmazonServiceException.class);
+    verify(west.getClient(), never()).publish(any(PublishRequest.class));
+  }
+
+  @Test
+  void skipsSecondariesWithoutTheTopicOrASubscription() {
+    serve(west, "payments");
+    when(east.getClient().listTopics((String) isNull())).thenReturn(new ListTopicsResult()
+        .withTopics(new Topic().withTopicArn("arn:aws:sns:us-east-1:" + ACCOUNT + ":orders")));
+    when(east.getClient().listSubscriptionsByTopic(any(String.class), isNull()))
+        .thenReturn(new ListSubscriptionsByTopicResult().withSubscriptions(
+            new Subscription().withSubscriptionArn("PendingConfirmation")));
+    RegionRoutingAmazonSNS sns = routing(3, primary, west, east);
+    when(primary.getClient().publish(any(PublishRequest.class))).thenThrow(serviceError(503));
+
+    assertThatThrownBy(() -> sns.publish(new PublishRequest(TOPIC, "body")))
+        .isInstanceOf(AmazonServiceException.class);
+    verify(west.getClient(), never()).publish(any(PublishRequest.class));
+    verify(east.getClient(), never()).publish(any(PublishRequest.class));
+  }
+
+  @Test
+  void stopsServingATopicTheSecondaryAnswers404For() {
+    serve(west, "orders");
+    RegionRoutingAmazonSNS sns = routing(3, primary, west);
+    when(primary.getClient().publish(any(PublishRequest.class))).thenThrow(serviceError(503));
+    when(west.getClient().publish(any(PublishRequest.class))).thenThrow(serviceError(404));
+
+    assertThatThrownBy(() -> sns.publish(new PublishRequest(TOPIC, "body")))
+        .isInstanceOf(AmazonServiceException.class);
+    assertThatThrownBy(() -> sns.publish(new PublishRequest(TOPIC, "body")))
+        .isInstanceOf(AmazonServiceException.class);
+    verify(west.getClient()).publish(any(PublishRequest.class));
+  }
+
+  @Test
+  void keepsFifoTopicsOnThePrimary() {
+    serve(west, "orders.fifo");
+    RegionRoutingAmazonSNS sns = routing(3, primary, west);
+    when(primary.getClient().publish(any(PublishRequest.class))).thenThrow(serviceError(503));
+
+    assertThatThrownBy(() -> sns.publish(new PublishRequest(TOPIC + ".fifo", "body")))
+        .isInstanceOf(AmazonServiceException.class);
+    verify(west.getClient(), never()).publish(any(PublishRequest.class));
+  }
+
+  @Test
+  void failsOverWhenTheConnectionCouldNotBeOpened() {
+    serve(west, "orders");
+    RegionRoutingAmazonSNS sns = routing(3, primary, west);
+    when(primary.getClient().publish(any(PublishRequest.class))).thenThrow(
+        new SdkClientException("Unable to execute HTTP request", new ConnectException("refused")));
+    when(west.getClient().publish(any(PublishRequest.class)))
+        .thenReturn(new PublishResult().withMessageId("west"));
+
+    assertThat(sns.publish(new PublishRequest(TOPIC, "body")).getMessageId()).isEqualTo("west");
+  }
+
+  @Test
+  void doesNotFailOverAfterTheRequestMayHaveBeenSent() {
+    serve(west, "orders");
+    RegionRoutingAmazonSNS sns = routing(3, primary, west);
+    when(primary.getClient().publish(any(PublishRequest.class))).thenThrow(
+        new SdkClientException("Unable to execute HTTP request",
+            new SocketTimeoutException("Read timed out")));
+
+    assertThatThrownBy(() -> sns.publish(new PublishRequest(TOPIC, "body")))
+        .isInstanceOf(SdkClientException.class)
+        .hasRootCauseInstanceOf(SocketTimeoutException.class);
+    verify(west.getClient(), never()).publish(any(PublishRequest.class));
+  }
+
+  @Test
+  void sendsOnlyTheServerFaultedEntriesOfABatchToTheNextShard() {
+    serve(west, "orders");
+    RegionRoutingAmazonSNS sns = routing(3, primary, west);
+    when(primary.getClient().publishBatch(any(PublishBatchRequest.class)))
+        .thenReturn(new PublishBatchResult()
+            .withSuccessful(new PublishBatchResultEntry().withId("0").withMessageId("p0"))
+            .withFailed(
+                new BatchResultErrorEntry().withId("1").withCode("InternalError")
+                    .withSenderFault(false),
+                new BatchResultErrorEntry().withId("2").withCode("InvalidParameter")
+                    .withSenderFault(true)));
+    when(west.getClient().publishBatch(any(PublishBatchRequest.class)))
+        .thenReturn(new PublishBatchResult()
+            .withSuccessful(new PublishBatchResultEntry().withId("1").withMessageId("w1")));
+
+    PublishBatchResult result = sns.publishBatch(new PublishBatchRequest()
+        .withTopicArn(TOPIC)
+        .withPublishBatchRequestEntries(entry("0"), entry("1"), entry("2")));
+
+    verify(west.getClient()).publishBatch(argThat((PublishBatchRequest request) ->
+        request.getPublishBatchRequestEntries().size() == 1
+            && request.getPublishBatchRequestEntries().get(0).getId().equals("1")));
+    assertThat(result.getSuccessful()).extracting(PublishBatchResultEntry::getMessageId)
+        .containsExactly("p0", "w1");
+    assertThat(result.getFailed()).extracting(BatchResultErrorEntry::getId)
+        .containsExactly("2");
+  }
+
+  @Test
+  void reportsTheEntriesLeftWhenTheLastShardFails() {
+    serve(west, "orders");
+    RegionRoutingAmazonSNS sns = routing(3, primary, west);
+    when(primary.getClient().publishBatch(any(PublishBatchRequest.class)))
+        .thenReturn(new PublishBatchResult()
+            .withSuccessful(new PublishBatchResultEntry().withId("0").withMessageId("p0"))
+            .withFailed(new BatchResultErrorEntry().withId("1").withCode("InternalError")
+                .withSenderFault(false)));
+    when(west.getClient().publishBatch(any(PublishBatchRequest.class)))
+        .thenThrow(serviceError(503));
+
+    PublishBatchResult result = sns.publishBatch(new PublishBatchRequest()
+        .withTopicArn(TOPIC)
+        .withPublishBatchRequestEntries(entry("0"), entry("1")));
+
+    assertThat(result.getSuccessful()).extracting(PublishBatchResultEntry::getId)
+        .containsExactly("0");
+    assertThat(result.getFailed()).extracting(BatchResultErrorEntry::getId,
+        BatchResultErrorEntry::getCode).containsExactly(
+        tuple("1", "ServiceUnavailable"));
+  }
+
+  /* served topics are read once, as the first scheduled refresh would */
+  private static RegionRoutingAmazonSNS routing(int maxAttempts, SnsShard... shards) {
+    RegionRoutingAmazonSNS sns = new RegionRoutingAmazonSNS(List.of(shards), maxAttempts, 60_000,
+        new SimpleMeterRegistry());
+    sns.refreshServedTopics();
+    return sns;
+  }
+
+  /* one call is enough to score or eject a region */
+  private static SnsShard shard(String region) {
+    return new SnsShard(region, ACCOUNT, mock(AmazonSNS.class),
+        new RegionHealth(0.5, 1, 1_000, 0.4, 60_000));
+  }
+
+  /* the secondary lists the topic with a confirmed subscription on the next refresh */
+  private void serve(SnsShard shard, String topic) {
+    String topicArn = shard.arnPrefix() + ":" + topic;
+    when(shard.getClient().listTopics((String) isNull()))
+        .thenReturn(new ListTopicsResult().withTopics(new Topic().withTopicArn(topicArn)));
+    when(shard.getClient().listSubscriptionsByTopic(eq(topicArn), isNull()))
+        .thenReturn(new ListSubscriptionsByTopicResult().withSubscriptions(
+            new Subscription().withSubscriptionArn(topicArn + ":6f4bc1e2")));
+    when(primary.getClient().listTopics((String) isNull())).thenReturn(new ListTopicsResult()
+        .withTopics(new Topic().withTopicArn(TOPIC)));
+  }
+
+  private static AmazonServiceException serviceError(int status) {
+    AmazonServiceException e = new AmazonServiceException("status " + status);
+    e.setStatusCode(status);
+    e.setErrorCode(status == 503 ? "ServiceUnavailable" : status == 404 ? "NotFound"
+        : "InternalError");
+    return e;
+  }
+
+  private static PublishBatchRequestEntry entry(String id) {
+    return new PublishBatchRequestEntry().withId(id).withMessage("body " + id);
+  }
+
+}
@@ -0,0 +1,169 @@
+package com.poc.aws.sns.api.service.signature;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatCode;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.poc.aws.sns.api.exceptions.ForbiddenException;
+import com.poc.aws.sns.api.exceptions.MessageError;
+import com.poc.aws.sns.api.interfaces.Messages;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.security.GeneralSecurityException;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.Signature;
+import java.security.cert.X509Certificate;
+import java.util.Base64;
+import java.util.List;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.support.ResourceBundleMessageSource;
+
+class SnsSignatureVerifierTest {
+
+  private static final String CERT_URL =
+      "https://sns.us-east-2.amazonaws.com/SimpleNotificationService-0123456789abcdef.pem";
+
+  private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+  private static KeyPair keyPair;
+
+  private final MessageError messageError = messageError();
+
+  @BeforeAll
+  static void generateKey() throws GeneralSecurityException {
+    KeyPairGenerator generator = KeyPairGenerator.getInstance("RSA");
+    generator.initialize(2048);
+    keyPair = generator.generateKeyPair();
+  }
+
+  @Test
+  void acceptsSignatureVersion1() throws GeneralSecurityException {
+    ObjectNode message = signed(notification(), "1", "SHA1withRSA");
+
+    assertThatCode(() -> verifier().verify(message)).doesNotThrowAnyException();
+  }
+
+  @Test
+  void acceptsSignatureVersion2() throws GeneralSecurityException {
+    ObjectNode message = signed(notification(), "2", "SHA256withRSA");
+
+    assertThatCode(() -> verifier().verify(message)).doesNotThrowAnyException();
+  }
+
+  @Test
+  void acceptsSubscriptionConfirmations() throws GeneralSecurityException {
+    ObjectNode confirmation = OBJECT_MAPPER.createObjectNode()
+        .put("Type", "SubscriptionConfirmation")
+        .put("MessageId", "165545c9-2a5c-472c-8df2-7ff2be2b3b1b")
+        .put("Token", "2336412f37")
+        .put("TopicArn", "arn:aws:sns:us-east-2:000000000000:topic-subscriber")
+        .put("Message", "You have chosen to subscribe to the topic")
+        .put("SubscribeURL", "https://sns.us-east-2.amazonaws.com/?Action=ConfirmSubscription")
+        .put("Timestamp", "2026-10-17T12:00:00.000Z")
+        .put("SigningCertURL", CERT_URL);
+    ObjectNode message = signed(confirmation, "2", "SHA256withRSA");
+
+    assertThatCode(() -> verifier().verify(message)).doesNotThrowAnyException();
+  }
+
+  @Test
+  void rejectsATamperedField() throws GeneralSecurityException {
+    ObjectNode message = signed(notification(), "2", "SHA256withRSA");
+    message.put("Message", "{\"orderId\":2}");
+
+    assertThatThrownBy(() -> verifier().verify(message))
+        .isInstanceOf(ForbiddenException.class)
+        .satisfies(e -> assertThat(((ForbiddenException) e).getError().getCode())
+            .isEqualTo(Messages.INVALID_SIGNATURE))
+        .hasMessageContaining("signature mismatch");
+  }
+
+  @Test
+  void rejectsASignatureOfTheOtherVersion() throws GeneralSecurityException {
+    ObjectNode message = signed(notification(), "1", "SHA256withRSA");
+
+    assertThatThrownBy(() -> verifier().verify(message))
+        .isInstanceOf(ForbiddenException.class)
+        .satisfies(e -> assertThat(((ForbiddenException) e).getError().getCode())
+            .isEqualTo(Messages.INVALID_SIGNATURE));
+  }
+
+  @Test
+  void rejectsAnUnsupportedSignatureVersion() throws GeneralSecurityException {
+    ObjectNode message = signed(notification(), "3", "SHA256withRSA");
+
+    assertThatThrownBy(() -> verifier().verify(message))
+        .isInstanceOf(ForbiddenException.class)
+        .hasMessageContaining("unsupported SignatureVersion 3");
+  }
+
+  @Test
+  void rejectsACertificateHostOutsideAmazonaws() throws GeneralSecurityException {
+    SnsSignatureVerifier verifier = new SnsSignatureVerifier(new SigningCertificateCache(
+        messageError, new SimpleMeterRegistry(), List.of("https"),
+        "^sns\\.[a-z0-9\\-]+\\.amazonaws\\.com(\\.cn)?$", 60_000, 8, 1_000), messageError);
+
+    for (String certUrl : List.of("https://sns.us-east-2.amazonaws.com.evil.example/cert.pem",
+        "https://evil.example/sns.us-east-2.amazonaws.com/cert.pem",
+        "http://sns.us-east-2.amazonaws.com/cert.pem")) {
+      ObjectNode message = signed(notification().put("SigningCertURL", certUrl), "2",
+          "SHA256withRSA");
+
+      assertThatThrownBy(() -> verifier.verify(message))
+          .isInstanceOf(ForbiddenException.class)
+          .hasMessageContaining("untrusted SigningCertURL");
+    }
+  }
+
+  private SnsSignatureVerifier verifier() {
+    X509Certificate certificate = mock(X509Certificate.class);
+    when(certificate.getPublicKey()).thenReturn(keyPair.getPublic());
+    SigningCertificateCache certificates = mock(SigningCertificateCache.class);
+    when(certificates.get(CERT_URL)).thenReturn(certificate);
+    return new SnsSignatureVerifier(certificates, messageError);
+  }
+
+  private static ObjectNode notification() {
+    return OBJECT_MAPPER.createObjectNode()
+        .put("Type", "Notification")
+        .put("MessageId", "22b80b92-fdea-4c2c-8f9d-bdfb0c7bf324")
+        .put("TopicArn", "arn:aws:sns:us-east-2:000000000000:topic-subscriber")
+        .put("Subject", "order")
+        .put("Message", "{\"orderId\":1}")
+        .put("Timestamp", "2026-10-17T12:00:00.000Z")
+        .put("SigningCertURL", CERT_URL);
+  }
+
+  /* signs the fields SNS signs, in byte sort order, as "name\nvalue\n" */
+  private static ObjectNode signed(ObjectNode message, String version, String algorithm)
+      throws GeneralSecurityException {
+    List<String> fields = "Notification".equals(message.get("Type").asText())
+        ? List.of("Message", "MessageId", "Subject", "Timestamp", "TopicArn", "Type")
+        : List.of("Message", "MessageId", "SubscribeURL", "Timestamp", "Token", "TopicArn",
+            "Type");
+    StringBuilder stringToSign = new StringBuilder();
+    for (String field : fields) {
+      if (message.hasNonNull(field)) {
+        stringToSign.append(field).append('\n').append(message.get(field).asText()).append('\n');
+      }
+    }
+
+    Signature signature = Signature.getInstance(algorithm);
+    signature.initSign(keyPair.getPrivate());
+    signature.update(stringToSign.toString().getBytes(UTF_8));
+    return message.put("SignatureVersion", version)
+        .put("Signature", Base64.getEncoder().encodeToString(signature.sign()));
+  }
+
+  private static MessageError messageError() {
+    ResourceBundleMessageSource messageSource = new ResourceBundleMessageSource();
+    messageSource.setBasename("messages");
+    return new MessageError(messageSource);
+  }
+
+}
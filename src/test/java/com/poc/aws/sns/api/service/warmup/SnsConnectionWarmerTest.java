@@ -0,0 +1,229 @@
+package com.poc.aws.sns.api.service.warmup;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.amazonaws.ClientConfiguration;
+import com.amazonaws.auth.AWSStaticCredentialsProvider;
+import com.amazonaws.auth.BasicAWSCredentials;
+import com.amazonaws.client.builder.AwsClientBuilder.EndpointConfiguration;
+import com.amazonaws.services.sns.AmazonSNS;
+import com.amazonaws.services.sns.AmazonSNSClientBuilder;
+import com.poc.aws.sns.api.service.routing.RegionHealth;
+import com.poc.aws.sns.api.service.routing.SnsShard;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpsConfigurator;
+import com.sun.net.httpserver.HttpsServer;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.KeyStore;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.net.ssl.KeyManagerFactory;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.TrustManagerFactory;
+import org.apache.http.conn.ssl.SSLConnectionSocketFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.Status;
+
+/*
+  Warms up a real SNS client against a local HTTPS stand-in, so every warm-up call goes
+  through DNS, TCP and a TLS handshake with a throwaway self-signed certificate.
+ */
+class SnsConnectionWarmerTest {
+
+  private static final int CONNECTIONS = 4;
+  private static final char[] PASSWORD = "changeit".toCharArray();
+  private static final String LIST_TOPICS_RESPONSE = "<ListTopicsResponse"
+      + " xmlns=\"http://sns.amazonaws.com/doc/2010-03-31/\"><ListTopicsResult><Topics/>"
+      + "</ListTopicsResult><ResponseMetadata><RequestId>warmup</RequestId></ResponseMetadata>"
+      + "</ListTopicsResponse>";
+
+  private static SSLContext sslContext;
+
+  private final AtomicInteger calls = new AtomicInteger();
+  private final CountDownLatch release = new CountDownLatch(1);
+  private final ExecutorService serverExecutor = Executors.newCachedThreadPool();
+  private HttpsServer server;
+  private SnsConnectionWarmer warmer;
+
+  @BeforeAll
+  static void createCertificate(@TempDir Path directory) throws Exception {
+    Path keystore = directory.resolve("stub.p12");
+    Process keytool = new ProcessBuilder(
+        Paths.get(System.getProperty("java.home"), "bin", "keytool").toString(),
+        "-genkeypair", "-alias", "stub", "-keyalg", "RSA", "-dname", "CN=localhost",
+        "-ext", "SAN=dns:localhost", "-validity", "1", "-storetype", "PKCS12",
+        "-keystore", keystore.toString(), "-storepass", new String(PASSWORD))
+        .redirectErrorStream(true)
+        .start();
+    keytool.getInputStream().transferTo(OutputStream.nullOutputStream());
+    assertThat(keytool.waitFor(60, TimeUnit.SECONDS)).isTrue();
+    assertThat(keytool.exitValue()).isZero();
+
+    KeyStore keyStore = KeyStore.getInstance("PKCS12");
+    try (InputStream in = Files.newInputStream(keystore)) {
+      keyStore.load(in, PASSWORD);
+    }
+    KeyManagerFactory keyManagers =
+        KeyManagerFactory.getInstance(KeyManagerFactory.getDefaultAlgorithm());
+    keyManagers.init(keyStore, PASSWORD);
+    TrustManagerFactory trustManagers =
+        TrustManagerFactory.getInstance(TrustManagerFactory.getDefaultAlgorithm());
+    trustManagers.init(keyStore);
+    sslContext = SSLContext.getInstance("TLS");
+    sslContext.init(keyManagers.getKeyManagers(), trustManagers.getTrustManagers(), null);
+  }
+
+  @AfterEach
+  void shutdown() {
+    release.countDown();
+    if (warmer != null) {
+      warmer.shutdown();
+    }
+    if (server != null) {
+      server.stop(0);
+    }
+    serverExecutor.shutdownNow();
+  }
+
+  @Test
+  void staysOutOfServiceUntilTheBurstIsOver() throws Exception {
+    startServer(true);
+    warmer = new SnsConnectionWarmer(List.of(shard(client(server.getAddress().getPort()))),
+        Optional.empty(), CONNECTIONS, 30_000);
+
+    warmer.start();
+    awaitCalls(CONNECTIONS);
+    assertThat(warmer.health().getStatus()).isEqualTo(Status.OUT_OF_SERVICE);
+
+    release.countDown();
+    Health health = awaitUp();
+    assertThat(health.getDetails())
+        .containsEntry("connections", CONNECTIONS)
+        .containsEntry("succeeded", CONNECTIONS)
+        .containsEntry("failed", 0);
+  }
+
+  @Test
+  void countsFailedCallsAndStillBecomesReady() throws Exception {
+    startServer(false);
+    int port = server.getAddress().getPort();
+    server.stop(0);
+    server = null;
+    warmer = new SnsConnectionWarmer(List.of(shard(client(port))), Optional.empty(),
+        CONNECTIONS, 30_000);
+
+    warmer.start();
+
+    assertThat(awaitUp().getDetails())
+        .containsEntry("succeeded", 0)
+        .containsEntry("failed", CONNECTIONS);
+  }
+
+  @Test
+  void becomesReadyOnceTheTimeoutElapsed() throws Exception {
+    startServer(true);
+    warmer = new SnsConnectionWarmer(List.of(shard(client(server.getAddress().getPort()))),
+        Optional.empty(), CONNECTIONS, 300);
+
+    warmer.start();
+
+    Health health = awaitUp();
+    assertThat(health.getDetails())
+        .containsEntry("succeeded", 0)
+        .containsEntry("failed", 0);
+    assertThat((Long) health.getDetails().get("elapsedMs")).isBetween(300L, 10_000L);
+  }
+
+  @Test
+  void warmsUpEveryShard() throws Exception {
+    startServer(false);
+    AmazonSNS client = client(server.getAddress().getPort());
+    warmer = new SnsConnectionWarmer(List.of(shard(client), shard(client)), Optional.empty(),
+        CONNECTIONS, 30_000);
+
+    warmer.start();
+
+    assertThat(awaitUp().getDetails()).containsEntry("succeeded", 2 * CONNECTIONS);
+    assertThat(calls).hasValue(2 * CONNECTIONS);
+  }
+
+  private void startServer(boolean blocking) throws Exception {
+    server = HttpsServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+    server.setHttpsConfigurator(new HttpsConfigurator(sslContext));
+    server.setExecutor(serverExecutor);
+    server.createContext("/", exchange -> respond(exchange, blocking));
+    server.start();
+  }
+
+  private void respond(HttpExchange exchange, boolean blocking) throws IOException {
+    try (exchange) {
+      exchange.getRequestBody().transferTo(OutputStream.nullOutputStream());
+      calls.incrementAndGet();
+      if (blocking) {
+        release.await();
+      }
+      byte[] body = LIST_TOPICS_RESPONSE.getBytes(StandardCharsets.UTF_8);
+      exchange.getResponseHeaders().add("Content-Type", "text/xml");
+      exchange.sendResponseHeaders(200, body.length);
+      exchange.getResponseBody().write(body);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  private static AmazonSNS client(int port) {
+    ClientConfiguration configuration = new ClientConfiguration()
+        .withMaxErrorRetry(0)
+        .withMaxConnections(CONNECTIONS);
+    configuration.getApacheHttpClientConfig()
+        .setSslSocketFactory(new SSLConnectionSocketFactory(sslContext));
+    return AmazonSNSClientBuilder.standard()
+        .withCredentials(new AWSStaticCredentialsProvider(new BasicAWSCredentials("x", "x")))
+        .withEndpointConfiguration(
+            new EndpointConfiguration("https://localhost:" + port, "us-east-1"))
+        .withClientConfiguration(configuration)
+        .build();
+  }
+
+  private static SnsShard shard(AmazonSNS client) {
+    return new SnsShard("us-east-1", "000000000000", client,
+        new RegionHealth(0.5, 1, 1_000, 0.4, 60_000));
+  }
+
+  private void awaitCalls(int expected) throws InterruptedException {
+    long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+    while (calls.get() < expected && System.nanoTime() < deadline) {
+      Thread.sleep(10);
+    }
+    assertThat(calls).hasValue(expected);
+  }
+
+  private Health awaitUp() throws InterruptedException {
+    long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+    Health health = warmer.health();
+    while (!Status.UP.equals(health.getStatus()) && System.nanoTime() < deadline) {
+      Thread.sleep(10);
+      health = warmer.health();
+    }
+    assertThat(health.getStatus()).isEqualTo(Status.UP);
+    return health;
+  }
+
+}